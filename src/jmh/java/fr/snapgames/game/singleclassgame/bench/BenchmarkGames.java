@@ -0,0 +1,84 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.bench;
+
+import java.util.Random;
+
+import fr.snapgames.game.singleclassgame.Game;
+import fr.snapgames.game.singleclassgame.core.collision.BoundingBoxType;
+import fr.snapgames.game.singleclassgame.core.config.Configuration;
+import fr.snapgames.game.singleclassgame.core.entity.GameObject;
+
+/**
+ * Fixtures shared by the benchmarks: headless games and randomly placed
+ * objects.
+ *
+ * @author Frédéric Delorme
+ */
+public class BenchmarkGames {
+
+	private BenchmarkGames() {
+	}
+
+	/**
+	 * Create a headless game running the sample state with
+	 * <code>enemies</code> enemies.
+	 *
+	 * @param enemies the number of enemies of the sample state.
+	 * @return the initialized game.
+	 */
+	public static Game create(int enemies) {
+		System.setProperty("java.awt.headless", "true");
+		Configuration.setInteger("sample.enemies", enemies);
+		Configuration.setBoolean("metrics.jmx", false);
+		return new Game(new String[] { "headless" });
+	}
+
+	/**
+	 * Side of a square area keeping about the same objects density as the
+	 * sample game, whatever the number of objects.
+	 *
+	 * @param count the number of objects.
+	 * @return the side of the area, in pixels.
+	 */
+	public static float areaSide(int count) {
+		return (float) Math.max(512.0, Math.sqrt(count) * 64.0);
+	}
+
+	/**
+	 * Create <code>count</code> objects of <code>size</code> pixels, randomly
+	 * placed and moving into a <code>side x side</code> area. Objects are not
+	 * added to the game.
+	 *
+	 * @param game  the parent game.
+	 * @param count the number of objects.
+	 * @param size  the size of the objects.
+	 * @param side  the side of the area.
+	 * @param seed  the random seed.
+	 * @return the objects.
+	 */
+	public static GameObject[] createObjects(Game game, int count, float size, float side, long seed) {
+		Random r = new Random(seed);
+		GameObject[] objects = new GameObject[count];
+		for (int i = 0; i < count; i++) {
+			GameObject o = new GameObject(game, "bench_" + i, r.nextFloat() * (side - size), r.nextFloat() * (side - size))
+					.setSize(size, size)
+					.setVelocity(r.nextFloat() * 4.0f - 2.0f, r.nextFloat() * 4.0f - 2.0f)
+					.setAcceleration(r.nextFloat() * 0.005f, r.nextFloat() * 0.005f)
+					.setMass(50.0f)
+					.setFriction(0.95f)
+					.setOffset(size / 2, size / 2);
+			o.bBox.type = (i % 2 == 0 ? BoundingBoxType.CIRCLE : BoundingBoxType.RECTANGLE);
+			o.bBox.update(o);
+			objects[i] = o;
+		}
+		return objects;
+	}
+}
@@ -0,0 +1,71 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.snapgames.game.singleclassgame.Game;
+import fr.snapgames.game.singleclassgame.core.collision.BoundingBox;
+import fr.snapgames.game.singleclassgame.core.collision.BoundingBoxType;
+import fr.snapgames.game.singleclassgame.core.entity.GameObject;
+
+/**
+ * Throughput of {@link BoundingBox#update(GameObject)} and of the narrow phase
+ * test {@link BoundingBox#intersect(BoundingBox)} for overlapping shapes.
+ *
+ * @author Frédéric Delorme
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoundingBoxBenchmark {
+
+	@Param({ "RECTANGLE", "CIRCLE", "CAPSULE" })
+	public BoundingBoxType type;
+
+	private GameObject a, b;
+
+	@Setup
+	public void setup() {
+		Game game = BenchmarkGames.create(0);
+		a = new GameObject(game, "a", 100.0f, 100.0f).setSize(32.0f, 16.0f);
+		b = new GameObject(game, "b", 120.0f, 104.0f).setSize(24.0f, 24.0f);
+		a.bBox.type = type;
+		b.bBox.type = BoundingBoxType.CIRCLE;
+		a.bBox.update(a);
+		b.bBox.update(b);
+	}
+
+	@Benchmark
+	public BoundingBox update() {
+		a.bBox.update(a);
+		return a.bBox;
+	}
+
+	@Benchmark
+	public int intersect() {
+		return a.bBox.intersect(b.bBox);
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.snapgames.game.singleclassgame.Game;
+import fr.snapgames.game.singleclassgame.core.collision.CollisionManager;
+
+/**
+ * Average time of a {@link CollisionManager#update(Game, float)} pass alone,
+ * and of a full simulation step (state update then collision pass) on the
+ * sample game with 1k and 10k enemies.
+ *
+ * @author Frédéric Delorme
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollisionManagerBenchmark {
+
+	@Param({ "1000", "10000" })
+	public int enemies;
+
+	private Game game;
+
+	@Setup
+	public void setup() {
+		game = BenchmarkGames.create(enemies);
+		game.update(1.6f);
+	}
+
+	@Benchmark
+	public int collide() {
+		game.collisionMgr.update(game, 1.6f);
+		return game.collisionMgr.getPairsTested();
+	}
+
+	@Benchmark
+	public int step() {
+		game.update(1.6f);
+		return game.collisionMgr.getPairsTested();
+	}
+}
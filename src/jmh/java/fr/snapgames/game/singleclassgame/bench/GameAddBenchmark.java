@@ -0,0 +1,64 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.snapgames.game.singleclassgame.Game;
+import fr.snapgames.game.singleclassgame.core.entity.GameObject;
+
+/**
+ * Time to add a batch of objects to a game with {@link Game#add(GameObject)}
+ * (objects list, identity set, entity store and collision manager). A new game
+ * and new objects are created before each batch.
+ *
+ * @author Frédéric Delorme
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GameAddBenchmark {
+
+	@Param({ "1000", "10000" })
+	public int objects;
+
+	private Game game;
+	private GameObject[] batch;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		game = BenchmarkGames.create(0);
+		batch = BenchmarkGames.createObjects(game, objects, 24.0f, BenchmarkGames.areaSide(objects), 42L);
+	}
+
+	@Benchmark
+	public Game add() {
+		for (int i = 0; i < batch.length; i++) {
+			game.add(batch[i]);
+		}
+		return game;
+	}
+}
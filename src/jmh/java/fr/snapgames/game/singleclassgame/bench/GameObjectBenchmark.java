@@ -0,0 +1,67 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.snapgames.game.singleclassgame.Game;
+import fr.snapgames.game.singleclassgame.core.entity.GameObject;
+
+/**
+ * Throughput of {@link GameObject#updatePhysic(float)}, in objects updated per
+ * microsecond.
+ *
+ * @author Frédéric Delorme
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameObjectBenchmark {
+
+	private static final int OBJECTS = 1000;
+
+	private Game game;
+	private GameObject[] objects;
+
+	@Setup(Level.Trial)
+	public void setupGame() {
+		game = BenchmarkGames.create(0);
+	}
+
+	@Setup(Level.Iteration)
+	public void setupObjects() {
+		objects = BenchmarkGames.createObjects(game, OBJECTS, 24.0f, BenchmarkGames.areaSide(OBJECTS), 42L);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OBJECTS)
+	public void updatePhysic() {
+		for (int i = 0; i < objects.length; i++) {
+			objects[i].addForce(0.01f, -0.02f);
+			objects[i].updatePhysic(1.6f);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.snapgames.game.singleclassgame.core.collision.Collidable;
+import fr.snapgames.game.singleclassgame.core.collision.QuadTree;
+import fr.snapgames.game.singleclassgame.core.entity.GameObject;
+
+/**
+ * Average time to insert all the objects into a {@link QuadTree}, and to
+ * retrieve the candidates of all of them, at 1k, 10k and 100k objects.
+ *
+ * @author Frédéric Delorme
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuadTreeBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int objects;
+
+	private GameObject[] items;
+	private QuadTree insertTree;
+	private QuadTree retrieveTree;
+	private List<Collidable> candidates = new ArrayList<>();
+
+	@Setup
+	public void setup() {
+		float side = BenchmarkGames.areaSide(objects);
+		items = BenchmarkGames.createObjects(BenchmarkGames.create(0), objects, 24.0f, side, 42L);
+		insertTree = createTree(side);
+		retrieveTree = createTree(side);
+		for (GameObject o : items) {
+			retrieveTree.insert(o);
+		}
+	}
+
+	private QuadTree createTree(float side) {
+		// same settings as the CollisionManager.
+		QuadTree tree = new QuadTree(side, side);
+		tree.MAX_LEVELS = 16;
+		tree.MAX_OBJECTS = 2;
+		return tree;
+	}
+
+	@Benchmark
+	public QuadTree insert() {
+		insertTree.clear();
+		for (int i = 0; i < items.length; i++) {
+			insertTree.insert(items[i]);
+		}
+		return insertTree;
+	}
+
+	@Benchmark
+	public int retrieve() {
+		int count = 0;
+		for (int i = 0; i < items.length; i++) {
+			candidates.clear();
+			count += retrieveTree.retrieve(candidates, items[i]).size();
+		}
+		return count;
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.bench;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.snapgames.game.singleclassgame.Game;
+import fr.snapgames.game.singleclassgame.core.entity.Camera;
+import fr.snapgames.game.singleclassgame.core.state.AbstractGameState;
+
+/**
+ * Average time to render the sample state into an offscreen buffer through
+ * {@link AbstractGameState#render(Game, Graphics2D, float)} (culling, render
+ * queue sort and drawing), with and without camera culling.
+ *
+ * @author Frédéric Delorme
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+
+	@Param({ "1000", "10000" })
+	public int enemies;
+
+	@Param({ "true", "false" })
+	public boolean culling;
+
+	private Game game;
+	private BufferedImage buffer;
+	private Graphics2D g;
+
+	@Setup
+	public void setup() {
+		game = BenchmarkGames.create(enemies);
+		game.debug = 0;
+		game.culling = culling;
+		game.update(1.6f);
+		buffer = new BufferedImage(game.dim.width, game.dim.height, BufferedImage.TYPE_INT_ARGB);
+		g = buffer.createGraphics();
+		Camera cam = game.world.activeCam;
+		if (cam != null) {
+			g.translate(-cam.position.x, -cam.position.y);
+			cam.computeVisibleArea(cam.position.x, cam.position.y, game.cullingMargin);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		g.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage render() {
+		g.setColor(Color.BLACK);
+		g.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
+		game.gsm.render(game, g, 1.0f);
+		return buffer;
+	}
+}
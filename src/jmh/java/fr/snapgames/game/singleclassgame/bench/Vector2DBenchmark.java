@@ -0,0 +1,79 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.snapgames.game.singleclassgame.core.math.Vector2D;
+
+/**
+ * Throughput of the {@link Vector2D} operations.
+ *
+ * @author Frédéric Delorme
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Vector2DBenchmark {
+
+	private Vector2D a, b, out;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		a = new Vector2D("a", 1.5f, -2.0f);
+		b = new Vector2D("b", 0.25f, 0.75f);
+		out = new Vector2D("out");
+	}
+
+	@Benchmark
+	public Vector2D add() {
+		return a.add(b);
+	}
+
+	@Benchmark
+	public Vector2D addScaled() {
+		return a.addScaled(b, 0.5f);
+	}
+
+	@Benchmark
+	public Vector2D subInto() {
+		return a.subInto(b, out);
+	}
+
+	@Benchmark
+	public Vector2D normalize() {
+		return a.set(3.0f, 4.0f).normalize();
+	}
+
+	@Benchmark
+	public float distance() {
+		return a.distance(b);
+	}
+
+	@Benchmark
+	public double dot() {
+		return a.dot(b);
+	}
+}
@@ -14,12 +14,15 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
-import java.awt.Stroke;
+import java.awt.geom.NoninvertibleTransformException;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.JPanel;
 
@@ -30,11 +33,21 @@ import fr.snapgames.game.singleclassgame.core.audio.SoundControl;
 import fr.snapgames.game.singleclassgame.core.collision.CollisionManager;
 import fr.snapgames.game.singleclassgame.core.config.Configuration;
 import fr.snapgames.game.singleclassgame.core.config.VersionTracker;
+import fr.snapgames.game.singleclassgame.core.entity.Camera;
+import fr.snapgames.game.singleclassgame.core.entity.EntityStore;
 import fr.snapgames.game.singleclassgame.core.entity.GameObject;
 import fr.snapgames.game.singleclassgame.core.entity.World;
+import fr.snapgames.game.singleclassgame.core.graphics.RenderQueue;
+import fr.snapgames.game.singleclassgame.core.graphics.RenderSnapshot;
+import fr.snapgames.game.singleclassgame.core.graphics.SnapshotRing;
+import fr.snapgames.game.singleclassgame.core.graphics.TileRasterizer;
 import fr.snapgames.game.singleclassgame.core.graphics.Window;
 import fr.snapgames.game.singleclassgame.core.input.KeyInputListener;
 import fr.snapgames.game.singleclassgame.core.math.Vector2D;
+import fr.snapgames.game.singleclassgame.core.profiler.FrameEvent;
+import fr.snapgames.game.singleclassgame.core.profiler.FrameProfiler;
+import fr.snapgames.game.singleclassgame.core.profiler.FrameProfiler.Phase;
+import fr.snapgames.game.singleclassgame.core.profiler.Metrics;
 import fr.snapgames.game.singleclassgame.core.resources.ResourceManager;
 import fr.snapgames.game.singleclassgame.core.state.GameStateManager;
 import fr.snapgames.game.singleclassgame.sample.GameKeyInput;
@@ -49,7 +62,7 @@ import fr.snapgames.game.singleclassgame.sample.SampleState;
  * <ul>
  * <li>The {@link Game#update(float)} is will update all the object according to
  * very a simplistic physic computation.
- * <li>the {@link Game#render(float,string)} will compute and draw to screen all
+ * <li>the {@link Game#render(float,String,float)} will compute and draw to screen all
  * those objects.
  * </ul>
  *
@@ -57,7 +70,7 @@ import fr.snapgames.game.singleclassgame.sample.SampleState;
  * 
  * @see http://github.com/SnapGames/singleclassgame
  */
-public class Game extends JPanel {
+public class Game extends JPanel implements GameMBean {
 
 	/**
 	 *
@@ -73,6 +86,11 @@ public class Game extends JPanel {
 	 */
 	private static float scale = 1.5f;
 
+	/**
+	 * Number of nanoseconds in one second.
+	 */
+	private static final long NANOS_PER_SECOND = 1000000000L;
+
 	/**
 	 * Rendering pace
 	 */
@@ -84,6 +102,41 @@ public class Game extends JPanel {
 	private float UPS = 60.0f;
 	private float upsDelay = 1000.0f / UPS;
 
+	/**
+	 * Main loop mode: <code>fixed</code> for the fixed time step loop,
+	 * <code>pipelined</code> for the fixed time step simulation with a dedicated
+	 * render thread, <code>variable</code> for the legacy one.
+	 */
+	private String loopMode = "fixed";
+
+	/**
+	 * Maximum number of catch-up updates processed before rendering a frame, to
+	 * avoid the spiral of death when update is slower than real time.
+	 */
+	private int maxUpdates = 5;
+
+	/**
+	 * Headless mode: no window, no rendering, only simulation.
+	 */
+	public boolean headless = false;
+
+	/**
+	 * Headless update pace. 0 means as fast as possible.
+	 */
+	private float headlessUPS = 0.0f;
+
+	/**
+	 * Number of updates before stopping the headless simulation. 0 means no limit.
+	 */
+	private long headlessTicks = 0;
+
+	/**
+	 * Render only the objects visible through the active camera, and the margin
+	 * (in pixels) added around its view.
+	 */
+	public boolean culling = true;
+	public float cullingMargin = 16.0f;
+
 	// Windows Dimension (Scale factor applied)
 	public Dimension dim;
 	// Play zone dimension
@@ -92,17 +145,34 @@ public class Game extends JPanel {
 	/**
 	 * Internal flag to request EXIT.
 	 */
-	public boolean exit = false;
+	public volatile boolean exit = false;
 
 	/**
 	 * internal flag to manage pause state.
 	 */
-	public boolean pause = false;
+	public volatile boolean pause = false;
 
 	/**
 	 * internal debug level to track things id <code>debug</code>>0.
 	 */
 	public int debug = 2;
+
+	/**
+	 * Minimum delay (in ms) between two refreshes of the debug texts and of the
+	 * broad phase outlines, and the flag set on the frames where they must be
+	 * refreshed.
+	 */
+	public int debugPeriod = 250;
+	public boolean debugRefresh = true;
+	private long debugRefreshTime = 0;
+
+	/**
+	 * Debug grid drawn once for a block of cells, then tiled over the visible
+	 * part of the play zone.
+	 */
+	private BufferedImage debugGrid;
+	private int debugGridCols, debugGridRows;
+
 	/**
 	 * rendering buffer
 	 */
@@ -112,6 +182,43 @@ public class Game extends JPanel {
 	 * Game objects to be managed.
 	 */
 	public List<GameObject> objects = new ArrayList<>();
+	private Set<GameObject> objectsSet = Collections.newSetFromMap(new IdentityHashMap<GameObject, Boolean>());
+
+	/**
+	 * Draw commands of the current frame, sorted by priority at flush time.
+	 */
+	public RenderQueue renderQueue = new RenderQueue();
+
+	/**
+	 * Snapshots exchanged between simulation and render threads in the pipelined
+	 * loop.
+	 */
+	private SnapshotRing snapshots;
+
+	/**
+	 * Optional tile-parallel software renderer for the objects images.
+	 */
+	public TileRasterizer rasterizer;
+
+	/**
+	 * Per-phase timings of the game loop, created from the configuration with the
+	 * window, and the start time of the frame being rendered.
+	 */
+	public FrameProfiler profiler;
+	private long frameStart = 0L;
+
+	/**
+	 * The JFR event of the frame being rendered (null if not recorded), and the
+	 * last measured rates.
+	 */
+	private FrameEvent frameEvent;
+	private volatile int measuredFPS = 0, measuredUPS = 0;
+
+	/**
+	 * Optional data oriented storage for objects physic (see
+	 * <code>game.entity.store</code> configuration key).
+	 */
+	public EntityStore entities;
 
 	/**
 	 * The main input key listener.
@@ -174,6 +281,24 @@ public class Game extends JPanel {
 		String title = Configuration.get("window.title", "SingleClassGame");
 		scale = Configuration.getFloat("window.scale", 2.0f);
 		debug = Configuration.getInteger("debug.level", 1);
+		debugPeriod = Configuration.getInteger("debug.overlay.period", 250);
+		profiler = new FrameProfiler(Configuration.getInteger("profiler.samples", 256));
+		profiler.enabled = Configuration.getBoolean("profiler.enabled", true);
+		profiler.hud = Configuration.getBoolean("profiler.hud", false);
+		Metrics.initialize();
+
+		// Game loop pace
+		FPS = Configuration.getFloat("game.fps", 30.0f);
+		fpsDelay = 1000.0f / FPS;
+		UPS = Configuration.getFloat("game.ups", 60.0f);
+		upsDelay = 1000.0f / UPS;
+		loopMode = Configuration.get("game.loop", "fixed");
+		maxUpdates = Configuration.getInteger("game.loop.maxUpdates", 5);
+		headless = Configuration.getBoolean("game.headless", false);
+		headlessUPS = Configuration.getFloat("game.headless.ups", 0.0f);
+		headlessTicks = Configuration.getInteger("game.headless.ticks", 0);
+		culling = Configuration.getBoolean("render.culling", true);
+		cullingMargin = Configuration.getFloat("render.culling.margin", 16.0f);
 
 		// Window dimension
 		dim = new Dimension((int) (width * scale), (int) (height * scale));
@@ -182,11 +307,24 @@ public class Game extends JPanel {
 		playZone = new Dimension(dim.width * 4, dim.height * 4);
 
 		// buffer where to render things
-		buffer = new BufferedImage(dim.width, dim.height, BufferedImage.TYPE_INT_ARGB);
+		if (!headless) {
+			buffer = new BufferedImage(dim.width, dim.height, BufferedImage.TYPE_INT_ARGB);
+			if (Configuration.getBoolean("render.tiles", false)) {
+				rasterizer = new TileRasterizer(buffer, Configuration.getInteger("render.tiles.size", 64),
+						Configuration.getInteger("render.tiles.threads", 0));
+				logger.info("Tile rasterizer activated");
+			}
+		}
 
 		// add the default key listener
 		kil = new KeyInputListener();
 
+		// Data oriented entity store.
+		if (Configuration.getBoolean("game.entity.store", false)) {
+			entities = new EntityStore();
+			logger.info("Entity store activated");
+		}
+
 		// Set the default World parameters.
 		world = new World(new Vector2D("gravity", 0.0f, -0.981f));
 		// Initialize ResourceManager
@@ -195,7 +333,13 @@ public class Game extends JPanel {
 		collisionMgr = new CollisionManager();
 
 		soundControl = SoundControl.getInstance();
+		// no sound device is expected on a headless server.
+		soundControl.setEnabled(!headless);
 
+		if (headless) {
+			logger.info("Headless mode: no window created");
+			return;
+		}
 		// create window and attach needed things
 		window = new Window(this, title);
 		window.setKeyInputListener(kil);
@@ -246,13 +390,331 @@ public class Game extends JPanel {
 		// start on the first state.
 		gsm.start(this, "SampleState");
 
+		// expose engine internals to JMX.
+		Metrics.register("Game", this);
+		Metrics.register("CollisionManager", collisionMgr);
+		Metrics.register("SoundControl", soundControl);
+		Metrics.register("ResourceManager", resourceMgr);
+		Metrics.register("GameStateManager", gsm);
+
 		logger.info("state {} initialized", samp.getName());
 	}
 
 	/**
-	 * Run the main loop for the game.
+	 * Run the main loop for the game. The <code>game.loop</code> configuration key
+	 * select the fixed time step loop (<code>fixed</code>, default), the pipelined
+	 * one (<code>pipelined</code>) or the legacy variable one
+	 * (<code>variable</code>). In headless mode, only the simulation is run.
 	 */
 	public void run() {
+		if (headless) {
+			runHeadless();
+		} else if ("variable".equals(loopMode)) {
+			runVariableStep();
+		} else if ("pipelined".equals(loopMode)) {
+			runPipelined();
+		} else {
+			runFixedStep();
+		}
+		dispose();
+		System.exit(0);
+	}
+
+	/**
+	 * <p>
+	 * Fixed time step loop. Time is accumulated as <code>long</code> nanoseconds
+	 * and consumed by steps of <code>1/UPS</code> second, while rendering is paced
+	 * at <code>FPS</code>.
+	 * <p>
+	 * The remaining time in the accumulator gives the <code>alpha</code>
+	 * interpolation factor between the previous and the current object states at
+	 * render time. Catch-up updates are capped to <code>maxUpdates</code> per loop
+	 * to avoid the spiral of death.
+	 */
+	private void runFixedStep() {
+		final long stepNs = (long) (NANOS_PER_SECOND / UPS);
+		final long frameNs = (long) (NANOS_PER_SECOND / FPS);
+		// physic engine still works with elapsed time in 1/100 of second.
+		final float dt = stepNs / 10000000.0f;
+
+		long previousTime = System.nanoTime();
+		long nextRender = previousTime;
+		long counterTime = previousTime;
+		long accumulator = 0;
+		int realFPS = 0, realUPS = 0;
+		int framesCount = 0, updatesCount = 0;
+
+		while (!exit) {
+			long currentTime = System.nanoTime();
+			long frameTime = currentTime - previousTime;
+			previousTime = currentTime;
+			if (frameTime > stepNs * maxUpdates) {
+				frameTime = stepNs * maxUpdates;
+			}
+			accumulator += frameTime;
+
+			int updates = 0;
+			while (accumulator >= stepNs && updates < maxUpdates) {
+				if (!pause) {
+					long inputStart = profiler.start();
+					gsm.input(this);
+					profiler.end(Phase.INPUT, inputStart);
+					update(dt);
+				}
+				postOperation();
+				accumulator -= stepNs;
+				updates++;
+			}
+			updatesCount += updates;
+
+			if (currentTime >= nextRender) {
+				float alpha = (pause ? 1.0f : (float) accumulator / stepNs);
+				render(realFPS, String.format("debug:%d fps:%03d ups:%03d pairs:%d/%d pause:%s", debug, realFPS,
+						realUPS, collisionMgr.getPairsColliding(), collisionMgr.getPairsTested(),
+						(pause ? "on" : "off")), alpha);
+				framesCount += 1;
+				nextRender += frameNs;
+				if (nextRender < currentTime) {
+					nextRender = currentTime + frameNs;
+				}
+			}
+
+			if (currentTime - counterTime >= NANOS_PER_SECOND) {
+				realFPS = framesCount;
+				realUPS = updatesCount;
+				measuredFPS = realFPS;
+				measuredUPS = realUPS;
+				framesCount = 0;
+				updatesCount = 0;
+				counterTime = currentTime;
+			}
+			long sleepStart = profiler.start();
+			sleepUntil(Math.min(currentTime + (stepNs - accumulator), nextRender));
+			profiler.end(Phase.SLEEP, sleepStart);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Pipelined loop: the simulation runs the fixed time step updates on the
+	 * current thread and, after each batch of updates, produces a
+	 * {@link RenderSnapshot} of the frame into the {@link SnapshotRing}. A
+	 * dedicated render thread draws the latest snapshot at <code>FPS</code>,
+	 * interpolating positions according to the time elapsed since its
+	 * production. A slow frame doesn't delay the simulation anymore.
+	 * <p>
+	 * The render thread never reads the live game state: the camera, the debug
+	 * information of the objects, the broad phase outlines, the statistics and
+	 * the profiler HUD are copied into the snapshot, and the debug overlays
+	 * refresh is throttled on the simulation thread.
+	 */
+	private void runPipelined() {
+		final long stepNs = (long) (NANOS_PER_SECOND / UPS);
+		// physic engine still works with elapsed time in 1/100 of second.
+		final float dt = stepNs / 10000000.0f;
+
+		snapshots = new SnapshotRing();
+		Thread renderThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				renderLoop(stepNs);
+			}
+		}, "render");
+		renderThread.start();
+
+		long previousTime = System.nanoTime();
+		long counterTime = previousTime;
+		long accumulator = 0;
+		int realUPS = 0, updatesCount = 0;
+		boolean produced = false;
+
+		while (!exit) {
+			long currentTime = System.nanoTime();
+			long frameTime = currentTime - previousTime;
+			previousTime = currentTime;
+			if (frameTime > stepNs * maxUpdates) {
+				frameTime = stepNs * maxUpdates;
+			}
+			accumulator += frameTime;
+
+			int updates = 0;
+			while (accumulator >= stepNs && updates < maxUpdates) {
+				if (!pause) {
+					long inputStart = profiler.start();
+					gsm.input(this);
+					profiler.end(Phase.INPUT, inputStart);
+					update(dt);
+				}
+				postOperation();
+				accumulator -= stepNs;
+				updates++;
+			}
+			updatesCount += updates;
+
+			if (updates > 0 || !produced) {
+				produceSnapshot(realUPS);
+				produced = true;
+			}
+
+			if (currentTime - counterTime >= NANOS_PER_SECOND) {
+				realUPS = updatesCount;
+				measuredUPS = realUPS;
+				updatesCount = 0;
+				counterTime = currentTime;
+			}
+			long sleepStart = profiler.start();
+			sleepUntil(currentTime + (stepNs - accumulator));
+			profiler.end(Phase.SLEEP, sleepStart);
+		}
+		try {
+			renderThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Fill the next snapshot with the current state of the game, and publish it
+	 * to the render thread.
+	 *
+	 * @param realUPS the measured update rate.
+	 */
+	private void produceSnapshot(int realUPS) {
+		RenderSnapshot s = snapshots.acquire();
+		s.clear();
+		throttleDebug();
+		Camera cam = world.activeCam;
+		if (cam != null) {
+			s.camera = true;
+			s.camOldX = cam.oldPosition.x;
+			s.camOldY = cam.oldPosition.y;
+			s.camX = cam.position.x;
+			s.camY = cam.position.y;
+			s.camAngle = cam.angle;
+			s.camWidth = cam.getView().width;
+			s.camHeight = cam.getView().height;
+			s.camName = cam.name;
+			cam.computeVisibleArea(cam.position.x, cam.position.y, cullingMargin);
+		}
+		gsm.submit(this, s.queue);
+		s.queue.captureDebug();
+		if (debug > 3) {
+			s.outline.reset();
+			s.outlineShared.reset();
+			collisionMgr.outline(s.outline, s.outlineShared);
+			s.broadPhase = true;
+		}
+		if (profiler.hud) {
+			if (debugRefresh) {
+				profiler.refreshHud();
+			}
+			profiler.copyHud(s.hudLines);
+			s.hud = true;
+		}
+		s.debug = debug;
+		s.objects = objects.size();
+		s.ups = realUPS;
+		s.pairsColliding = collisionMgr.getPairsColliding();
+		s.pairsTested = collisionMgr.getPairsTested();
+		s.pause = pause;
+		s.time = System.nanoTime();
+		snapshots.publish();
+	}
+
+	/**
+	 * The render thread loop of the pipelined mode.
+	 *
+	 * @param stepNs the duration of a simulation step, in nanoseconds.
+	 */
+	private void renderLoop(long stepNs) {
+		final long frameNs = (long) (NANOS_PER_SECOND / FPS);
+		long nextRender = System.nanoTime();
+		long counterTime = nextRender;
+		int realFPS = 0, framesCount = 0;
+		while (!exit) {
+			long currentTime = System.nanoTime();
+			RenderSnapshot s = snapshots.latest();
+			if (s != null) {
+				float alpha = (s.pause ? 1.0f : Math.min(1.0f, (float) (currentTime - s.time) / stepNs));
+				renderSnapshot(s, realFPS,
+						String.format("debug:%d fps:%03d ups:%03d pairs:%d/%d pause:%s", s.debug, realFPS, s.ups,
+								s.pairsColliding, s.pairsTested, (s.pause ? "on" : "off")),
+						alpha);
+				framesCount++;
+			}
+			if (currentTime - counterTime >= NANOS_PER_SECOND) {
+				realFPS = framesCount;
+				measuredFPS = realFPS;
+				framesCount = 0;
+				counterTime = currentTime;
+			}
+			nextRender += frameNs;
+			if (nextRender < currentTime) {
+				nextRender = currentTime + frameNs;
+			}
+			sleepUntil(nextRender);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Headless simulation loop: no input device, no rendering. Each tick simulates
+	 * <code>1/UPS</code> second, and ticks are run as fast as possible, or at
+	 * <code>game.headless.ups</code> ticks per second if set.
+	 * <p>
+	 * The number of ticks per second (and the real time factor) is reported every
+	 * second. If <code>game.headless.ticks</code> is set, the simulation stops
+	 * after this number of ticks.
+	 */
+	private void runHeadless() {
+		final long stepNs = (headlessUPS > 0.0f ? (long) (NANOS_PER_SECOND / headlessUPS) : 0L);
+		final float dt = ((long) (NANOS_PER_SECOND / UPS)) / 10000000.0f;
+
+		long startTime = System.nanoTime();
+		long nextTick = startTime;
+		long counterTime = startTime;
+		long ticks = 0;
+		int ticksCount = 0;
+
+		logger.info("Start headless simulation at {} ticks/s", (stepNs > 0 ? headlessUPS : "max"));
+		while (!exit) {
+			long inputStart = profiler.start();
+			gsm.input(this);
+			profiler.end(Phase.INPUT, inputStart);
+			update(dt);
+			postOperation();
+			ticks++;
+			ticksCount++;
+
+			long currentTime = System.nanoTime();
+			if (currentTime - counterTime >= NANOS_PER_SECOND) {
+				float tps = ticksCount * (float) NANOS_PER_SECOND / (currentTime - counterTime);
+				measuredUPS = Math.round(tps);
+				logger.info(String.format("headless: %.1f ticks/s (x%.2f real time), %d objects, %d/%d pairs colliding, %d swept",
+						tps, tps / UPS, objects.size(), collisionMgr.getPairsColliding(),
+						collisionMgr.getPairsTested(), collisionMgr.getSwept()));
+				logger.info(collisionMgr.getBroadPhaseStatistics());
+				ticksCount = 0;
+				counterTime = currentTime;
+			}
+			if (headlessTicks > 0 && ticks >= headlessTicks) {
+				exit = true;
+			} else if (stepNs > 0) {
+				nextTick += stepNs;
+				long sleepStart = profiler.start();
+				sleepUntil(nextTick);
+				profiler.end(Phase.SLEEP, sleepStart);
+			}
+		}
+		float duration = (System.nanoTime() - startTime) / (float) NANOS_PER_SECOND;
+		logger.info(String.format("headless simulation ended: %d ticks in %.3f s (%.1f ticks/s)", ticks, duration,
+				ticks / duration));
+	}
+
+	/**
+	 * Legacy variable step loop.
+	 */
+	private void runVariableStep() {
 
 		float previousTime = System.nanoTime();
 		float elapsed = 0;
@@ -263,35 +725,38 @@ public class Game extends JPanel {
 		while (!exit) {
 			currentTime = System.nanoTime();
 			if (previousTime > 0.0f && !pause) {
+				long inputStart = profiler.start();
 				gsm.input(this);
+				profiler.end(Phase.INPUT, inputStart);
 				elapsed = (currentTime - previousTime) / 10000000.0f;
 				if (elapsed < 0.0f) {
 					elapsed = 1.0f;
 				}
-				gsm.update(this, elapsed);
+				update(elapsed);
 			}
 			if (elapsed <= fpsDelay) {
 				render(realFPS, String.format("debug:%d c:%02d t:%04d fps:%03d pause:%s", debug, framesCount,
-						timeFrames, realFPS, (pause ? "on" : "off")));
+						timeFrames, realFPS, (pause ? "on" : "off")), 1.0f);
 			}
 			postOperation();
 			framesCount += 1;
 			timeFrames += elapsed;
 			if (timeFrames > 1000) {
 				realFPS = framesCount;
+				measuredFPS = realFPS;
 				framesCount = 0;
 				timeFrames = 0;
 			}
+			long sleepStart = profiler.start();
 			wait(upsDelay - elapsed);
+			profiler.end(Phase.SLEEP, sleepStart);
 			previousTime = currentTime;
 		}
-		dispose();
-		System.exit(0);
 	}
 
 	private void postOperation() {
-		for (GameObject go : objects) {
-			go.forces.clear();
+		for (int i = 0; i < objects.size(); i++) {
+			objects.get(i).clearForces();
 		}
 
 	}
@@ -316,26 +781,131 @@ public class Game extends JPanel {
 		}
 	}
 
+	/**
+	 * Sleep until the <code>wakeUpTime</code> (in nanoseconds) is reached.
+	 *
+	 * @param wakeUpTime the System.nanoTime() value to wait for.
+	 */
+	private void sleepUntil(long wakeUpTime) {
+		long delay = wakeUpTime - System.nanoTime();
+		if (delay >= 1000000L) {
+			try {
+				Thread.sleep(delay / 1000000L);
+			} catch (InterruptedException e) {
+				logger.error("unable to wait !!");
+				Thread.currentThread().interrupt();
+				exit = true;
+			}
+		} else if (delay > 0) {
+			Thread.yield();
+		}
+	}
+
 	/**
 	 * Update all the objects of the game.
 	 *
 	 * @param elapsed time elapsed since previous call.
 	 */
 	public void update(float elapsed) {
+		soundControl.setListener(world != null ? world.activeCam : null);
+		long start = profiler.start();
+		gsm.update(this, elapsed);
+		profiler.end(Phase.UPDATE, start);
 		if (objects != null && objects.size() > 0) {
-			// TODO call gsm.current.update()
+			collisionMgr.update(this, elapsed);
 		}
-		collisionMgr.update(this, elapsed);
 		if (world != null && world.activeCam != null) {
 			world.activeCam.updatePhysic(elapsed);
 		}
-
+		soundControl.flush();
 	}
 
 	/**
 	 * Render all the game objects to the buffer.
+	 * 
+	 * @param realFPS the measured frame rate.
+	 * @param fps     the debug information line to be displayed.
+	 * @param alpha   interpolation factor between previous and current object
+	 *                states (from 0 to 1).
+	 */
+	public void render(float realFPS, String fps, float alpha) {
+
+		Graphics2D g = beginFrame();
+		throttleDebug();
+
+		float camX = 0.0f, camY = 0.0f;
+		Camera cam = world.activeCam;
+		if (cam != null) {
+			camX = cam.oldPosition.x + (cam.position.x - cam.oldPosition.x) * alpha;
+			camY = cam.oldPosition.y + (cam.position.y - cam.oldPosition.y) * alpha;
+			g.translate(-camX, -camY);
+			g.rotate(-cam.angle);
+			cam.computeVisibleArea(camX, camY, cullingMargin);
+		}
+
+		gsm.render(this, g, alpha);
+
+		endFrame(g, realFPS, fps, camX, camY, (cam != null ? cam.angle : 0.0), null);
+	}
+
+	/**
+	 * Render a frame from a <code>snapshot</code> produced by the simulation
+	 * thread.
+	 * 
+	 * @param snapshot the snapshot to be rendered.
+	 * @param realFPS  the measured frame rate.
+	 * @param fps      the debug information line to be displayed.
+	 * @param alpha    interpolation factor between previous and current object
+	 *                 states (from 0 to 1).
 	 */
-	public void render(float realFPS, String fps) {
+	private void renderSnapshot(RenderSnapshot snapshot, float realFPS, String fps, float alpha) {
+		Graphics2D g = beginFrame();
+
+		float camX = 0.0f, camY = 0.0f;
+		if (snapshot.camera) {
+			camX = snapshot.camOldX + (snapshot.camX - snapshot.camOldX) * alpha;
+			camY = snapshot.camOldY + (snapshot.camY - snapshot.camOldY) * alpha;
+			g.translate(-camX, -camY);
+			g.rotate(-snapshot.camAngle);
+		}
+
+		drawQueue(snapshot.queue, g, alpha);
+
+		if (snapshot.broadPhase) {
+			g.setColor(Color.BLUE);
+			g.draw(snapshot.outline);
+			g.setColor(Color.ORANGE);
+			g.draw(snapshot.outlineShared);
+		}
+
+		endFrame(g, realFPS, fps, camX, camY, snapshot.camAngle, snapshot);
+	}
+
+	/**
+	 * Draw the commands of the <code>queue</code>, with the tile rasterizer if
+	 * activated and possible, or else through the Graphics API.
+	 * 
+	 * @param queue the render queue to be drawn.
+	 * @param g     the Graphics API.
+	 * @param alpha interpolation factor between previous and current object
+	 *              states (from 0 to 1).
+	 */
+	public void drawQueue(RenderQueue queue, Graphics2D g, float alpha) {
+		if (rasterizer != null && rasterizer.draw(queue, g, alpha)) {
+			queue.drawDebug(g, alpha);
+		} else {
+			queue.draw(g, alpha);
+		}
+	}
+
+	/**
+	 * Prepare the rendering buffer for a new frame.
+	 * 
+	 * @return the Graphics API to draw to the buffer.
+	 */
+	private Graphics2D beginFrame() {
+		frameStart = profiler.start();
+		frameEvent = (Metrics.jfr ? FrameEvent.start() : null);
 
 		// retrieve graphic API
 		Graphics2D g = (Graphics2D) buffer.getGraphics();
@@ -349,67 +919,177 @@ public class Game extends JPanel {
 		// clear view before redraw things
 		g.setColor(Color.BLACK);
 		g.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
+		return g;
+	}
 
-		if (world.activeCam != null) {
-			g.translate(-world.activeCam.position.x, -world.activeCam.position.y);
-			g.rotate(-world.activeCam.angle);
+	/**
+	 * Throttle the debug overlays refresh: set {@link Game#debugRefresh} if the
+	 * last refresh is older than {@link Game#debugPeriod}. Called from the thread
+	 * capturing the overlays, the simulation one in the pipelined loop.
+	 */
+	private void throttleDebug() {
+		long now = System.currentTimeMillis();
+		debugRefresh = (now - debugRefreshTime >= debugPeriod);
+		if (debugRefresh) {
+			debugRefreshTime = now;
 		}
+	}
 
-		gsm.render(this, g);
-
-		if (debug > 2) {
-			g.setColor(Color.LIGHT_GRAY);
-			Stroke bckValue = g.getStroke();
-			g.setStroke(new BasicStroke(0.56f));
-			for (int ix = 0; ix < playZone.width; ix += (playZone.width / 20)) {
-				for (int iy = 0; iy < playZone.height; iy += (playZone.height / 20)) {
-					g.drawRect(ix, iy, (playZone.width / 20), (playZone.height / 20));
-				}
-			}
-			g.setStroke(bckValue);
+	/**
+	 * Draw the debug overlays and the camera, then copy the frame to the screen.
+	 * With a <code>snapshot</code>, everything is drawn from the snapshot only,
+	 * the collision broad phase being already drawn from its outlines.
+	 * 
+	 * @param g        the Graphics API translated and rotated to the camera view.
+	 * @param realFPS  the measured frame rate.
+	 * @param fps      the debug information line to be displayed.
+	 * @param camX     the rendered camera horizontal position.
+	 * @param camY     the rendered camera vertical position.
+	 * @param angle    the camera angle.
+	 * @param snapshot the rendered snapshot, or null to draw the live state.
+	 */
+	private void endFrame(Graphics2D g, float realFPS, String fps, float camX, float camY, double angle,
+			RenderSnapshot snapshot) {
+		int level = (snapshot != null ? snapshot.debug : debug);
+		if (level > 2) {
+			drawDebugGrid(g);
 		}
 
-		if (debug > 3) {
+		if (level > 3 && snapshot == null) {
 			collisionMgr.draw(this, g, realFPS);
 		}
 
-		if (world.activeCam != null) {
-			g.rotate(world.activeCam.angle);
-			g.translate(world.activeCam.position.x, world.activeCam.position.y);
+		if (snapshot != null) {
+			if (snapshot.camera) {
+				g.rotate(angle);
+				g.translate(camX, camY);
+				if (level > 1) {
+					Camera.drawView(g, snapshot.camWidth, snapshot.camHeight, snapshot.camName);
+				}
+			}
+		} else if (world.activeCam != null) {
+			g.rotate(angle);
+			g.translate(camX, camY);
 			world.activeCam.render(g);
 		}
 
 		// add some debug information
-		if (debug > 0) {
+		if (level > 0) {
 			g.setColor(Color.ORANGE);
 			g.drawString(fps, 10, 40);
-			if (debug > 1) {
+			if (level > 1) {
 				g.setColor(Color.GRAY);
 				g.drawRect(0, 0, dim.width, dim.height);
 			}
 		}
 
+		// per-phase timings
+		if (snapshot != null) {
+			if (snapshot.hud) {
+				FrameProfiler.drawHud(g, snapshot.hudLines, 10, 50);
+			}
+		} else if (profiler.hud) {
+			if (debugRefresh) {
+				profiler.refreshHud();
+			}
+			profiler.drawHud(g, 10, 50);
+		}
+
 		// release API
 		g.dispose();
+		profiler.end(Phase.RENDER, frameStart);
 
 		// copy rendering buffer to window.
+		long start = profiler.start();
 		drawToScreen();
+		profiler.end(Phase.PRESENT, start);
+		if (frameEvent != null) {
+			frameEvent.finish((int) realFPS, (snapshot != null ? snapshot.objects : objects.size()));
+			frameEvent = null;
+		}
+	}
+
+	/**
+	 * Draw the 20x20 cells debug grid of the play zone. The grid is drawn once
+	 * into an image covering about a screen of cells, which is then copied over
+	 * the part of the play zone visible through the <code>g</code> transform.
+	 * 
+	 * @param g the Graphics API translated and rotated to the camera view.
+	 */
+	private void drawDebugGrid(Graphics2D g) {
+		int cellW = playZone.width / 20, cellH = playZone.height / 20;
+		if (cellW <= 0 || cellH <= 0) {
+			return;
+		}
+		int cols = (playZone.width + cellW - 1) / cellW, rows = (playZone.height + cellH - 1) / cellH;
+		if (debugGrid == null) {
+			// blocks must not overlap the play zone border (inner edges are drawn twice).
+			debugGridCols = Math.min(cols, dim.width / cellW + 1);
+			while (cols % debugGridCols != 0) {
+				debugGridCols++;
+			}
+			debugGridRows = Math.min(rows, dim.height / cellH + 1);
+			while (rows % debugGridRows != 0) {
+				debugGridRows++;
+			}
+			debugGrid = new BufferedImage(debugGridCols * cellW + 1, debugGridRows * cellH + 1,
+					BufferedImage.TYPE_INT_ARGB_PRE);
+			Graphics2D gg = debugGrid.createGraphics();
+			gg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			gg.setColor(Color.LIGHT_GRAY);
+			gg.setStroke(new BasicStroke(0.56f));
+			for (int ix = 0; ix < debugGridCols; ix++) {
+				for (int iy = 0; iy < debugGridRows; iy++) {
+					gg.drawRect(ix * cellW, iy * cellH, cellW, cellH);
+				}
+			}
+			gg.dispose();
+		}
+
+		// world area visible through the current transform.
+		Rectangle view;
+		try {
+			view = g.getTransform().createInverse()
+					.createTransformedShape(new Rectangle(0, 0, buffer.getWidth(), buffer.getHeight())).getBounds();
+		} catch (NoninvertibleTransformException e) {
+			return;
+		}
+		int blockW = debugGridCols * cellW, blockH = debugGridRows * cellH;
+		int zoneW = cols * cellW, zoneH = rows * cellH;
+		int maxX = Math.min(zoneW, view.x + view.width), maxY = Math.min(zoneH, view.y + view.height);
+		for (int y = Math.max(0, view.y / blockH) * blockH; y < maxY; y += blockH) {
+			for (int x = Math.max(0, view.x / blockW) * blockW; x < maxX; x += blockW) {
+				int w = Math.min(blockW, zoneW - x) + 1, h = Math.min(blockH, zoneH - y) + 1;
+				g.drawImage(debugGrid, x, y, x + w, y + h, 0, 0, w, h, null);
+			}
+		}
 	}
 
 	/**
-	 * Draw buffer to screen.
+	 * Draw buffer to screen, through the window presentation path.
 	 */
 	private void drawToScreen() {
-		Graphics2D gbuff = window.getGraphics();
-		gbuff.drawImage(buffer, 0, 0, (int) (dim.width * scale), (int) (dim.height * scale), 0, 0, dim.width,
-				dim.height, null);
-		gbuff.dispose();
+		if (window == null) {
+			return;
+		}
+		window.present(buffer, (int) (dim.width * scale), (int) (dim.height * scale), dim.width, dim.height);
 	}
 
 	/**
 	 * release all resources before quitting.
 	 */
 	private void dispose() {
+		Metrics.dispose();
+		if (soundControl != null) {
+			soundControl.dispose();
+		}
+		if (rasterizer != null) {
+			rasterizer.dispose();
+			rasterizer = null;
+		}
+		if (collisionMgr != null) {
+			collisionMgr.dispose();
+		}
 		dim = null;
 		window = null;
 		kil = null;
@@ -419,23 +1099,18 @@ public class Game extends JPanel {
 	}
 
 	/**
-	 * Add a GameObject to the list of object managed by the Game.
+	 * Add a GameObject to the list of object managed by the Game. Objects are
+	 * drawn by priority order through the {@link RenderQueue}.
 	 *
 	 * @param o the GameObject to add to the list.
 	 */
 	public void add(GameObject o) {
-		if (!objects.contains(o)) {
-			o.forces.addAll(world.forces);
-			o.forces.add(world.gravity);
+		if (objectsSet.add(o)) {
 			objects.add(o);
+			if (entities != null) {
+				entities.add(o);
+			}
 			collisionMgr.add(o);
-			objects.sort(new Comparator<GameObject>() {
-				public int compare(GameObject o1, GameObject o2) {
-					return (o1.priority < o2.priority ? -1 : 1);
-				}
-
-				;
-			});
 		} else {
 			logger.error("The objects stack already contains {}", o.name);
 		}
@@ -486,6 +1161,49 @@ public class Game extends JPanel {
 					logger.error(String.format("Unable to set scale value to %f (min=1,max=4)", valueScale));
 				}
 				break;
+			case "fps":
+				float valueFps = Float.parseFloat(parts[1]);
+				if (valueFps >= 1.0f && valueFps <= 240.0f) {
+					logger.info(String.format("Frame rate set to %f", valueFps));
+					Configuration.setFloat("game.fps", valueFps);
+				} else {
+					logger.error(String.format("Unable to set frame rate to %f (min=1,max=240)", valueFps));
+				}
+				break;
+			case "ups":
+				float valueUps = Float.parseFloat(parts[1]);
+				if (valueUps >= 1.0f && valueUps <= 1000.0f) {
+					logger.info(String.format("Update rate set to %f", valueUps));
+					Configuration.setFloat("game.ups", valueUps);
+				} else {
+					logger.error(String.format("Unable to set update rate to %f (min=1,max=1000)", valueUps));
+				}
+				break;
+			case "loop":
+				if ("fixed".equals(parts[1]) || "pipelined".equals(parts[1]) || "variable".equals(parts[1])) {
+					logger.info(String.format("Game loop set to %s", parts[1]));
+					Configuration.setString("game.loop", parts[1]);
+				} else {
+					logger.error(
+							String.format("Unable to set game loop to %s (fixed, pipelined or variable)", parts[1]));
+				}
+				break;
+			case "headless":
+			case "hl":
+				boolean valueHeadless = (parts.length < 2 || Boolean.parseBoolean(parts[1]));
+				logger.info(String.format("Headless mode set to %s", valueHeadless));
+				Configuration.setBoolean("game.headless", valueHeadless);
+				break;
+			case "ticks":
+				long valueTicks = Long.parseLong(parts[1]);
+				if (valueTicks >= 0 && valueTicks <= Integer.MAX_VALUE) {
+					logger.info(String.format("Headless ticks limit set to %d", valueTicks));
+					Configuration.setInteger("game.headless.ticks", (int) valueTicks);
+				} else {
+					logger.error(String.format("Unable to set headless ticks limit to %d (min=0,max=%d)", valueTicks,
+							Integer.MAX_VALUE));
+				}
+				break;
 			case "debug":
 			case "d":
 				int value = Integer.parseInt(parts[1]);
@@ -504,10 +1222,101 @@ public class Game extends JPanel {
 		Configuration.save();
 	}
 
+	/**
+	 * Check if headless mode is requested through command line arguments or
+	 * configuration.
+	 *
+	 * @param args
+	 * @return true if the game must run without window.
+	 */
+	private static boolean isHeadless(String[] args) {
+		for (String arg : args) {
+			String[] parts = arg.split("=");
+			if (parts[0].equals("headless") || parts[0].equals("hl")) {
+				return (parts.length < 2 || Boolean.parseBoolean(parts[1]));
+			}
+		}
+		return Configuration.getBoolean("game.headless", false);
+	}
+
+	@Override
+	public int getObjectCount() {
+		return objects.size();
+	}
+
+	@Override
+	public int getFramesPerSecond() {
+		return measuredFPS;
+	}
+
+	@Override
+	public int getUpdatesPerSecond() {
+		return measuredUPS;
+	}
+
+	@Override
+	public String getLoopMode() {
+		return (headless ? "headless" : loopMode);
+	}
+
+	@Override
+	public boolean isPause() {
+		return pause;
+	}
+
+	@Override
+	public void setPause(boolean pause) {
+		this.pause = pause;
+	}
+
+	@Override
+	public int getDebug() {
+		return debug;
+	}
+
+	@Override
+	public void setDebug(int debug) {
+		this.debug = debug;
+	}
+
+	@Override
+	public boolean isProfilerEnabled() {
+		return profiler.enabled;
+	}
+
+	@Override
+	public void setProfilerEnabled(boolean enabled) {
+		profiler.enabled = enabled;
+	}
+
+	@Override
+	public String[] getPhaseStatistics() {
+		Phase[] phases = Phase.values();
+		String[] lines = new String[phases.length];
+		for (int i = 0; i < phases.length; i++) {
+			lines[i] = profiler.getStatistics(phases[i]);
+		}
+		return lines;
+	}
+
+	@Override
+	public double phasePercentile(String phase, float percent) {
+		for (Phase p : Phase.values()) {
+			if (p.label.equalsIgnoreCase(phase)) {
+				return profiler.getPercentile(p, percent) / 1e6;
+			}
+		}
+		throw new IllegalArgumentException(String.format("Unknown profiler phase %s", phase));
+	}
+
 	/**
 	 * @param args
 	 */
 	public static void main(String[] args) {
+		if (isHeadless(args)) {
+			// must be set before any AWT component initialization.
+			System.setProperty("java.awt.headless", "true");
+		}
 		Game game = new Game(args);
 		game.run();
 	}
@@ -0,0 +1,55 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame;
+
+/**
+ * JMX view of the {@link Game}: loop rates, objects, debug controls and the
+ * {@link fr.snapgames.game.singleclassgame.core.profiler.FrameProfiler} phases
+ * timings.
+ *
+ * @author Frédéric Delorme
+ */
+public interface GameMBean {
+
+	public int getObjectCount();
+
+	public int getFramesPerSecond();
+
+	public int getUpdatesPerSecond();
+
+	public String getLoopMode();
+
+	public boolean isPause();
+
+	public void setPause(boolean pause);
+
+	public int getDebug();
+
+	public void setDebug(int debug);
+
+	public boolean isProfilerEnabled();
+
+	public void setProfilerEnabled(boolean enabled);
+
+	/**
+	 * One summary line per profiled phase (p50/p95/p99/max in milliseconds).
+	 */
+	public String[] getPhaseStatistics();
+
+	/**
+	 * The <code>percent</code> percentile of the <code>phase</code> durations, in
+	 * milliseconds.
+	 *
+	 * @param phase   the phase name (input, update, cull, narrow, render,
+	 *                present, sleep).
+	 * @param percent the percentile, from 0 to 100.
+	 */
+	public double phasePercentile(String phase, float percent);
+}
@@ -0,0 +1,476 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.audio;
+
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.SourceDataLine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A software audio mixer playing {@link SoundBuffer}s into one
+ * {@link SourceDataLine} (16 bits stereo at 44100 Hz):
+ * <ul>
+ * <li>the game thread sends commands (play, stop) through a lock-free
+ * {@link CommandQueue}, and never waits nor touches the line,
+ * <li>the <code>mixer</code> thread applies the commands, then mixes the active
+ * voices (volume, pan and pitch, with a linear interpolation) chunk by chunk,
+ * and writes each chunk to the line, which paces the thread,
+ * <li>the music of the {@link MusicPlayer}, if any, is added to the mix,
+ * <li>a voice is taken following the {@link VoicePool} rules: a sound playing
+ * on all its <code>polyphony</code> voices steals its own lowest priority then
+ * oldest voice, otherwise a free voice is used, otherwise any lower or equal
+ * priority voice is stolen.
+ * </ul>
+ * <p>
+ * The mix can also be rendered into a byte array without any audio device with
+ * {@link AudioMixer#render(byte[], int)}. When no line can be opened, the
+ * mixer thread keeps consuming the commands and mixing, paced by the clock.
+ *
+ * @author Frédéric Delorme
+ */
+public class AudioMixer implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(AudioMixer.class);
+
+	public static final float SAMPLE_RATE = 44100.0f;
+	public static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, 2, true, false);
+
+	/**
+	 * Command types.
+	 */
+	private static final int PLAY = 0;
+	private static final int STOP = 1;
+	private static final int STOP_ALL = 2;
+
+	/**
+	 * A command sent to the mixer thread.
+	 */
+	private static class Command {
+		int type;
+		SoundBuffer buffer;
+		float volume;
+		float pan;
+		float pitch;
+		int priority;
+		boolean loop;
+	}
+
+	/**
+	 * A mixer voice, playing a buffer from <code>position</code> (in source
+	 * frames) by <code>step</code> frames per output frame.
+	 */
+	private static class Voice {
+		SoundBuffer buffer;
+		double position;
+		double step;
+		float left, right;
+		int priority;
+		long start;
+		boolean loop;
+	}
+
+	private final Voice[] voices;
+	private final CommandQueue<Command> commands;
+
+	/**
+	 * Mix accumulator and output chunk.
+	 */
+	private final int chunkFrames;
+	private final float[] mix;
+	private final byte[] chunk;
+
+	/**
+	 * Master volume, from 0 to 1.
+	 */
+	public volatile float masterVolume = 1.0f;
+
+	/**
+	 * Streamed music, mixed over the voices.
+	 */
+	private volatile MusicPlayer music;
+
+	private SourceDataLine line;
+	private Thread thread;
+	private volatile boolean running = false;
+
+	/**
+	 * Number of mixed frames, used as the voices age.
+	 */
+	private long frame = 0;
+
+	/**
+	 * Counters.
+	 */
+	private volatile long played = 0;
+	private volatile long dropped = 0;
+	private volatile long rejected = 0;
+	private volatile long stolen = 0;
+	private volatile int activeVoices = 0;
+
+	/**
+	 * Create a mixer.
+	 *
+	 * @param voices      the maximum number of voices played at once.
+	 * @param queueSize   the capacity of the command queue.
+	 * @param chunkFrames the number of frames mixed at once.
+	 */
+	public AudioMixer(int voices, int queueSize, int chunkFrames) {
+		this.voices = new Voice[Math.max(1, voices)];
+		for (int i = 0; i < this.voices.length; i++) {
+			this.voices[i] = new Voice();
+		}
+		this.commands = new CommandQueue<>(queueSize, new CommandQueue.Factory<Command>() {
+			@Override
+			public Command create() {
+				return new Command();
+			}
+		});
+		this.chunkFrames = Math.max(64, chunkFrames);
+		this.mix = new float[this.chunkFrames * 2];
+		this.chunk = new byte[this.chunkFrames * 4];
+	}
+
+	/**
+	 * Open the line and start the mixer thread.
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		try {
+			line = AudioSystem.getSourceDataLine(FORMAT);
+			line.open(FORMAT, chunk.length * 4);
+			line.start();
+			logger.info("Audio mixer started with {} voices and {} frames chunks", voices.length, chunkFrames);
+		} catch (Exception e) {
+			line = null;
+			logger.error("unable to open the audio line, the mix is not played: {}", e.getMessage());
+		}
+		running = true;
+		thread = new Thread(this, "mixer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stop the mixer thread and close the line.
+	 */
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		try {
+			thread.join(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (line != null) {
+			line.stop();
+			line.close();
+			line = null;
+		}
+	}
+
+	@Override
+	public void run() {
+		long chunkNs = (long) (chunkFrames * 1e9 / SAMPLE_RATE);
+		long next = System.nanoTime();
+		while (running) {
+			int length = render(chunk, chunkFrames);
+			if (line != null) {
+				line.write(chunk, 0, length);
+			} else {
+				next += chunkNs;
+				long wait = next - System.nanoTime();
+				if (wait > 0) {
+					try {
+						Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+					} catch (InterruptedException e) {
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Request to play the <code>buffer</code>.
+	 *
+	 * @param buffer   the sound to be played.
+	 * @param volume   the volume, from 0 to 1.
+	 * @param pan      the pan, from -1 (left) to 1 (right).
+	 * @param pitch    the playback speed factor (1 for the original pitch).
+	 * @param priority the priority for voice stealing.
+	 * @param loop     true to play the sound continuously.
+	 * @return false if the command queue is full.
+	 */
+	public boolean play(SoundBuffer buffer, float volume, float pan, float pitch, int priority, boolean loop) {
+		long slot = commands.claim();
+		if (slot < 0) {
+			dropped++;
+			return false;
+		}
+		Command c = commands.get(slot);
+		c.type = PLAY;
+		c.buffer = buffer;
+		c.volume = volume;
+		c.pan = pan;
+		c.pitch = pitch;
+		c.priority = priority;
+		c.loop = loop;
+		commands.publish(slot);
+		return true;
+	}
+
+	/**
+	 * Request to stop all the voices playing the <code>buffer</code>.
+	 *
+	 * @param buffer
+	 * @return false if the command queue is full.
+	 */
+	public boolean stop(SoundBuffer buffer) {
+		return send(STOP, buffer);
+	}
+
+	/**
+	 * Request to stop all the voices.
+	 *
+	 * @return false if the command queue is full.
+	 */
+	public boolean stopAll() {
+		return send(STOP_ALL, null);
+	}
+
+	private boolean send(int type, SoundBuffer buffer) {
+		long slot = commands.claim();
+		if (slot < 0) {
+			dropped++;
+			return false;
+		}
+		Command c = commands.get(slot);
+		c.type = type;
+		c.buffer = buffer;
+		commands.publish(slot);
+		return true;
+	}
+
+	/**
+	 * Apply the pending commands, then mix the next <code>frames</code> frames
+	 * into <code>out</code> (16 bits little endian stereo). Must be called from
+	 * one thread only: the mixer thread once started.
+	 *
+	 * @param out    the output buffer, of at least <code>frames * 4</code> bytes.
+	 * @param frames the number of frames to be rendered.
+	 * @return the number of bytes written.
+	 */
+	public int render(byte[] out, int frames) {
+		int done = 0;
+		while (done < frames) {
+			int count = Math.min(chunkFrames, frames - done);
+			processCommands();
+			Arrays.fill(mix, 0, count * 2, 0.0f);
+			int active = 0;
+			for (Voice v : voices) {
+				if (v.buffer != null) {
+					mixVoice(v, count);
+					active++;
+				}
+			}
+			activeVoices = active;
+			MusicPlayer m = music;
+			if (m != null) {
+				m.mix(mix, count);
+			}
+			float master = masterVolume;
+			for (int i = 0, o = done * 4; i < count * 2; i++, o += 2) {
+				int s = (int) (mix[i] * master);
+				s = (s > 32767 ? 32767 : (s < -32768 ? -32768 : s));
+				out[o] = (byte) s;
+				out[o + 1] = (byte) (s >> 8);
+			}
+			frame += count;
+			done += count;
+		}
+		return frames * 4;
+	}
+
+	private void processCommands() {
+		Command c;
+		while ((c = commands.poll()) != null) {
+			switch (c.type) {
+			case PLAY:
+				start(c);
+				break;
+			case STOP:
+				for (Voice v : voices) {
+					if (v.buffer == c.buffer) {
+						v.buffer = null;
+					}
+				}
+				break;
+			case STOP_ALL:
+				for (Voice v : voices) {
+					v.buffer = null;
+				}
+				break;
+			}
+			c.buffer = null;
+			commands.release();
+		}
+	}
+
+	private void start(Command c) {
+		Voice v = acquire(c.buffer, c.priority);
+		if (v == null) {
+			rejected++;
+			return;
+		}
+		if (v.buffer != null) {
+			stolen++;
+		}
+		float volume = Math.max(0.0f, Math.min(1.0f, c.volume));
+		float pan = Math.max(-1.0f, Math.min(1.0f, c.pan));
+		v.buffer = c.buffer;
+		v.position = 0;
+		v.step = Math.max(0.0f, c.pitch) * c.buffer.sampleRate / SAMPLE_RATE;
+		v.left = volume * Math.min(1.0f, 1.0f - pan);
+		v.right = volume * Math.min(1.0f, 1.0f + pan);
+		v.priority = c.priority;
+		v.loop = c.loop;
+		v.start = frame;
+		played++;
+	}
+
+	/**
+	 * Find the voice to play the <code>buffer</code> with
+	 * <code>priority</code>.
+	 */
+	private Voice acquire(SoundBuffer buffer, int priority) {
+		Voice free = null, own = null, any = null;
+		int playing = 0;
+		for (Voice v : voices) {
+			if (v.buffer == null) {
+				if (free == null) {
+					free = v;
+				}
+				continue;
+			}
+			if (v.priority <= priority) {
+				if (v.buffer == buffer && (own == null || older(v, own))) {
+					own = v;
+				}
+				if (any == null || older(v, any)) {
+					any = v;
+				}
+			}
+			if (v.buffer == buffer) {
+				playing++;
+			}
+		}
+		if (playing >= buffer.polyphony) {
+			return own;
+		}
+		return (free != null ? free : any);
+	}
+
+	/**
+	 * True if <code>v</code> must be stolen before <code>other</code>.
+	 */
+	private static boolean older(Voice v, Voice other) {
+		return v.priority < other.priority || (v.priority == other.priority && v.start < other.start);
+	}
+
+	/**
+	 * Mix <code>count</code> frames of the voice into the accumulator.
+	 */
+	private void mixVoice(Voice v, int count) {
+		SoundBuffer b = v.buffer;
+		short[] s = b.samples;
+		int frames = b.frames;
+		double position = v.position;
+		for (int i = 0; i < count * 2; i += 2) {
+			int p = (int) position;
+			if (p >= frames) {
+				if (!v.loop || frames == 0) {
+					v.buffer = null;
+					return;
+				}
+				position -= frames * (p / frames);
+				p = (int) position;
+			}
+			int q = (p + 1 < frames ? p + 1 : (v.loop ? 0 : p));
+			float f = (float) (position - p);
+			if (b.channels == 1) {
+				float sample = s[p] + (s[q] - s[p]) * f;
+				mix[i] += sample * v.left;
+				mix[i + 1] += sample * v.right;
+			} else {
+				int l = p * 2, r = q * 2;
+				mix[i] += (s[l] + (s[r] - s[l]) * f) * v.left;
+				mix[i + 1] += (s[l + 1] + (s[r + 1] - s[l + 1]) * f) * v.right;
+			}
+			position += v.step;
+		}
+		v.position = position;
+	}
+
+	/**
+	 * Set the music player to be mixed over the voices.
+	 *
+	 * @param music
+	 */
+	public void setMusic(MusicPlayer music) {
+		this.music = music;
+	}
+
+	public long getPlayed() {
+		return played;
+	}
+
+	public long getDropped() {
+		return dropped;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public long getStolen() {
+		return stolen;
+	}
+
+	public int getActiveVoices() {
+		return activeVoices;
+	}
+
+	public int getPendingCommands() {
+		return commands.size();
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * True if the mix is played on an audio line.
+	 *
+	 * @return
+	 */
+	public boolean isPlaying() {
+		return line != null;
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * A bounded lock-free queue of preallocated commands, written by any thread
+ * and read by one consumer thread (the {@link AudioMixer} one):
+ * <ul>
+ * <li>a producer claims a slot with {@link CommandQueue#claim()}, fills the
+ * command given by {@link CommandQueue#get(long)}, then publishes it with
+ * {@link CommandQueue#publish(long)},
+ * <li>the consumer reads the next published command with
+ * {@link CommandQueue#poll()}, then gives its slot back with
+ * {@link CommandQueue#release()}.
+ * </ul>
+ * <p>
+ * Each slot has a sequence number telling if it is free, published or being
+ * read, so that producers only compete on the tail counter, and neither side
+ * ever waits or allocates. When the queue is full, <code>claim()</code> fails
+ * at once.
+ *
+ * @author Frédéric Delorme
+ *
+ * @param <T> the command type.
+ */
+public class CommandQueue<T> {
+
+	/**
+	 * Factory of the preallocated commands.
+	 */
+	public interface Factory<T> {
+		T create();
+	}
+
+	private final Object[] commands;
+	private final AtomicLongArray sequences;
+	private final int mask;
+
+	private final AtomicLong tail = new AtomicLong(0);
+	/**
+	 * Next slot to be read, owned by the consumer.
+	 */
+	private long head = 0;
+
+	/**
+	 * Create a queue of at least <code>capacity</code> commands (rounded to the
+	 * next power of 2).
+	 *
+	 * @param capacity the minimum number of commands.
+	 * @param factory  the commands factory.
+	 */
+	public CommandQueue(int capacity, Factory<T> factory) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		commands = new Object[size];
+		sequences = new AtomicLongArray(size);
+		mask = size - 1;
+		for (int i = 0; i < size; i++) {
+			commands[i] = factory.create();
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Claim a slot to write a command into.
+	 *
+	 * @return the slot, or -1 if the queue is full.
+	 */
+	public long claim() {
+		while (true) {
+			long t = tail.get();
+			long sequence = sequences.get((int) (t & mask));
+			if (sequence < t) {
+				return -1;
+			}
+			if (sequence == t && tail.compareAndSet(t, t + 1)) {
+				return t;
+			}
+		}
+	}
+
+	/**
+	 * The command of a claimed slot.
+	 *
+	 * @param slot the value returned by {@link CommandQueue#claim()}.
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(long slot) {
+		return (T) commands[(int) (slot & mask)];
+	}
+
+	/**
+	 * Publish the command written into the claimed <code>slot</code>.
+	 *
+	 * @param slot the value returned by {@link CommandQueue#claim()}.
+	 */
+	public void publish(long slot) {
+		sequences.set((int) (slot & mask), slot + 1);
+	}
+
+	/**
+	 * Return the next published command (consumer thread only). Its slot must be
+	 * given back with {@link CommandQueue#release()} once the command is
+	 * processed.
+	 *
+	 * @return the command, or null if none is published.
+	 */
+	@SuppressWarnings("unchecked")
+	public T poll() {
+		int index = (int) (head & mask);
+		return (sequences.get(index) == head + 1 ? (T) commands[index] : null);
+	}
+
+	/**
+	 * Give back the slot of the command returned by the last
+	 * {@link CommandQueue#poll()}.
+	 */
+	public void release() {
+		sequences.lazySet((int) (head & mask), head + commands.length);
+		head++;
+	}
+
+	/**
+	 * Number of commands waiting (approximate).
+	 *
+	 * @return
+	 */
+	public int size() {
+		return (int) Math.max(0, tail.get() - head);
+	}
+
+	/**
+	 * Number of commands of the queue.
+	 *
+	 * @return
+	 */
+	public int capacity() {
+		return commands.length;
+	}
+}
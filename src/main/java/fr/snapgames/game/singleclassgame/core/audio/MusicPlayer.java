@@ -0,0 +1,308 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.audio;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * The music player streams music tracks into the {@link AudioMixer} without
+ * decoding them fully into memory:
+ * <ul>
+ * <li>the <code>music</code> thread opens the requested tracks and decodes
+ * them chunk by chunk into the ring buffer of their {@link MusicStream},
+ * <li>the mixer thread adds the decoded frames to its mix through
+ * {@link MusicPlayer#mix(float[], int)},
+ * <li>a new track fades in while the previous one fades out (crossfade), a
+ * track can loop, and the music can be stopped with a fade out.
+ * </ul>
+ * <p>
+ * At most two tracks are decoded at once (during a crossfade), so the memory
+ * used by the music is bounded to 2 rings of <code>bufferFrames</code> stereo
+ * frames, whatever the tracks length (about 176 KB per second of buffer).
+ *
+ * @author Frédéric Delorme
+ */
+public class MusicPlayer implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(MusicPlayer.class);
+
+	/**
+	 * A play or stop request, from the game thread to the music thread.
+	 */
+	private static class Request {
+		final String path;
+		final boolean loop;
+		final int fadeFrames;
+
+		Request(String path, boolean loop, int fadeFrames) {
+			this.path = path;
+			this.loop = loop;
+			this.fadeFrames = fadeFrames;
+		}
+	}
+
+	/**
+	 * A track change, from the music thread to the mixer thread (a null
+	 * <code>stream</code> stops the music).
+	 */
+	private static class Transition {
+		final MusicStream stream;
+		final int fadeFrames;
+
+		Transition(MusicStream stream, int fadeFrames) {
+			this.stream = stream;
+			this.fadeFrames = fadeFrames;
+		}
+	}
+
+	/**
+	 * Music volume, from 0 to 1.
+	 */
+	public volatile float volume = 1.0f;
+
+	private final int bufferFrames;
+
+	private final AtomicReference<Request> request = new AtomicReference<>();
+	private final AtomicReference<Transition> transition = new AtomicReference<>();
+
+	/**
+	 * Streams being decoded (music thread only).
+	 */
+	private final List<MusicStream> streams = new ArrayList<>();
+
+	/**
+	 * Playing and fading out tracks with their gain ramp (mixer thread only).
+	 */
+	private MusicStream current, outgoing;
+	private float currentGain, currentStep;
+	private float outgoingGain, outgoingStep;
+
+	private volatile String playing = null;
+	private volatile long underruns = 0;
+
+	private Thread thread;
+	private volatile boolean running = false;
+
+	/**
+	 * Create a music player decoding <code>bufferMs</code> milliseconds ahead.
+	 *
+	 * @param bufferMs the duration of a track ring buffer, in milliseconds.
+	 */
+	public MusicPlayer(int bufferMs) {
+		this.bufferFrames = (int) (AudioMixer.SAMPLE_RATE * Math.max(100, bufferMs) / 1000);
+	}
+
+	/**
+	 * Start the music thread.
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		thread = new Thread(this, "music");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stop the music thread and close the tracks.
+	 */
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		try {
+			thread.join(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Play the music file at <code>path</code>, crossfading from the current
+	 * track in <code>fadeMs</code> milliseconds.
+	 *
+	 * @param path   the path to the music file (WAV, MP3 or OGG).
+	 * @param loop   true to play the track continuously.
+	 * @param fadeMs the crossfade duration, in milliseconds.
+	 */
+	public void play(String path, boolean loop, int fadeMs) {
+		request.set(new Request(path, loop, toFrames(fadeMs)));
+	}
+
+	/**
+	 * Stop the music with a fade out of <code>fadeMs</code> milliseconds.
+	 *
+	 * @param fadeMs the fade out duration, in milliseconds.
+	 */
+	public void fadeOut(int fadeMs) {
+		request.set(new Request(null, false, toFrames(fadeMs)));
+	}
+
+	private static int toFrames(int ms) {
+		return (int) (AudioMixer.SAMPLE_RATE * Math.max(0, ms) / 1000);
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			Request r = request.getAndSet(null);
+			if (r != null) {
+				open(r);
+			}
+			boolean decoded = false;
+			for (Iterator<MusicStream> it = streams.iterator(); it.hasNext();) {
+				MusicStream s = it.next();
+				if (s.released) {
+					s.close();
+					it.remove();
+				} else if (!s.isFull()) {
+					decoded |= (s.fill() > 0);
+				}
+			}
+			if (!decoded) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}
+		for (MusicStream s : streams) {
+			s.close();
+		}
+		streams.clear();
+	}
+
+	/**
+	 * Open and prefill the requested track, then hand it over to the mixer
+	 * thread (music thread).
+	 */
+	private void open(Request r) {
+		MusicStream stream = null;
+		if (r.path != null) {
+			stream = new MusicStream(r.path, r.loop, bufferFrames);
+			if (!stream.open()) {
+				return;
+			}
+			stream.fill();
+			streams.add(stream);
+			logger.debug("Play music {} (loop: {})", r.path, r.loop);
+		}
+		Transition previous = transition.getAndSet(new Transition(stream, r.fadeFrames));
+		// a track replaced before being played.
+		if (previous != null && previous.stream != null) {
+			previous.stream.released = true;
+		}
+	}
+
+	/**
+	 * Add the music to the <code>mix</code> (mixer thread).
+	 *
+	 * @param mix    the interleaved stereo mix.
+	 * @param frames the number of frames to be mixed.
+	 */
+	public void mix(float[] mix, int frames) {
+		Transition t = transition.getAndSet(null);
+		if (t != null) {
+			change(t);
+		}
+		float v = volume;
+		if (current != null) {
+			int count = mixRamp(current, mix, frames, currentGain, currentStep, v);
+			currentGain = Math.min(1.0f, currentGain + currentStep * frames);
+			if (currentGain >= 1.0f) {
+				currentStep = 0;
+			}
+			if (current.isFinished()) {
+				current.released = true;
+				current = null;
+				playing = null;
+			} else if (count < frames) {
+				underruns++;
+			}
+		}
+		if (outgoing != null) {
+			mixRamp(outgoing, mix, frames, outgoingGain, outgoingStep, v);
+			outgoingGain += outgoingStep * frames;
+			if (outgoingGain <= 0.0f || outgoing.isFinished()) {
+				outgoing.released = true;
+				outgoing = null;
+			}
+		}
+	}
+
+	/**
+	 * Start the track of the transition, fading out the current one.
+	 */
+	private void change(Transition t) {
+		if (outgoing != null) {
+			outgoing.released = true;
+			outgoing = null;
+		}
+		if (current != null) {
+			if (t.fadeFrames > 0) {
+				outgoing = current;
+				outgoingGain = currentGain;
+				outgoingStep = -currentGain / t.fadeFrames;
+			} else {
+				current.released = true;
+			}
+		}
+		current = t.stream;
+		playing = (current != null ? current.path : null);
+		currentGain = (t.fadeFrames > 0 ? 0.0f : 1.0f);
+		currentStep = (currentGain < 1.0f ? 1.0f / t.fadeFrames : 0.0f);
+	}
+
+	/**
+	 * Mix <code>frames</code> frames of the stream with a gain ramp going from
+	 * <code>gain</code> by <code>step</code> per frame, clamped to [0,1].
+	 */
+	private static int mixRamp(MusicStream stream, float[] mix, int frames, float gain, float step, float volume) {
+		if (step == 0) {
+			return stream.mix(mix, 0, frames, gain * volume, 0);
+		}
+		float target = (step > 0 ? 1.0f : 0.0f);
+		int ramp = Math.min(frames, (int) Math.ceil((target - gain) / step));
+		int count = stream.mix(mix, 0, ramp, gain * volume, step * volume);
+		if (count == ramp && ramp < frames && target > 0) {
+			count += stream.mix(mix, ramp, frames - ramp, volume, 0);
+		}
+		return count;
+	}
+
+	/**
+	 * Path of the track being played, or null.
+	 *
+	 * @return
+	 */
+	public String getPlaying() {
+		return playing;
+	}
+
+	/**
+	 * Number of mixed chunks where the decoder was late.
+	 *
+	 * @return
+	 */
+	public long getUnderruns() {
+		return underruns;
+	}
+}
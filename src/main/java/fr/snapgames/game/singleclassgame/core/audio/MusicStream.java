@@ -0,0 +1,273 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.audio;
+
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * One music track decoded chunk by chunk into a ring buffer, for the
+ * {@link MusicPlayer}:
+ * <ul>
+ * <li>the decoder thread calls {@link MusicStream#fill()} to decode the file
+ * (WAV, MP3 or OGG through the installed Java Sound providers) as long as the
+ * ring has free space, converting it to stereo at the
+ * {@link AudioMixer#SAMPLE_RATE} with a linear interpolation,
+ * <li>the mixer thread reads the decoded frames with
+ * {@link MusicStream#mix(float[], int, int, float, float)},
+ * <li>when looping, the file is opened again at its end.
+ * </ul>
+ * <p>
+ * The ring is written by one thread and read by another one, synchronized by
+ * the <code>written</code> and <code>read</code> frame counters only. Its size
+ * bounds the memory used by the track, whatever its length.
+ *
+ * @author Frédéric Delorme
+ */
+public class MusicStream {
+
+	private static final Logger logger = LoggerFactory.getLogger(MusicStream.class);
+
+	/**
+	 * Source frames decoded at once.
+	 */
+	private static final int CHUNK_FRAMES = 2048;
+
+	public final String path;
+	public final boolean loop;
+
+	/**
+	 * Stereo frames ring, and the frame counters.
+	 */
+	private final short[] ring;
+	private final int capacity;
+	private volatile long written = 0;
+	private volatile long read = 0;
+
+	/**
+	 * True when the whole file has been decoded (never when looping).
+	 */
+	private volatile boolean ended = false;
+
+	/**
+	 * Set by the mixer thread when the stream is not played anymore.
+	 */
+	volatile boolean released = false;
+
+	/**
+	 * Decoder state: source stream, undecoded bytes, and the source frames
+	 * (stereo) being resampled from the <code>position</code>.
+	 */
+	private AudioInputStream in;
+	private AudioFormat format;
+	private byte[] bytes = new byte[0];
+	private int pending = 0;
+	private final short[] source = new short[(CHUNK_FRAMES + 1) * 2];
+	private int sourceFrames = 0;
+	private double position = 0;
+	private double step = 1.0;
+
+	/**
+	 * Create the stream of the music file at <code>path</code>, keeping at
+	 * most <code>frames</code> decoded frames.
+	 *
+	 * @param path   the path to the music file.
+	 * @param loop   true to play the music continuously.
+	 * @param frames the ring capacity, in frames.
+	 */
+	public MusicStream(String path, boolean loop, int frames) {
+		this.path = path;
+		this.loop = loop;
+		this.capacity = Math.max(CHUNK_FRAMES, frames);
+		this.ring = new short[this.capacity * 2];
+	}
+
+	/**
+	 * Open the file (decoder thread).
+	 *
+	 * @return false if the file can not be read.
+	 */
+	boolean open() {
+		try {
+			in = SoundClip.decode(path);
+		} catch (IOException | UnsupportedAudioFileException | IllegalArgumentException e) {
+			logger.error("unable to read the music file {}: {}", path, e.getMessage());
+			in = null;
+		}
+		if (in == null) {
+			ended = true;
+			return false;
+		}
+		format = in.getFormat();
+		step = format.getSampleRate() / AudioMixer.SAMPLE_RATE;
+		int frameSize = format.getChannels() * 2;
+		if (bytes.length != CHUNK_FRAMES * frameSize) {
+			bytes = new byte[CHUNK_FRAMES * frameSize];
+		}
+		pending = 0;
+		return true;
+	}
+
+	/**
+	 * Decode as many frames as the ring can hold (decoder thread).
+	 *
+	 * @return the number of frames decoded.
+	 */
+	int fill() {
+		if (in == null) {
+			return 0;
+		}
+		int count = 0;
+		long w = written;
+		long free = capacity - (w - read);
+		while (free > 0) {
+			if (position + 1 >= sourceFrames) {
+				if (!decode()) {
+					break;
+				}
+				continue;
+			}
+			int p = (int) position;
+			float f = (float) (position - p);
+			int r = (int) (w % capacity) * 2;
+			ring[r] = (short) (source[p * 2] + (source[p * 2 + 2] - source[p * 2]) * f);
+			ring[r + 1] = (short) (source[p * 2 + 1] + (source[p * 2 + 3] - source[p * 2 + 1]) * f);
+			position += step;
+			w++;
+			free--;
+			count++;
+		}
+		written = w;
+		return count;
+	}
+
+	/**
+	 * Decode the next source frames, keeping the last decoded frame to
+	 * interpolate from.
+	 *
+	 * @return false if nothing more can be decoded.
+	 */
+	private boolean decode() {
+		if (in == null) {
+			return false;
+		}
+		if (sourceFrames > 0) {
+			source[0] = source[(sourceFrames - 1) * 2];
+			source[1] = source[(sourceFrames - 1) * 2 + 1];
+			position -= sourceFrames - 1;
+			sourceFrames = 1;
+		}
+		int channels = format.getChannels();
+		int frameSize = channels * 2;
+		int length = -1;
+		try {
+			length = in.read(bytes, pending, bytes.length - pending);
+		} catch (IOException e) {
+			logger.error("unable to decode the music file {}: {}", path, e.getMessage());
+		}
+		if (length <= 0) {
+			close();
+			if (loop && open()) {
+				return true;
+			}
+			ended = true;
+			return false;
+		}
+		length += pending;
+		int frames = Math.min(CHUNK_FRAMES, length / frameSize);
+		boolean bigEndian = format.isBigEndian();
+		for (int f = 0; f < frames; f++) {
+			int o = (sourceFrames + f) * 2;
+			for (int c = 0; c < 2; c++) {
+				int i = f * frameSize + Math.min(c, channels - 1) * 2;
+				source[o + c] = (short) (bigEndian ? (bytes[i] << 8) | (bytes[i + 1] & 0xFF)
+						: (bytes[i + 1] << 8) | (bytes[i] & 0xFF));
+			}
+		}
+		sourceFrames += frames;
+		pending = length - frames * frameSize;
+		System.arraycopy(bytes, frames * frameSize, bytes, 0, pending);
+		return true;
+	}
+
+	/**
+	 * Add up to <code>frames</code> decoded frames into the <code>mix</code>
+	 * from the <code>offset</code> frame (mixer thread), with a gain going
+	 * linearly from <code>gain</code> by <code>gainStep</code> per frame.
+	 *
+	 * @param mix      the interleaved stereo mix.
+	 * @param offset   the first frame of the mix to be written.
+	 * @param frames   the number of frames to be mixed.
+	 * @param gain     the gain of the first frame.
+	 * @param gainStep the gain increment per frame.
+	 * @return the number of frames mixed, lower than <code>frames</code> if the
+	 *         decoder is late or the track is finished.
+	 */
+	int mix(float[] mix, int offset, int frames, float gain, float gainStep) {
+		long r = read;
+		int count = (int) Math.min(frames, written - r);
+		for (int i = offset * 2, e = (offset + count) * 2; i < e; i += 2, r++) {
+			int o = (int) (r % capacity) * 2;
+			mix[i] += ring[o] * gain;
+			mix[i + 1] += ring[o + 1] * gain;
+			gain += gainStep;
+		}
+		read = r;
+		return count;
+	}
+
+	/**
+	 * True when the track is finished and all its frames have been played.
+	 *
+	 * @return
+	 */
+	public boolean isFinished() {
+		return ended && read == written;
+	}
+
+	/**
+	 * True if the ring is full.
+	 *
+	 * @return
+	 */
+	boolean isFull() {
+		return written - read >= capacity;
+	}
+
+	/**
+	 * Number of decoded frames not yet played.
+	 *
+	 * @return
+	 */
+	public int getBufferedFrames() {
+		return (int) (written - read);
+	}
+
+	/**
+	 * Close the decoded file (decoder thread).
+	 */
+	void close() {
+		if (in != null) {
+			try {
+				in.close();
+			} catch (IOException e) {
+				logger.error("unable to close the music file {}", path);
+			}
+			in = null;
+		}
+	}
+}
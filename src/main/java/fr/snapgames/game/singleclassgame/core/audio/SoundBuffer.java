@@ -0,0 +1,130 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.audio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A sound decoded once into 16 bits PCM samples, to be played by the
+ * {@link AudioMixer}:
+ * <ul>
+ * <li><code>samples</code> holds <code>frames</code> frames of
+ * <code>channels</code> interleaved samples (1 for mono, 2 for stereo), at the
+ * <code>sampleRate</code> of the file,
+ * <li><code>polyphony</code> is the maximum number of voices playing the sound
+ * at once, and <code>priority</code> its default priority for voice stealing.
+ * </ul>
+ *
+ * @author Frédéric Delorme
+ */
+public class SoundBuffer {
+
+	private static final Logger logger = LoggerFactory.getLogger(SoundBuffer.class);
+
+	public final String code;
+	public final short[] samples;
+	public final int channels;
+	public final int frames;
+	public final float sampleRate;
+
+	public final int polyphony;
+	public final int priority;
+
+	/**
+	 * Create a sound from already decoded samples.
+	 *
+	 * @param code       the code of the sound.
+	 * @param samples    the interleaved samples.
+	 * @param channels   the number of channels (1 or 2).
+	 * @param sampleRate the sample rate, in Hz.
+	 * @param polyphony  the maximum number of voices.
+	 * @param priority   the default priority.
+	 */
+	public SoundBuffer(String code, short[] samples, int channels, float sampleRate, int polyphony, int priority) {
+		this.code = code;
+		this.samples = samples;
+		this.channels = channels;
+		this.frames = samples.length / channels;
+		this.sampleRate = sampleRate;
+		this.polyphony = Math.max(1, polyphony);
+		this.priority = priority;
+	}
+
+	/**
+	 * Load and decode the sound file at <code>path</code>.
+	 *
+	 * @param code      the code of the sound.
+	 * @param path      the path to the sound file.
+	 * @param polyphony the maximum number of voices.
+	 * @param priority  the default priority.
+	 * @return the sound, or null if the file can not be read.
+	 */
+	public static SoundBuffer load(String code, String path, int polyphony, int priority) {
+		try {
+			AudioInputStream ais = SoundClip.decode(path);
+			if (ais == null) {
+				logger.error("unable to read the sound file {}", path);
+				return null;
+			}
+			AudioFormat format = ais.getFormat();
+			int channels = format.getChannels();
+			byte[] data = read(ais);
+			int frames = data.length / (channels * 2);
+			// keep the first 2 channels only.
+			int kept = Math.min(2, channels);
+			short[] samples = new short[frames * kept];
+			for (int f = 0; f < frames; f++) {
+				for (int c = 0; c < kept; c++) {
+					int i = (f * channels + c) * 2;
+					samples[f * kept + c] = (short) (format.isBigEndian() ? (data[i] << 8) | (data[i + 1] & 0xFF)
+							: (data[i + 1] << 8) | (data[i] & 0xFF));
+				}
+			}
+			logger.debug("Sound {} decoded: {} frames, {} channel(s) at {} Hz", code, frames, kept,
+					format.getSampleRate());
+			return new SoundBuffer(code, samples, kept, format.getSampleRate(), polyphony, priority);
+		} catch (IOException | UnsupportedAudioFileException | IllegalArgumentException e) {
+			logger.error("unable to decode the sound file {}", path, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Read all the bytes of the stream, and close it.
+	 */
+	static byte[] read(AudioInputStream ais) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = ais.read(buffer)) > 0) {
+			out.write(buffer, 0, read);
+		}
+		ais.close();
+		return out.toByteArray();
+	}
+
+	/**
+	 * Duration of the sound, in seconds.
+	 *
+	 * @return
+	 */
+	public float getDuration() {
+		return frames / sampleRate;
+	}
+}
@@ -11,6 +11,7 @@
 package fr.snapgames.game.singleclassgame.core.audio;
 
 import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 
 import javax.sound.sampled.AudioFormat;
@@ -18,12 +19,18 @@ import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.Clip;
 import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Class to play and manage a sound clip from file.
+ * <p>
+ * A clip is one voice of a {@link VoicePool}: starting it never waits for the
+ * line, and its busy state is computed from its start time and duration,
+ * without querying the line.
  * 
  * @author Frédéric Delorme
  *
@@ -44,6 +51,19 @@ public class SoundClip {
 	 */
 	private FloatControl panControl;
 
+	/**
+	 * Start time (System.nanoTime()) and duration in nanoseconds of the last
+	 * play.
+	 */
+	private long startTime = 0;
+	private long duration = 0;
+	private boolean looping = false;
+
+	/**
+	 * Priority of the sound being played, used for voice stealing.
+	 */
+	public int priority = 0;
+
 	/**
 	 * Initialize the sound clip ready to play from the file at <code>path</code>.
 	 * 
@@ -51,23 +71,14 @@ public class SoundClip {
 	 */
 	public SoundClip(String path) {
 		try {
-			InputStream audioSrc = SoundClip.class.getResourceAsStream("/"+path);
-			if (audioSrc == null) {
+			AudioInputStream dais = decode(path);
+			if (dais == null) {
 				logger.error("unable to read the sound file {}", path);
 
 			} else {
-				InputStream bufferedIn = new BufferedInputStream(audioSrc);
-				AudioInputStream ais = AudioSystem.getAudioInputStream(bufferedIn);
-				AudioFormat baseFormat = ais.getFormat();
-
-				AudioFormat decodeFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, baseFormat.getSampleRate(),
-						16, baseFormat.getChannels(), baseFormat.getChannels() * 2, baseFormat.getSampleRate(), false);
-				AudioInputStream dais = AudioSystem.getAudioInputStream(decodeFormat, ais);
 				clip = AudioSystem.getClip();
 				clip.open(dais);
-
-				gainControl = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-				//panControl = (FloatControl) clip.getControl(FloatControl.Type.PAN);
+				initControls();
 			}
 		} catch (Exception e) {
 			logger.error("unable to play the sound file {}", path, e);
@@ -76,49 +87,97 @@ public class SoundClip {
 	}
 
 	/**
-	 * Start playing the clip.
+	 * Initialize the sound clip ready to play the already decoded
+	 * <code>data</code>.
+	 * 
+	 * @param format the format of the data.
+	 * @param data   the PCM samples.
+	 * @param length the number of bytes to play from <code>data</code>.
+	 * @throws LineUnavailableException if no more clip can be opened.
 	 */
-	public void play() {
-		if (clip == null) {
-			return;
-		} else {
-			stop();
-			clip.setFramePosition(0);
-			while (!clip.isRunning()) {
-				clip.start();
-			}
+	public SoundClip(AudioFormat format, byte[] data, int length) throws LineUnavailableException {
+		clip = AudioSystem.getClip();
+		clip.open(format, data, 0, length);
+		initControls();
+	}
+
+	private void initControls() {
+		gainControl = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
+		// mono clips support PAN, stereo clips BALANCE.
+		if (clip.isControlSupported(FloatControl.Type.PAN)) {
+			panControl = (FloatControl) clip.getControl(FloatControl.Type.PAN);
+		} else if (clip.isControlSupported(FloatControl.Type.BALANCE)) {
+			panControl = (FloatControl) clip.getControl(FloatControl.Type.BALANCE);
 		}
+	}
 
+	/**
+	 * Open the sound file at <code>path</code> as a 16 bits signed PCM stream.
+	 * 
+	 * @param path Path to the sound file to be read.
+	 * @return the decoded stream, or null if the file does not exist.
+	 * @throws UnsupportedAudioFileException
+	 * @throws IOException
+	 */
+	public static AudioInputStream decode(String path) throws UnsupportedAudioFileException, IOException {
+		InputStream audioSrc = SoundClip.class.getResourceAsStream("/" + path);
+		if (audioSrc == null) {
+			return null;
+		}
+		InputStream bufferedIn = new BufferedInputStream(audioSrc);
+		AudioInputStream ais = AudioSystem.getAudioInputStream(bufferedIn);
+		AudioFormat baseFormat = ais.getFormat();
+
+		AudioFormat decodeFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, baseFormat.getSampleRate(), 16,
+				baseFormat.getChannels(), baseFormat.getChannels() * 2, baseFormat.getSampleRate(), false);
+		return AudioSystem.getAudioInputStream(decodeFormat, ais);
 	}
 
+	/**
+	 * Start playing the clip.
+	 */
+	public void play() {
+		play(0.0f, 1.0f);
+	}
+
+	/**
+	 * Start playing the clip from its beginning, with the <code>pan</code> and
+	 * <code>volume</code> settings. The clip is started without waiting for the
+	 * line to be running.
+	 * 
+	 * @param pan    the pan, from -1 (left) to 1 (right).
+	 * @param volume the volume, from 0 to 1.
+	 */
 	public void play(float pan, float volume) {
 		if (clip == null) {
 			return;
-		} else {
-			stop();
-			clip.setFramePosition(0);
-			while (!clip.isRunning()) {
-				clip.start();
-			}
 		}
+		stop();
+		clip.setFramePosition(0);
 		setPan(pan);
 		setVolume(volume);
+		clip.start();
+		looping = false;
+		startTime = System.nanoTime();
+		duration = clip.getMicrosecondLength() * 1000L;
 	}
 
 	/**
-	 * @param pan
+	 * @param pan the pan, from -1 (left) to 1 (right).
 	 */
 	public void setPan(float pan) {
-		panControl.setValue(pan);
+		if (panControl != null) {
+			panControl.setValue(Math.max(panControl.getMinimum(), Math.min(panControl.getMaximum(), pan)));
+		}
 	}
 
 	/**
 	 * @param volume
 	 */
 	public void setVolume(float volume) {
-		float min = gainControl.getMinimum() / 4;
-		if (volume != 1) {
-			gainControl.setValue(min * (1 - volume));
+		if (gainControl != null) {
+			float min = gainControl.getMinimum() / 4;
+			gainControl.setValue(min * (1 - Math.max(0.0f, Math.min(1.0f, volume))));
 		}
 	}
 
@@ -126,6 +185,8 @@ public class SoundClip {
 	 * Stop playing the clip.
 	 */
 	public void stop() {
+		looping = false;
+		duration = 0;
 		if (clip == null) {
 			return;
 		} else if (clip.isRunning()) {
@@ -137,20 +198,38 @@ public class SoundClip {
 	 * Loop the clip continuously
 	 */
 	public void loop() {
-		clip.loop(Clip.LOOP_CONTINUOUSLY);
-		while (!clip.isRunning()) {
-			clip.start();
+		if (clip == null) {
+			return;
 		}
+		clip.loop(Clip.LOOP_CONTINUOUSLY);
+		looping = true;
+		startTime = System.nanoTime();
 	}
 
 	public void close() {
-		stop();
-		clip.drain();
-		clip.close();
+		if (clip != null) {
+			stop();
+			clip.close();
+		}
 	}
 
+	/**
+	 * Return true if the clip is playing, according to its start time and its
+	 * duration.
+	 * 
+	 * @return
+	 */
 	public boolean isPlaying() {
-		return clip.isRunning();
+		return looping || (System.nanoTime() - startTime < duration);
+	}
+
+	/**
+	 * Start time of the last play, from System.nanoTime().
+	 * 
+	 * @return
+	 */
+	public long getStartTime() {
+		return startTime;
 	}
 
 }
@@ -10,20 +10,68 @@
  */
 package fr.snapgames.game.singleclassgame.core.audio;
 
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import fr.snapgames.game.singleclassgame.core.config.Configuration;
+import fr.snapgames.game.singleclassgame.core.entity.Camera;
+
 /**
  * This class is intend to manage and control Sound play and output.
+ * <p>
+ * By default (<code>audio.mixer=true</code>), sounds are decoded into
+ * {@link SoundBuffer}s and played by the software {@link AudioMixer}, with
+ * <code>audio.mixer.voices</code> voices mixed into a single line.
+ * <p>
+ * Otherwise, each sound of the bank is a {@link VoicePool} of
+ * <code>audio.polyphony</code> clips (see {@link VoicePool} for the voice
+ * stealing rules). Playing a sound never blocks the caller:
+ * <ul>
+ * <li>the play request is pushed into a bounded queue of
+ * <code>audio.queue.size</code> requests, and dropped if the queue is full,
+ * <li>the requests are consumed by the <code>sound</code> thread, which
+ * acquires a voice and starts it.
+ * </ul>
+ * Requests are preallocated and recycled, so that playing a sound does not
+ * allocate.
+ * <p>
+ * Positional sounds are played with {@link SoundControl#playAt(String, float, float)}
+ * relatively to the listener camera (see
+ * {@link SoundControl#setListener(Camera)}): the pan follows the horizontal
+ * position in the view, the volume decreases from
+ * <code>audio.spatial.near</code> to <code>audio.spatial.range</code> world
+ * units from the view center, and farther sounds are never started.
+ * <p>
+ * When <code>audio.coalesce</code> is set, the requests of the same sound are
+ * merged until the next {@link SoundControl#flush()} (called by the game at
+ * each update), and at least <code>audio.coalesce.window</code> milliseconds:
+ * <ul>
+ * <li>the merged requests are played once, at the volume of their summed
+ * energy (square root of the sum of the squared volumes, up to 1), at their
+ * volume weighted pan, and with the highest priority,
+ * <li>each sound is played at most <code>audio.rate.max</code> times per
+ * second (0 for no limit); the plays over the limit are dropped.
+ * </ul>
+ * <p>
+ * In headless mode (<code>game.headless</code>), the sound control is
+ * disabled: sounds are neither loaded nor played, and no clip nor audio line
+ * is ever opened.
+ * <p>
+ * Music is streamed by the {@link MusicPlayer}, through the software mixer (a
+ * mixer dedicated to the music when sounds are played with clips).
  * 
  * @author Frédéric Delorme.
  *
  */
-public class SoundControl {
+public class SoundControl implements SoundControlMBean {
 	private static final Logger logger = LoggerFactory.getLogger(SoundControl.class);
 	/**
 	 * Internal instance for the SoundControl system.
@@ -33,17 +81,131 @@ public class SoundControl {
 	private static final int MAX_SOUNDS_IN_STACK = 40;
 
 	/**
-	 * Internal play Stack
+	 * A sound play request.
+	 */
+	private static class PlayRequest {
+		VoicePool pool;
+		float volume;
+		float pan;
+		int priority;
+	}
+
+	/**
+	 * The coalescing state of a sound: the requests merged since
+	 * <code>windowStart</code>, and the rate limiter tokens.
+	 */
+	private static class SoundEvent {
+		final String code;
+		int count;
+		long windowStart;
+		float energy;
+		float volumeSum;
+		float panSum;
+		float pitch;
+		int priority;
+		float tokens;
+		long refillTime;
+
+		SoundEvent(String code, float tokens) {
+			this.code = code;
+			this.tokens = tokens;
+			this.refillTime = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Internal play queue, and the free requests to be filled.
 	 */
-	Stack<String> soundsStack = new Stack<String>();
+	private final BlockingQueue<PlayRequest> soundsQueue;
+	private final BlockingQueue<PlayRequest> freeRequests;
 	/**
 	 * Internal SoundBank.
 	 */
-	Map<String, SoundClip> soundBank = new ConcurrentHashMap<String, SoundClip>();
+	Map<String, VoicePool> soundBank = new ConcurrentHashMap<String, VoicePool>();
+
+	/**
+	 * The software mixer and its decoded sounds, when activated.
+	 */
+	private AudioMixer mixer;
+	Map<String, SoundBuffer> buffers = new ConcurrentHashMap<String, SoundBuffer>();
+
+	/**
+	 * The music player, and the mixer playing it when sounds are played with
+	 * clips.
+	 */
+	private MusicPlayer music;
+	private AudioMixer musicMixer;
+
+	/**
+	 * Coalescing state of the loaded sounds, and the sounds with merged
+	 * requests waiting for the next flush.
+	 */
+	private final Map<String, SoundEvent> events = new ConcurrentHashMap<String, SoundEvent>();
+	private final List<SoundEvent> pendingEvents = new ArrayList<>();
+	private boolean coalesce;
+	private long coalesceWindow;
+	private float rateMax;
+
+	/**
+	 * False in headless mode: loading and playing sounds do nothing.
+	 */
+	private volatile boolean enabled = true;
+
+	/**
+	 * Default number of voices per sound.
+	 */
+	private int polyphony;
+
+	/**
+	 * The camera hearing the positional sounds, and the attenuation distances.
+	 */
+	private Camera listener;
+	private float spatialNear;
+	private float spatialRange;
+
+	/**
+	 * Played, missing, dropped (queue full), rejected (no voice available),
+	 * stolen voices, culled (out of range), coalesced (merged into another
+	 * play) and limited (over the rate limit) counters.
+	 */
+	private volatile long played = 0;
+	private volatile long missing = 0;
+	private volatile long dropped = 0;
+	private volatile long rejected = 0;
+	private volatile long stolen = 0;
+	private volatile long culled = 0;
+	private volatile long coalesced = 0;
+	private volatile long limited = 0;
 
 	private SoundControl() {
-		soundsStack.setSize(MAX_SOUNDS_IN_STACK);
-		logger.debug("Initialize SoundControl with {} stack places", MAX_SOUNDS_IN_STACK);
+		int queueSize = Math.max(1, Configuration.getInteger("audio.queue.size", MAX_SOUNDS_IN_STACK));
+		enabled = !Configuration.getBoolean("game.headless", false);
+		polyphony = Math.max(1, Configuration.getInteger("audio.polyphony", 4));
+		spatialRange = Math.max(1.0f, Configuration.getFloat("audio.spatial.range", 480.0f));
+		spatialNear = Math.max(0.0f, Math.min(spatialRange - 1.0f, Configuration.getFloat("audio.spatial.near", 160.0f)));
+		coalesce = Configuration.getBoolean("audio.coalesce", true);
+		coalesceWindow = Math.max(0, Configuration.getInteger("audio.coalesce.window", 0)) * 1000000L;
+		rateMax = Math.max(0, Configuration.getInteger("audio.rate.max", 15));
+		soundsQueue = new ArrayBlockingQueue<>(queueSize);
+		freeRequests = new ArrayBlockingQueue<>(queueSize);
+		if (Configuration.getBoolean("audio.mixer", true)) {
+			mixer = new AudioMixer(Configuration.getInteger("audio.mixer.voices", 128), queueSize,
+					Configuration.getInteger("audio.mixer.buffer", 512));
+			logger.debug("Initialize SoundControl with the software mixer and {} voices per sound", polyphony);
+			return;
+		}
+		for (int i = 0; i < queueSize; i++) {
+			freeRequests.add(new PlayRequest());
+		}
+		Thread player = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				playLoop();
+			}
+		}, "sound");
+		player.setDaemon(true);
+		player.start();
+		logger.debug("Initialize SoundControl with {} queue places and {} voices per sound", queueSize, polyphony);
 	}
 
 	/**
@@ -55,48 +217,499 @@ public class SoundControl {
 	 * @return filename if file has been loaded into the sound bank or null.
 	 */
 	public String load(String code, String filename) {
-		if (!soundBank.containsKey(code)) {
-			SoundClip sc = new SoundClip(filename);
-			if (sc != null) {
-				soundBank.put(code, sc);
+		return load(code, filename, polyphony, 0);
+	}
+
+	/**
+	 * Load a Sound from <code>filename</code> to the sound bank, with
+	 * <code>voices</code> voices and a default <code>priority</code>.
+	 * 
+	 * @param code
+	 *            the code of the sound in the bank.
+	 * @param filename
+	 *            file name of the sound to be loaded.
+	 * @param voices
+	 *            the number of voices (the maximum number of times the sound
+	 *            can be played at once).
+	 * @param priority
+	 *            the default priority of the sound for voice stealing.
+	 * @return filename if file has been loaded into the sound bank or null.
+	 */
+	public String load(String code, String filename, int voices, int priority) {
+		if (!enabled) {
+			return null;
+		}
+		if (mixer != null) {
+			if (buffers.containsKey(code)) {
+				return null;
+			}
+			SoundBuffer buffer = SoundBuffer.load(code, filename, voices, priority);
+			if (buffer != null) {
+				buffers.put(code, buffer);
+				events.put(code, new SoundEvent(code, rateMax));
+				mixer.start();
 				logger.debug("Load sound {} to sound bank with code {}", filename, code);
 			}
 			return filename;
+		} else if (!soundBank.containsKey(code)) {
+			soundBank.put(code, new VoicePool(code, filename, voices, priority));
+			events.put(code, new SoundEvent(code, rateMax));
+			logger.debug("Load sound {} to sound bank with code {}", filename, code);
+			return filename;
 		} else {
 			return null;
 		}
 	}
 
 	public void play(String code) {
-		if (soundBank.containsKey(code)) {
-			SoundClip sc = soundBank.get(code);
-			sc.play();
-			logger.debug("Play sound {}", code);
-		} else {
-			logger.error("unable to find the sound {} in the SoundBank !", code);
-		}
+		play(code, 1.0f, 0.0f);
 	}
 
 	public void play(String code, float volume) {
-		if (soundBank.containsKey(code)) {
-			SoundClip sc = soundBank.get(code);
-			sc.play(0.5f, volume);
-			logger.debug("Play sound {} with volume {}", code, volume);
-		} else {
+		play(code, volume, 0.0f);
+	}
+
+	public void play(String code, float volume, float pan) {
+		play(code, volume, pan, getPriority(code));
+	}
+
+	private int getPriority(String code) {
+		if (mixer != null) {
+			SoundBuffer buffer = buffers.get(code);
+			return (buffer != null ? buffer.priority : 0);
+		}
+		VoicePool pool = soundBank.get(code);
+		return (pool != null ? pool.priority : 0);
+	}
+
+	/**
+	 * Request to play the sound <code>code</code>. The request is queued and the
+	 * method returns immediately.
+	 * 
+	 * @param code
+	 *            the code of the sound in the bank.
+	 * @param volume
+	 *            the volume, from 0 to 1.
+	 * @param pan
+	 *            the pan, from -1 (left) to 1 (right).
+	 * @param priority
+	 *            the priority of this play for voice stealing.
+	 */
+	public void play(String code, float volume, float pan, int priority) {
+		play(code, volume, pan, 1.0f, priority);
+	}
+
+	/**
+	 * Request to play the sound <code>code</code> at <code>pitch</code>. The
+	 * pitch is only applied by the software mixer.
+	 * 
+	 * @param code
+	 *            the code of the sound in the bank.
+	 * @param volume
+	 *            the volume, from 0 to 1.
+	 * @param pan
+	 *            the pan, from -1 (left) to 1 (right).
+	 * @param pitch
+	 *            the playback speed factor, 1 for the original pitch.
+	 * @param priority
+	 *            the priority of this play for voice stealing.
+	 */
+	public void play(String code, float volume, float pan, float pitch, int priority) {
+		if (!enabled) {
+			return;
+		}
+		if (!coalesce) {
+			dispatch(code, volume, pan, pitch, priority);
+			return;
+		}
+		SoundEvent e = events.get(code);
+		if (e == null) {
+			missing++;
 			logger.error("unable to find the sound {} in the SoundBank !", code);
+			return;
+		}
+		synchronized (pendingEvents) {
+			if (e.count == 0) {
+				e.windowStart = System.nanoTime();
+				e.energy = 0;
+				e.volumeSum = 0;
+				e.panSum = 0;
+				e.priority = priority;
+				pendingEvents.add(e);
+			}
+			e.count++;
+			e.energy += volume * volume;
+			e.volumeSum += volume;
+			e.panSum += pan * volume;
+			e.pitch = pitch;
+			e.priority = Math.max(e.priority, priority);
 		}
 	}
 
-	public void play(String code, float volume, float pan) {
-		if (soundBank.containsKey(code)) {
-			SoundClip sc = soundBank.get(code);
-			sc.play(0.5f, volume);
-			logger.debug("Play sound {} with volume {} and pan {}", code, volume, pan);
-		} else {
+	/**
+	 * Play the merged requests of the sounds whose coalescing window is over.
+	 * Must be called regularly (the game calls it at each update) when
+	 * <code>audio.coalesce</code> is set.
+	 */
+	public void flush() {
+		long now = System.nanoTime();
+		synchronized (pendingEvents) {
+			for (int i = 0; i < pendingEvents.size();) {
+				SoundEvent e = pendingEvents.get(i);
+				if (now - e.windowStart < coalesceWindow) {
+					i++;
+					continue;
+				}
+				int last = pendingEvents.size() - 1;
+				pendingEvents.set(i, pendingEvents.get(last));
+				pendingEvents.remove(last);
+				emit(e, now);
+			}
+		}
+	}
+
+	/**
+	 * Play the merged requests of <code>e</code> once, if the rate limit
+	 * allows it.
+	 */
+	private void emit(SoundEvent e, long now) {
+		coalesced += e.count - 1;
+		e.count = 0;
+		if (rateMax > 0) {
+			e.tokens = Math.min(rateMax, e.tokens + (now - e.refillTime) * rateMax / 1e9f);
+			e.refillTime = now;
+			if (e.tokens < 1.0f) {
+				limited++;
+				return;
+			}
+			e.tokens -= 1.0f;
+		}
+		float volume = Math.min(1.0f, (float) Math.sqrt(e.energy));
+		float pan = (e.volumeSum > 0 ? e.panSum / e.volumeSum : 0.0f);
+		dispatch(e.code, volume, pan, e.pitch, e.priority);
+	}
+
+	/**
+	 * Send a play request to the mixer or to the <code>sound</code> thread.
+	 */
+	private void dispatch(String code, float volume, float pan, float pitch, int priority) {
+		if (mixer != null) {
+			SoundBuffer buffer = buffers.get(code);
+			if (buffer == null) {
+				missing++;
+				logger.error("unable to find the sound {} in the SoundBank !", code);
+			} else if (!mixer.play(buffer, volume, pan, pitch, priority, false)) {
+				logger.debug("Sound queue full, drop sound {}", code);
+			}
+			return;
+		}
+		VoicePool pool = soundBank.get(code);
+		if (pool == null) {
+			missing++;
 			logger.error("unable to find the sound {} in the SoundBank !", code);
+			return;
+		}
+		PlayRequest request = freeRequests.poll();
+		if (request == null) {
+			dropped++;
+			logger.debug("Sound queue full, drop sound {}", code);
+			return;
+		}
+		request.pool = pool;
+		request.volume = volume;
+		request.pan = pan;
+		request.priority = priority;
+		soundsQueue.offer(request);
+	}
+
+	/**
+	 * Set the camera hearing the positional sounds.
+	 * 
+	 * @param camera
+	 *            the listener camera, or null to play positional sounds
+	 *            without pan nor attenuation.
+	 */
+	public void setListener(Camera camera) {
+		this.listener = camera;
+	}
+
+	/**
+	 * Request to play the sound <code>code</code> emitted at the world position
+	 * <code>(x,y)</code>.
+	 * 
+	 * @param code
+	 *            the code of the sound in the bank.
+	 * @param x
+	 *            horizontal world position of the sound.
+	 * @param y
+	 *            vertical world position of the sound.
+	 */
+	public void playAt(String code, float x, float y) {
+		playAt(code, x, y, 1.0f);
+	}
+
+	/**
+	 * Request to play the sound <code>code</code> emitted at the world position
+	 * <code>(x,y)</code> with <code>volume</code>. The pan and the attenuation
+	 * are computed relatively to the center of the listener camera view. The
+	 * sound is not played at all beyond <code>audio.spatial.range</code>.
+	 * 
+	 * @param code
+	 *            the code of the sound in the bank.
+	 * @param x
+	 *            horizontal world position of the sound.
+	 * @param y
+	 *            vertical world position of the sound.
+	 * @param volume
+	 *            the volume at the listener position, from 0 to 1.
+	 */
+	public void playAt(String code, float x, float y, float volume) {
+		if (!enabled) {
+			return;
+		}
+		Camera cam = listener;
+		if (cam == null) {
+			play(code, volume);
+			return;
+		}
+		Dimension view = cam.getView();
+		float cos = (float) Math.cos(cam.angle);
+		float sin = (float) Math.sin(cam.angle);
+		// view center in the world, with the rendering rotation.
+		float cx = cam.position.x + view.width * 0.5f;
+		float cy = cam.position.y + view.height * 0.5f;
+		float dx = x - (cx * cos - cy * sin);
+		float dy = y - (cx * sin + cy * cos);
+		float distance2 = dx * dx + dy * dy;
+		if (distance2 >= spatialRange * spatialRange) {
+			culled++;
+			return;
+		}
+		float distance = (float) Math.sqrt(distance2);
+		float attenuation = (distance <= spatialNear ? 1.0f
+				: 1.0f - (distance - spatialNear) / (spatialRange - spatialNear));
+		// half a view width aside is full left or right.
+		float pan = (view.width > 0 ? (dx * cos + dy * sin) / (view.width * 0.5f) : 0.0f);
+		play(code, volume * attenuation, Math.max(-1.0f, Math.min(1.0f, pan)));
+	}
+
+	/**
+	 * Consume the play requests (on the <code>sound</code> thread).
+	 */
+	private void playLoop() {
+		try {
+			while (true) {
+				PlayRequest request = soundsQueue.take();
+				start(request);
+				request.pool = null;
+				freeRequests.offer(request);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void start(PlayRequest request) {
+		SoundClip voice = request.pool.acquire(request.priority);
+		if (voice == null) {
+			rejected++;
+			return;
+		}
+		if (voice.isPlaying()) {
+			stolen++;
+		}
+		voice.priority = request.priority;
+		voice.play(request.pan, request.volume);
+		played++;
+		logger.debug("Play sound {} with volume {} and pan {}", request.pool.code, request.volume, request.pan);
+	}
+
+	/**
+	 * Play the music file at <code>path</code>, crossfading from the current
+	 * music in <code>audio.music.fade</code> milliseconds.
+	 * 
+	 * @param path
+	 *            the path to the music file (WAV, MP3 or OGG).
+	 * @param loop
+	 *            true to play the music continuously.
+	 */
+	public void playMusic(String path, boolean loop) {
+		if (!enabled) {
+			return;
+		}
+		getMusicPlayer().play(path, loop, Configuration.getInteger("audio.music.fade", 1000));
+	}
+
+	/**
+	 * Stop the music with a fade out of <code>audio.music.fade</code>
+	 * milliseconds.
+	 */
+	public void stopMusic() {
+		if (music != null) {
+			music.fadeOut(Configuration.getInteger("audio.music.fade", 1000));
+		}
+	}
+
+	/**
+	 * Return the music player, started at first use (never started when the
+	 * sound control is disabled).
+	 * 
+	 * @return
+	 */
+	public synchronized MusicPlayer getMusicPlayer() {
+		if (music == null) {
+			music = new MusicPlayer(Configuration.getInteger("audio.music.buffer", 1000));
+			music.volume = Configuration.getFloat("audio.music.volume", 1.0f);
+		}
+		if (!enabled) {
+			return music;
+		}
+		AudioMixer target = mixer;
+		if (target == null) {
+			if (musicMixer == null) {
+				musicMixer = new AudioMixer(1, 16, Configuration.getInteger("audio.mixer.buffer", 512));
+			}
+			target = musicMixer;
+		}
+		target.setMusic(music);
+		target.start();
+		music.start();
+		return music;
+	}
+
+	/**
+	 * Stop all the sounds being played.
+	 */
+	public void stopAll() {
+		synchronized (pendingEvents) {
+			for (SoundEvent e : pendingEvents) {
+				e.count = 0;
+			}
+			pendingEvents.clear();
+		}
+		if (mixer != null) {
+			mixer.stopAll();
 		}
+		soundsQueue.clear();
+		for (VoicePool pool : soundBank.values()) {
+			pool.stop();
+		}
+	}
+
+	/**
+	 * Close all the voices and empty the sound bank.
+	 */
+	public void dispose() {
+		stopAll();
+		for (VoicePool pool : soundBank.values()) {
+			pool.close();
+		}
+		soundBank.clear();
+		buffers.clear();
+		events.clear();
+		if (music != null) {
+			music.stop();
+		}
+		if (musicMixer != null) {
+			musicMixer.stop();
+		}
+		if (mixer != null) {
+			mixer.stop();
+		}
+	}
+
+	/**
+	 * The software mixer, or null if sounds are played with clips.
+	 * 
+	 * @return
+	 */
+	public AudioMixer getMixer() {
+		return mixer;
+	}
+
+	/**
+	 * Enable or disable the sound control. When disabled (headless mode),
+	 * loading and playing sounds do nothing.
+	 * 
+	 * @param enabled
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		logger.debug("Sound control {}", (enabled ? "enabled" : "disabled"));
+	}
+
+	public boolean isEnabled() {
+		return enabled;
 	}
+
 	public static SoundControl getInstance(){
 		return instance;
 	}
+
+	@Override
+	public int getSoundBankSize() {
+		return (mixer != null ? buffers.size() : soundBank.size());
+	}
+
+	@Override
+	public String[] getSoundCodes() {
+		return (mixer != null ? buffers : soundBank).keySet().toArray(new String[0]);
+	}
+
+	@Override
+	public long getPlayed() {
+		return (mixer != null ? mixer.getPlayed() : played);
+	}
+
+	@Override
+	public long getMissing() {
+		return missing;
+	}
+
+	@Override
+	public long getDropped() {
+		return (mixer != null ? mixer.getDropped() : dropped);
+	}
+
+	@Override
+	public long getRejected() {
+		return (mixer != null ? mixer.getRejected() : rejected);
+	}
+
+	@Override
+	public long getStolen() {
+		return (mixer != null ? mixer.getStolen() : stolen);
+	}
+
+	@Override
+	public long getCulled() {
+		return culled;
+	}
+
+	@Override
+	public long getCoalesced() {
+		return coalesced;
+	}
+
+	@Override
+	public long getLimited() {
+		return limited;
+	}
+
+	@Override
+	public int getPendingSounds() {
+		return (mixer != null ? mixer.getPendingCommands() : soundsQueue.size());
+	}
+
+	@Override
+	public int getActiveVoices() {
+		if (mixer != null) {
+			return mixer.getActiveVoices();
+		}
+		int active = 0;
+		for (VoicePool pool : soundBank.values()) {
+			active += pool.getActiveVoices();
+		}
+		return active;
+	}
 }
\ No newline at end of file
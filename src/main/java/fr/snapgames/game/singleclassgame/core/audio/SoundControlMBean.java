@@ -0,0 +1,73 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.audio;
+
+/**
+ * JMX view of the {@link SoundControl}.
+ *
+ * @author Frédéric Delorme
+ */
+public interface SoundControlMBean {
+
+	public int getSoundBankSize();
+
+	public String[] getSoundCodes();
+
+	/**
+	 * Number of sounds played.
+	 */
+	public long getPlayed();
+
+	/**
+	 * Number of play requests for a code unknown in the sound bank.
+	 */
+	public long getMissing();
+
+	/**
+	 * Number of play requests dropped because the play queue was full.
+	 */
+	public long getDropped();
+
+	/**
+	 * Number of play requests rejected because all the voices were playing
+	 * higher priority sounds.
+	 */
+	public long getRejected();
+
+	/**
+	 * Number of voices stolen from a sound still playing.
+	 */
+	public long getStolen();
+
+	/**
+	 * Number of positional sounds not played because out of the audible range.
+	 */
+	public long getCulled();
+
+	/**
+	 * Number of play requests merged into another play of the same sound.
+	 */
+	public long getCoalesced();
+
+	/**
+	 * Number of plays dropped by the per sound rate limit.
+	 */
+	public long getLimited();
+
+	/**
+	 * Number of play requests waiting in the queue.
+	 */
+	public int getPendingSounds();
+
+	/**
+	 * Number of voices currently playing.
+	 */
+	public int getActiveVoices();
+}
@@ -0,0 +1,152 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.audio;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * The voices of one sound of the {@link SoundControl} bank:
+ * <ul>
+ * <li>the sound file is decoded once, and <code>polyphony</code>
+ * {@link SoundClip}s are opened on the same PCM data, so that the same sound
+ * can be played several times at once,
+ * <li>a new play takes a free voice if any, otherwise it steals the voice
+ * playing the lowest priority sound, the oldest one between equal priorities,
+ * <li>a voice playing a sound of higher priority than the new one is never
+ * stolen: the new play is then rejected.
+ * </ul>
+ * <p>
+ * If the audio system can not open all the requested voices (or none, when no
+ * audio device is available), the pool keeps the ones already opened.
+ *
+ * @author Frédéric Delorme
+ */
+public class VoicePool {
+
+	private static final Logger logger = LoggerFactory.getLogger(VoicePool.class);
+
+	/**
+	 * Code of the sound in the bank.
+	 */
+	public final String code;
+
+	/**
+	 * Default priority of the sound.
+	 */
+	public final int priority;
+
+	private final SoundClip[] voices;
+
+	/**
+	 * Load the sound at <code>path</code> and open its voices.
+	 *
+	 * @param code      the code of the sound in the bank.
+	 * @param path      the path to the sound file.
+	 * @param polyphony the number of voices.
+	 * @param priority  the default priority of the sound.
+	 */
+	public VoicePool(String code, String path, int polyphony, int priority) {
+		this.code = code;
+		this.priority = priority;
+		List<SoundClip> opened = new ArrayList<>();
+		try {
+			AudioInputStream ais = SoundClip.decode(path);
+			if (ais == null) {
+				logger.error("unable to read the sound file {}", path);
+			} else {
+				byte[] data = SoundBuffer.read(ais);
+				for (int i = 0; i < Math.max(1, polyphony); i++) {
+					opened.add(new SoundClip(ais.getFormat(), data, data.length));
+				}
+			}
+		} catch (LineUnavailableException | IllegalArgumentException e) {
+			logger.error("unable to open more than {} voice(s) for the sound {}: {}", opened.size(), code,
+					e.getMessage());
+		} catch (IOException | UnsupportedAudioFileException e) {
+			logger.error("unable to play the sound file {}", path, e);
+		}
+		voices = opened.toArray(new SoundClip[0]);
+		logger.debug("Sound {} loaded with {} voice(s)", code, voices.length);
+	}
+
+	/**
+	 * Return the voice to play a sound of <code>priority</code>: a free voice,
+	 * or the lowest priority then oldest voice if it does not play a higher
+	 * priority sound.
+	 *
+	 * @param priority the priority of the sound to be played.
+	 * @return the voice, or null if none can be used.
+	 */
+	public SoundClip acquire(int priority) {
+		SoundClip candidate = null;
+		for (SoundClip voice : voices) {
+			if (!voice.isPlaying()) {
+				return voice;
+			}
+			if (voice.priority <= priority && (candidate == null || voice.priority < candidate.priority
+					|| (voice.priority == candidate.priority && voice.getStartTime() < candidate.getStartTime()))) {
+				candidate = voice;
+			}
+		}
+		return candidate;
+	}
+
+	/**
+	 * Number of opened voices.
+	 *
+	 * @return
+	 */
+	public int getVoices() {
+		return voices.length;
+	}
+
+	/**
+	 * Number of voices currently playing.
+	 *
+	 * @return
+	 */
+	public int getActiveVoices() {
+		int active = 0;
+		for (SoundClip voice : voices) {
+			if (voice.isPlaying()) {
+				active++;
+			}
+		}
+		return active;
+	}
+
+	/**
+	 * Stop all the voices.
+	 */
+	public void stop() {
+		for (SoundClip voice : voices) {
+			voice.stop();
+		}
+	}
+
+	/**
+	 * Stop and close all the voices.
+	 */
+	public void close() {
+		for (SoundClip voice : voices) {
+			voice.close();
+		}
+	}
+}
@@ -9,33 +9,88 @@
  */
 package fr.snapgames.game.singleclassgame.core.collision;
 
-import java.awt.Point;
-import java.awt.geom.Ellipse2D;
-import java.awt.geom.Rectangle2D;
-
 import fr.snapgames.game.singleclassgame.core.entity.GameObject;
 
 /**
  * Bounding Box for any object managed by the system.
+ * <p>
+ * All the shapes are stored as primitive values, updated in place by
+ * {@link BoundingBox#update(GameObject)}:
+ * <ul>
+ * <li><code>x,y,width,height</code> the axis aligned box of the object, used
+ * for the <code>RECTANGLE</code> type and to build the other shapes,
+ * <li><code>cx,cy,radius</code> the circle inscribed into the box for the
+ * <code>CIRCLE</code> type,
+ * <li><code>ax,ay-bx,by</code> and <code>radius</code> the capsule axis and
+ * radius, the axis being laid along the longest side of the box, for the
+ * <code>CAPSULE</code> type,
+ * <li><code>vertices</code> the convex polygon for the <code>POINTS</code>
+ * type, from the points defined with
+ * {@link BoundingBox#setPoints(float...)} relatively to the object position
+ * (or the box corners if none), which may extend past the box.
+ * </ul>
+ * <p>
+ * The broad phase bounds <code>minX,minY-maxX,maxY</code> contain the shape:
+ * the box, or the polygon vertices for <code>POINTS</code>.
+ * <p>
+ * For continuous collision detection, a box moving fast can be swept over its
+ * last move with {@link BoundingBox#sweep(float)}: its broad phase bounds
+ * <code>minX,minY-maxX,maxY</code> then contain the whole move, and
+ * {@link BoundingBox#contactTime(BoundingBox)} computes the time of impact
+ * during the move instead of testing the final positions only. The boxes are
+ * not moved back to the impact: the time is given to the collision response
+ * processors, which may resolve the contact.
+ * <p>
+ * The intersect tests don't modify the boxes, and can be run from several
+ * threads.
  *
  * @author Frédéric Delorme
  */
 public class BoundingBox {
 
 	/**
-	 * position for the boundingbox.
+	 * position and size of the axis aligned box.
+	 */
+	public float x, y, width, height;
+	/**
+	 * broad phase bounds: the box, or the volume swept by the box during its last
+	 * move.
+	 */
+	public float minX, minY, maxX, maxY;
+	/**
+	 * bounds of the shape at its current position, before any sweep.
+	 */
+	float shapeMinX, shapeMinY, shapeMaxX, shapeMaxY;
+	/**
+	 * move of the box during the last update.
+	 */
+	float dx, dy;
+	/**
+	 * true if the box is swept over its last move.
 	 */
-	Rectangle2D rect;
+	public boolean swept;
 	/**
-	 * diam1 is used for elipse1/circle/capsule BoundingBox type
+	 * circle center, used for CIRCLE BoundingBox type.
 	 */
-	Ellipse2D elipse1;
-	Ellipse2D elipse2;
-	float e1e2Distance;
+	float cx, cy;
 	/**
-	 * list of specific points for POINT mode.
+	 * radius for CIRCLE and CAPSULE BoundingBox type.
 	 */
-	Point[] points;
+	float radius;
+	/**
+	 * capsule axis end points.
+	 */
+	float ax, ay, bx, by;
+	/**
+	 * list of specific points for POINTS mode, relative to the object position
+	 * (<code>x0,y0,x1,y1,...</code>).
+	 */
+	float[] points;
+	/**
+	 * the POINTS polygon vertices in world coordinates.
+	 */
+	float[] vertices = new float[8];
+	int vertexCount = 0;
 
 	public BoundingBoxType type;
 
@@ -43,23 +98,326 @@ public class BoundingBox {
 
 	}
 
+	/**
+	 * Test if this BoundingBox intersects the <code>b</code> one, according to
+	 * both types.
+	 *
+	 * @param b the other BoundingBox.
+	 * @return 1 if both intersect, else 0.
+	 */
 	public int intersect(BoundingBox b) {
-		switch (type) {
-		case NONE:
-			return 0;
-		case RECTANGLE:
-			return (b.rect.intersects(rect) ? 1 : 0);
-		case CIRCLE:
-			return (b.elipse1.intersects(rect) ? 1 : 0);
-		case CAPSULE:
-			// TODO to be implemented later.
+		return (contactTime(b) >= 0.0f ? 1 : 0);
+	}
+
+	/**
+	 * Time of the contact between this BoundingBox and the <code>b</code> one
+	 * during their last move: the time of impact when one of them is swept (see
+	 * {@link BoundingBox#timeOfImpact(BoundingBox)}), or 1 when only their final
+	 * positions are tested.
+	 *
+	 * @param b the other BoundingBox.
+	 * @return the contact time from 0 to 1, or -1 if both don't intersect.
+	 */
+	public float contactTime(BoundingBox b) {
+		if (type == BoundingBoxType.NONE || b.type == BoundingBoxType.NONE) {
+			return -1.0f;
+		}
+		// every shape is contained into its bounds.
+		if (minX > b.maxX || b.minX > maxX || minY > b.maxY || b.minY > maxY) {
+			return -1.0f;
+		}
+		if (swept || b.swept) {
+			return timeOfImpact(b);
+		}
+		return (overlap(b) == 1 ? 1.0f : -1.0f);
+	}
+
+	/**
+	 * Exact test between the shapes at their final position.
+	 *
+	 * @param b the other BoundingBox.
+	 * @return 1 if both intersect, else 0.
+	 */
+	private int overlap(BoundingBox b) {
+		if (shapeMinX > b.shapeMaxX || b.shapeMinX > shapeMaxX || shapeMinY > b.shapeMaxY
+				|| b.shapeMinY > shapeMaxY) {
 			return 0;
-		case POINTS:
-			// TODO to be implemented later.
+		}
+		if (type == BoundingBoxType.RECTANGLE && b.type == BoundingBoxType.RECTANGLE) {
+			return 1;
+		}
+		if (type == BoundingBoxType.CIRCLE && b.type == BoundingBoxType.CIRCLE) {
+			return circleCircle(this, b);
+		}
+		if (type == BoundingBoxType.CIRCLE && b.type == BoundingBoxType.RECTANGLE) {
+			return circleBox(this, b);
+		}
+		if (type == BoundingBoxType.RECTANGLE && b.type == BoundingBoxType.CIRCLE) {
+			return circleBox(b, this);
+		}
+		boolean round1 = isRound();
+		boolean round2 = b.isRound();
+		if (round1 && round2) {
+			float r = radius + b.radius;
+			return (segmentsDistance2(ax, ay, bx, by, b.ax, b.ay, b.bx, b.by) <= r * r ? 1 : 0);
+		}
+		if (round1) {
+			return roundPolygon(this, b);
+		}
+		if (round2) {
+			return roundPolygon(b, this);
+		}
+		return polygons(this, b);
+	}
+
+	/**
+	 * Continuous test between this box and <code>b</code>. <code>b</code> is
+	 * considered as static at its final position, this box moving from its start
+	 * position with the relative move of both boxes. Two circles are exactly
+	 * swept, other shapes are swept as their bounds.
+	 *
+	 * @param b the other BoundingBox.
+	 * @return the time of impact during the last move, from 0 to 1, or -1 if both
+	 *         don't intersect.
+	 */
+	public float timeOfImpact(BoundingBox b) {
+		float vx = dx - b.dx;
+		float vy = dy - b.dy;
+		if (type == BoundingBoxType.CIRCLE && b.type == BoundingBoxType.CIRCLE) {
+			return sweptCircles(cx - vx - b.cx, cy - vy - b.cy, vx, vy, radius + b.radius);
+		}
+		return sweptBoxes(b, shapeMinX - vx, shapeMinY - vy, vx, vy);
+	}
+
+	/**
+	 * Time of impact of a circle centered on <code>(px,py)</code> relatively to a
+	 * static one and moving by <code>(vx,vy)</code>, the sum of both radius being
+	 * <code>r</code>.
+	 *
+	 * @return the time of impact from 0 to 1, or -1 if no impact.
+	 */
+	private static float sweptCircles(float px, float py, float vx, float vy, float r) {
+		float c = px * px + py * py - r * r;
+		if (c <= 0.0f) {
+			return 0.0f;
+		}
+		float a = vx * vx + vy * vy;
+		float b = px * vx + py * vy;
+		if (a <= 1e-6f || b >= 0.0f) {
+			return -1.0f;
+		}
+		float disc = b * b - a * c;
+		if (disc < 0.0f) {
+			return -1.0f;
+		}
+		float t = (-b - (float) Math.sqrt(disc)) / a;
+		return (t <= 1.0f ? t : -1.0f);
+	}
+
+	/**
+	 * Time of impact of this shape bounds starting at <code>(sx,sy)</code> and
+	 * moving by <code>(vx,vy)</code> against the static bounds of <code>b</code>,
+	 * with the slabs method on the bounds Minkowski sum.
+	 *
+	 * @return the time of impact from 0 to 1, or -1 if no impact.
+	 */
+	private float sweptBoxes(BoundingBox b, float sx, float sy, float vx, float vy) {
+		float tEnter = 0.0f, tExit = 1.0f;
+		for (int axis = 0; axis < 2; axis++) {
+			float s = (axis == 0 ? sx : sy);
+			float v = (axis == 0 ? vx : vy);
+			float min = (axis == 0 ? b.shapeMinX - (shapeMaxX - shapeMinX)
+					: b.shapeMinY - (shapeMaxY - shapeMinY));
+			float max = (axis == 0 ? b.shapeMaxX : b.shapeMaxY);
+			if (Math.abs(v) <= 1e-6f) {
+				if (s < min || s > max) {
+					return -1.0f;
+				}
+			} else {
+				float t1 = (min - s) / v;
+				float t2 = (max - s) / v;
+				tEnter = Math.max(tEnter, Math.min(t1, t2));
+				tExit = Math.min(tExit, Math.max(t1, t2));
+				if (tEnter > tExit) {
+					return -1.0f;
+				}
+			}
+		}
+		return tEnter;
+	}
+
+	/**
+	 * CIRCLE and CAPSULE are both defined as a segment (possibly reduced to a
+	 * point) and a radius.
+	 *
+	 * @return
+	 */
+	private boolean isRound() {
+		return type == BoundingBoxType.CIRCLE || type == BoundingBoxType.CAPSULE;
+	}
+
+	private static int circleCircle(BoundingBox c1, BoundingBox c2) {
+		float dx = c1.cx - c2.cx;
+		float dy = c1.cy - c2.cy;
+		float r = c1.radius + c2.radius;
+		return (dx * dx + dy * dy <= r * r ? 1 : 0);
+	}
+
+	private static int circleBox(BoundingBox c, BoundingBox box) {
+		float dx = c.cx - clamp(c.cx, box.x, box.x + box.width);
+		float dy = c.cy - clamp(c.cy, box.y, box.y + box.height);
+		return (dx * dx + dy * dy <= c.radius * c.radius ? 1 : 0);
+	}
+
+	/**
+	 * A circle or capsule against a convex polygon (RECTANGLE or POINTS): the
+	 * axis must start into the polygon or pass at less than the radius from one of
+	 * its edges.
+	 */
+	private static int roundPolygon(BoundingBox r, BoundingBox p) {
+		int n = p.getVertexCount();
+		if (n == 0) {
 			return 0;
-		default:
+		}
+		if (p.contains(r.ax, r.ay)) {
+			return 1;
+		}
+		float r2 = r.radius * r.radius;
+		for (int i = 0, j = n - 1; i < n; j = i++) {
+			if (segmentsDistance2(r.ax, r.ay, r.bx, r.by, p.getVertexX(j), p.getVertexY(j), p.getVertexX(i),
+					p.getVertexY(i)) <= r2) {
+				return 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Separating axis test between two convex polygons.
+	 */
+	private static int polygons(BoundingBox p1, BoundingBox p2) {
+		if (p1.getVertexCount() == 0 || p2.getVertexCount() == 0) {
 			return 0;
 		}
+		return (separated(p1, p2) || separated(p2, p1) ? 0 : 1);
+	}
+
+	/**
+	 * Search for a separating axis among the edges normals of <code>p1</code>.
+	 */
+	private static boolean separated(BoundingBox p1, BoundingBox p2) {
+		int n = p1.getVertexCount();
+		for (int i = 0, j = n - 1; i < n; j = i++) {
+			float nx = p1.getVertexY(j) - p1.getVertexY(i);
+			float ny = p1.getVertexX(i) - p1.getVertexX(j);
+			float min1 = Float.MAX_VALUE, max1 = -Float.MAX_VALUE;
+			for (int k = 0; k < n; k++) {
+				float d = p1.getVertexX(k) * nx + p1.getVertexY(k) * ny;
+				min1 = Math.min(min1, d);
+				max1 = Math.max(max1, d);
+			}
+			float min2 = Float.MAX_VALUE, max2 = -Float.MAX_VALUE;
+			for (int k = 0; k < p2.getVertexCount(); k++) {
+				float d = p2.getVertexX(k) * nx + p2.getVertexY(k) * ny;
+				min2 = Math.min(min2, d);
+				max2 = Math.max(max2, d);
+			}
+			if (max1 < min2 || max2 < min1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Test if the point <code>(px,py)</code> is into the polygon.
+	 *
+	 * @param px
+	 * @param py
+	 * @return
+	 */
+	public boolean contains(float px, float py) {
+		boolean inside = false;
+		int n = getVertexCount();
+		for (int i = 0, j = n - 1; i < n; j = i++) {
+			float xi = getVertexX(i), yi = getVertexY(i);
+			float xj = getVertexX(j), yj = getVertexY(j);
+			if ((yi > py) != (yj > py) && px < (xj - xi) * (py - yi) / (yj - yi) + xi) {
+				inside = !inside;
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Number of vertices of the polygon: the box corners for RECTANGLE, the points
+	 * for POINTS.
+	 *
+	 * @return
+	 */
+	public int getVertexCount() {
+		return (type == BoundingBoxType.POINTS ? vertexCount : 4);
+	}
+
+	public float getVertexX(int i) {
+		if (type == BoundingBoxType.POINTS) {
+			return vertices[i * 2];
+		}
+		return (i == 0 || i == 3 ? x : x + width);
+	}
+
+	public float getVertexY(int i) {
+		if (type == BoundingBoxType.POINTS) {
+			return vertices[i * 2 + 1];
+		}
+		return (i < 2 ? y : y + height);
+	}
+
+	/**
+	 * Square of the distance between the segments <code>p1-q1</code> and
+	 * <code>p2-q2</code> (0 if they intersect).
+	 */
+	static float segmentsDistance2(float p1x, float p1y, float q1x, float q1y, float p2x, float p2y, float q2x,
+			float q2y) {
+		float d1x = q1x - p1x, d1y = q1y - p1y;
+		float d2x = q2x - p2x, d2y = q2y - p2y;
+		float rx = p1x - p2x, ry = p1y - p2y;
+		float a = d1x * d1x + d1y * d1y;
+		float e = d2x * d2x + d2y * d2y;
+		float f = d2x * rx + d2y * ry;
+		float s, t;
+		if (a <= 1e-6f && e <= 1e-6f) {
+			return rx * rx + ry * ry;
+		}
+		if (a <= 1e-6f) {
+			s = 0.0f;
+			t = clamp(f / e, 0.0f, 1.0f);
+		} else {
+			float c = d1x * rx + d1y * ry;
+			if (e <= 1e-6f) {
+				t = 0.0f;
+				s = clamp(-c / a, 0.0f, 1.0f);
+			} else {
+				float b = d1x * d2x + d1y * d2y;
+				float denom = a * e - b * b;
+				s = (denom != 0.0f ? clamp((b * f - c * e) / denom, 0.0f, 1.0f) : 0.0f);
+				t = (b * s + f) / e;
+				if (t < 0.0f) {
+					t = 0.0f;
+					s = clamp(-c / a, 0.0f, 1.0f);
+				} else if (t > 1.0f) {
+					t = 1.0f;
+					s = clamp((b - c) / a, 0.0f, 1.0f);
+				}
+			}
+		}
+		float dx = (p1x + d1x * s) - (p2x + d2x * t);
+		float dy = (p1y + d1y * s) - (p2y + d2y * t);
+		return dx * dx + dy * dy;
+	}
+
+	private static float clamp(float v, float min, float max) {
+		return (v < min ? min : (v > max ? max : v));
 	}
 
 	/**
@@ -68,11 +426,104 @@ public class BoundingBox {
 	 * @param go
 	 */
 	public void update(GameObject go) {
-		this.rect = new Rectangle2D.Float(go.position.x, go.position.y, go.width, go.height);
-		this.elipse1 = new Ellipse2D.Float(go.position.x, go.position.y, go.width, go.height);
-		// TODO compute distance for CAPSULE.
-		// this.elipse2 = new Ellipse2D.Float(go.position.x, go.position.y, go.width,
-		// go.height);
+		update(go.getX(), go.getY(), go.getWidth(), go.getHeight(), go.getOldX(), go.getOldY());
+	}
+
+	/**
+	 * Update bounding box to the <code>(x,y,width,height)</code> rectangle, moved
+	 * from <code>(oldX,oldY)</code> during the last update.
+	 *
+	 * @param x      horizontal position.
+	 * @param y      vertical position.
+	 * @param width  width.
+	 * @param height height.
+	 * @param oldX   previous horizontal position.
+	 * @param oldY   previous vertical position.
+	 */
+	public void update(float x, float y, float width, float height, float oldX, float oldY) {
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		dx = x - oldX;
+		dy = y - oldY;
+		shapeMinX = x;
+		shapeMinY = y;
+		shapeMaxX = x + width;
+		shapeMaxY = y + height;
+		swept = false;
+		cx = x + width * 0.5f;
+		cy = y + height * 0.5f;
+		radius = Math.min(width, height) * 0.5f;
+		if (type == BoundingBoxType.CAPSULE) {
+			if (width >= height) {
+				ax = x + radius;
+				bx = x + width - radius;
+				ay = by = cy;
+			} else {
+				ay = y + radius;
+				by = y + height - radius;
+				ax = bx = cx;
+			}
+		} else {
+			ax = bx = cx;
+			ay = by = cy;
+		}
+		if (type == BoundingBoxType.POINTS) {
+			updateVertices();
+		}
+		minX = shapeMinX;
+		minY = shapeMinY;
+		maxX = shapeMaxX;
+		maxY = shapeMaxY;
+	}
+
+	/**
+	 * Sweep the box over its last move if this move is longer than
+	 * <code>threshold</code>, or than half the box smallest side if
+	 * <code>threshold</code> is 0.
+	 *
+	 * @param threshold the minimum move length to sweep the box.
+	 * @return true if the box is swept.
+	 */
+	public boolean sweep(float threshold) {
+		float limit = (threshold > 0.0f ? threshold : Math.min(width, height) * 0.5f);
+		swept = (dx * dx + dy * dy > limit * limit);
+		if (swept) {
+			minX = Math.min(shapeMinX, shapeMinX - dx);
+			minY = Math.min(shapeMinY, shapeMinY - dy);
+			maxX = Math.max(shapeMaxX, shapeMaxX - dx);
+			maxY = Math.max(shapeMaxY, shapeMaxY - dy);
+		}
+		return swept;
+	}
+
+	/**
+	 * Compute the POINTS polygon vertices from the points relative to the box
+	 * position, and the shape bounds from the vertices.
+	 */
+	private void updateVertices() {
+		if (points == null) {
+			vertexCount = 4;
+			for (int i = 0; i < 4; i++) {
+				vertices[i * 2] = (i == 0 || i == 3 ? x : x + width);
+				vertices[i * 2 + 1] = (i < 2 ? y : y + height);
+			}
+		} else {
+			vertexCount = points.length / 2;
+			for (int i = 0; i < vertexCount * 2; i += 2) {
+				vertices[i] = x + points[i];
+				vertices[i + 1] = y + points[i + 1];
+			}
+		}
+		shapeMinX = shapeMinY = Float.MAX_VALUE;
+		shapeMaxX = shapeMaxY = -Float.MAX_VALUE;
+		for (int i = 0; i < vertexCount * 2; i += 2) {
+			shapeMinX = Math.min(shapeMinX, vertices[i]);
+			shapeMaxX = Math.max(shapeMaxX, vertices[i]);
+			shapeMinY = Math.min(shapeMinY, vertices[i + 1]);
+			shapeMaxY = Math.max(shapeMaxY, vertices[i + 1]);
+		}
 	}
 
 	/**
@@ -86,7 +537,7 @@ public class BoundingBox {
 
 	/**
 	 * Define the BoundingBoxType for this BoundingBox.
-	 * 
+	 *
 	 * @param type type of the bounding box
 	 * @return this object.
 	 * @see BoundingBoxType
@@ -95,4 +546,19 @@ public class BoundingBox {
 		this.type = type;
 		return this;
 	}
+
+	/**
+	 * Define the convex polygon points for the POINTS type, relatively to the
+	 * object position, as <code>x0,y0,x1,y1,...</code>.
+	 *
+	 * @param xy the points coordinates.
+	 * @return this object.
+	 */
+	public BoundingBox setPoints(float... xy) {
+		this.points = xy.clone();
+		if (vertices.length < xy.length) {
+			vertices = new float[xy.length];
+		}
+		return this;
+	}
 }
\ No newline at end of file
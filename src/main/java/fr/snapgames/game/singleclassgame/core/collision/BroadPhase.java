@@ -0,0 +1,116 @@
+/**
+ * SnapGames
+ * 
+ * Game Development Java
+ * 
+ * singleclassgame
+ * 
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.collision;
+
+import java.awt.geom.Path2D;
+import java.util.List;
+
+/**
+ * <p>
+ * The broad phase of the collision detection: a spatial structure dispatching
+ * the {@link Collidable} objects to find the pairs of objects which could
+ * collide, before testing them precisely in the narrow phase.
+ * <p>
+ * Implementations are {@link QuadTree} and {@link SpatialHashGrid}, selected by
+ * the <code>collision.broadphase</code> configuration key in
+ * {@link CollisionManager}.
+ * 
+ * @author Frédéric Delorme
+ * 
+ * @see CollisionManager
+ */
+public interface BroadPhase {
+
+	/**
+	 * Update the structure according to the current bounding boxes of the
+	 * <code>colliders</code>.
+	 * 
+	 * @param colliders the list of all objects to be managed.
+	 */
+	public void update(List<Collidable> colliders);
+
+	/**
+	 * Remove the object <code>c</code> from the structure.
+	 * 
+	 * @param c the object to be removed.
+	 */
+	public void remove(Collidable c);
+
+	/**
+	 * Provide each candidate pair of objects exactly once to the
+	 * <code>processor</code>.
+	 * 
+	 * @param processor the processor to be called for each candidate pair.
+	 */
+	public void findPairs(CollisionPairProcessor processor);
+
+	/**
+	 * Split the candidate pairs search into about <code>parts</code> independent
+	 * parts, to be searched with
+	 * {@link BroadPhase#findPairs(int, CollisionPairProcessor)}. The structure
+	 * must not be modified until all the parts are searched.
+	 * 
+	 * @param parts the wanted number of parts.
+	 * @return the actual number of parts.
+	 */
+	public int partition(int parts);
+
+	/**
+	 * Provide the candidate pairs of one part of the last
+	 * {@link BroadPhase#partition(int)} to the <code>processor</code>. Each pair
+	 * belongs to exactly one part, and the pairs of all the parts, in part order,
+	 * come in the {@link BroadPhase#findPairs(CollisionPairProcessor)} order.
+	 * Different parts can be searched at the same time by different threads.
+	 * 
+	 * @param part      the part index, from 0 to the number of parts - 1.
+	 * @param processor the processor to be called for each candidate pair.
+	 */
+	public void findPairs(int part, CollisionPairProcessor processor);
+
+	/**
+	 * Add to <code>returnObjects</code> all the objects which could collide with
+	 * <code>c</code>.
+	 * 
+	 * @param returnObjects the list where to add the candidates.
+	 * @param c             the object to find candidates for.
+	 * @return the <code>returnObjects</code> list.
+	 */
+	public List<Collidable> retrieve(List<Collidable> returnObjects, Collidable c);
+
+	/**
+	 * Add to <code>returnObjects</code> all the objects whose bounds overlap the
+	 * <code>(minX,minY)-(maxX,maxY)</code> area.
+	 * 
+	 * @param returnObjects the list where to add the objects.
+	 * @param minX          left of the area.
+	 * @param minY          top of the area.
+	 * @param maxX          right of the area.
+	 * @param maxY          bottom of the area.
+	 * @return the <code>returnObjects</code> list.
+	 */
+	public List<Collidable> query(List<Collidable> returnObjects, float minX, float minY, float maxX, float maxY);
+
+	/**
+	 * Append the outlines of the structure to the given paths, for debug purpose.
+	 * The paths are cached by the caller and drawn until the next refresh.
+	 * 
+	 * @param normal      the path receiving the nodes (or cells) outlines.
+	 * @param highlighted the path receiving the outlines to be highlighted
+	 *                    (shared by several objects).
+	 */
+	public void outline(Path2D normal, Path2D highlighted);
+
+	/**
+	 * Return some statistics about the last update of the structure.
+	 * 
+	 * @return a human readable summary.
+	 */
+	public String getStatistics();
+}
@@ -41,5 +41,11 @@ public interface Collidable {
 	 */
 	void addCollider(Collidable co);
 
+	/**
+	 * Remove all the colliding objects detected during the previous collision
+	 * pass.
+	 */
+	void clearColliders();
+
 	void setCollidingResponseProcessed(boolean f);
 }
\ No newline at end of file
@@ -9,26 +9,57 @@
  */
 package fr.snapgames.game.singleclassgame.core.collision;
 
+import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.snapgames.game.singleclassgame.Game;
+import fr.snapgames.game.singleclassgame.core.config.Configuration;
+import fr.snapgames.game.singleclassgame.core.entity.EntityStore;
 import fr.snapgames.game.singleclassgame.core.entity.GameObject;
+import fr.snapgames.game.singleclassgame.core.profiler.CollisionPassEvent;
+import fr.snapgames.game.singleclassgame.core.profiler.FrameProfiler;
+import fr.snapgames.game.singleclassgame.core.profiler.FrameProfiler.Phase;
+import fr.snapgames.game.singleclassgame.core.profiler.Metrics;
 
 /**
  * THe Collision Manager help game to detect and manage collision between
  * <code>Collidable</code> object.
+ * <p>
+ * When <code>collision.parallel</code> is set, the broad phase pairs search is
+ * split into independent parts (subtrees of the {@link QuadTree}, bands of rows
+ * of the {@link SpatialHashGrid}, see {@link BroadPhase#partition(int)}),
+ * searched in parallel on a {@link ForkJoinPool}. Each part enumerates and
+ * tests its own candidate pairs, recording its contacts into its own buffer,
+ * and contacts are finally dispatched to the
+ * {@link CollisionResponseProcessor}s on the game loop thread, in part order,
+ * so that the responses are the same as the sequential ones.
+ * <p>
+ * When the game uses an {@link EntityStore}, the bounding boxes are refreshed
+ * with a sweep over its position and size arrays, as the objects are not
+ * updated anymore by their own physic.
+ * <p>
+ * When <code>collision.ccd</code> is set, the objects moving further than
+ * <code>collision.ccd.threshold</code> during the last update (or than half
+ * their size if 0) are swept over their move (see
+ * {@link BoundingBox#sweep(float)}), to detect collisions a discrete test
+ * would miss. The time of impact is given to the response processors with
+ * {@link CollisionResponseProcessor#onCollide(Game, GameObject, GameObject, float)},
+ * the manager itself doesn't move the objects back to the contact.
  * 
  * @author Frédéric Delorme
  * @see Collidable
  */
-public class CollisionManager {
+public class CollisionManager implements CollisionPairProcessor, CollisionManagerMBean {
 
 	private static final Logger logger = LoggerFactory.getLogger(CollisionManager.class);
 
@@ -37,11 +68,78 @@ public class CollisionManager {
 	private List<CollisionResponseProcessor> processors = new ArrayList<>();
 
 	/**
-	 * The QuadTree to manage objects collision and visibility.
+	 * The broad phase structure to manage objects collision and visibility.
 	 */
-	private QuadTree quadTree;
+	private BroadPhase broadPhase;
+
+	/**
+	 * The game the current collision pass is processed for.
+	 */
+	private Game game;
+
+	/**
+	 * Number of candidate pairs tested during the last pass.
+	 */
+	private int pairsTested = 0;
+	/**
+	 * Number of colliding pairs detected during the last pass.
+	 */
+	private int pairsColliding = 0;
+
+	/**
+	 * Number of parts of the parallel pairs search per pool thread, to balance
+	 * the uneven parts.
+	 */
+	private static final int PARTS_PER_THREAD = 4;
+
+	/**
+	 * Parallel pairs search activation, and minimum number of candidate pairs
+	 * tested by the previous pass to go parallel.
+	 */
+	private boolean parallel = false;
+	private int parallelThreshold = 2048;
+	private ForkJoinPool pool;
+
+	/**
+	 * Pairs search buffers, one per part of the broad phase.
+	 */
+	private PartBuffer[] buffers = new PartBuffer[0];
+
+	/**
+	 * Continuous collision detection activation and threshold.
+	 */
+	private boolean ccd = false;
+	private float ccdThreshold = 0.0f;
+	/**
+	 * Number of objects swept during the last pass.
+	 */
+	private int swept = 0;
+
+	/**
+	 * Cumulated counters since the start.
+	 */
+	private long passes = 0;
+	private long totalPairsTested = 0;
+	private long totalPairsColliding = 0;
+
+	/**
+	 * Broad phase outlines, cached for debug drawing and refreshed when
+	 * {@link Game#debugRefresh} is set.
+	 */
+	private Path2D.Float outline = new Path2D.Float();
+	private Path2D.Float outlineShared = new Path2D.Float();
+	private boolean outlined = false;
 
 	public CollisionManager() {
+		ccd = Configuration.getBoolean("collision.ccd", false);
+		ccdThreshold = Configuration.getFloat("collision.ccd.threshold", 0.0f);
+		parallel = Configuration.getBoolean("collision.parallel", false);
+		parallelThreshold = Configuration.getInteger("collision.parallel.threshold", 2048);
+		if (parallel) {
+			int threads = Configuration.getInteger("collision.parallel.threads", 0);
+			pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+			logger.info("Collision parallel pairs search activated on {} threads", pool.getParallelism());
+		}
 	}
 
 	/**
@@ -50,9 +148,18 @@ public class CollisionManager {
 	 * @param dim
 	 */
 	public void setDimension(Dimension dim) {
-		quadTree = new QuadTree(dim.width, dim.height);
-		quadTree.MAX_LEVELS = 16;
-		quadTree.MAX_OBJECTS = 2;
+		String type = Configuration.get("collision.broadphase", "quadtree");
+		if ("grid".equals(type)) {
+			broadPhase = new SpatialHashGrid(dim.width, dim.height,
+					Configuration.getFloat("collision.grid.cellSize", 0.0f));
+		} else {
+			QuadTree quadTree = new QuadTree(dim.width, dim.height);
+			quadTree.MAX_LEVELS = 16;
+			quadTree.MAX_OBJECTS = 2;
+			quadTree.setIncremental(Configuration.getBoolean("collision.quadtree.incremental", true));
+			broadPhase = quadTree;
+		}
+		logger.info("Collision broad phase set to {}", broadPhase.getClass().getSimpleName());
 	}
 
 	/**
@@ -60,10 +167,7 @@ public class CollisionManager {
 	 * @param dt
 	 */
 	public void cullingProcess(Game game, float dt) {
-		quadTree.clear();
-		for (Collidable e : colliders) {
-			quadTree.insert(e);
-		}
+		broadPhase.update(colliders);
 	}
 
 	/**
@@ -83,6 +187,7 @@ public class CollisionManager {
 	 */
 	public void remove(GameObject o) {
 		colliders.remove(o);
+		broadPhase.remove(o);
 
 		logger.debug("Remove {} from CollisionSystem", o.name);
 	}
@@ -105,38 +210,321 @@ public class CollisionManager {
 			}
 		}
 		colliders.removeAll(toBeRemoved);
+		for (Collidable c : toBeRemoved) {
+			broadPhase.remove(c);
+		}
 	}
 
 	/**
-	 * Manage collision from Player to other objects.
+	 * Detect collision between all objects. The broad phase is walked once to
+	 * provide each candidate pair (broad phase) which is then tested with
+	 * {@link BoundingBox#intersect(BoundingBox)} (narrow phase).
 	 */
 	public void update(Game game, float dt) {
+		CollisionPassEvent event = (Metrics.jfr ? CollisionPassEvent.start() : null);
+		if (game.entities != null) {
+			updateBounds(game.entities);
+		}
+		swept = 0;
+		for (int i = 0; i < colliders.size(); i++) {
+			Collidable c = colliders.get(i);
+			c.clearColliders();
+			if (ccd && c.getBoundingBox().sweep(ccdThreshold)) {
+				swept++;
+			}
+		}
+		FrameProfiler profiler = game.profiler;
+		long start = profiler.start();
 		cullingProcess(game, dt);
+		profiler.end(Phase.CULL, start);
+
+		start = profiler.start();
+		this.game = game;
+		boolean goParallel = (parallel && pairsTested >= parallelThreshold);
+		pairsTested = 0;
+		pairsColliding = 0;
+		if (goParallel) {
+			findPairsParallel();
+		} else {
+			broadPhase.findPairs(this);
+		}
+		this.game = null;
+		profiler.end(Phase.NARROW, start);
+
+		passes++;
+		totalPairsTested += pairsTested;
+		totalPairsColliding += pairsColliding;
+		if (event != null) {
+			event.finish(colliders.size(), pairsTested, pairsColliding, swept);
+		}
+	}
+
+	/**
+	 * Refresh the bounding boxes of the stored entities from the store arrays.
+	 * 
+	 * @param store the store holding the entities.
+	 */
+	private void updateBounds(EntityStore store) {
+		float[] px = store.px, py = store.py, opx = store.opx, opy = store.opy, w = store.w, h = store.h;
+		GameObject[] objects = store.objects;
+		for (int i = 0; i < store.size; i++) {
+			objects[i].bBox.update(px[i], py[i], w[i], h[i], opx[i], opy[i]);
+		}
+	}
+
+	/**
+	 * Narrow phase for a candidate pair: on collision, colliders are registered
+	 * and the response processors are called.
+	 */
+	@Override
+	public void processPair(Collidable c1, Collidable c2) {
+		pairsTested++;
+		float time = c2.getBoundingBox().contactTime(c1.getBoundingBox());
+		if (time >= 0.0f) {
+			contact(c1, c2, time);
+		}
+	}
 
-		List<Collidable> collisionList = new CopyOnWriteArrayList<>();
-		GameObject o = game.objects.get(0);
-		
-		quadTree.retrieve(collisionList, (Collidable) o);
-		if (collisionList != null && !collisionList.isEmpty()) {
-			for (Collidable s : collisionList) {
-				GameObject ago = (GameObject) s;
-				if (!o.name.equals(ago.name) && ago.bBox.intersect(o.bBox) == 1) {
-					o.addCollider((Collidable) ago);
-					ago.addCollider((Collidable) o);
-					if (processors != null && !processors.isEmpty()) {
-						for (CollisionResponseProcessor crp : processors) {
-							crp.onCollide(game, o, ago);
-						}
-					}
-					logger.info("object {} collide object {}", o.name, ago.name);
+	/**
+	 * Search and test the pairs of the broad phase parts in parallel, then
+	 * dispatch the contacts in the parts order.
+	 */
+	private void findPairsParallel() {
+		int parts = broadPhase.partition(pool.getParallelism() * PARTS_PER_THREAD);
+		if (buffers.length < parts) {
+			int length = buffers.length;
+			buffers = Arrays.copyOf(buffers, parts);
+			for (int i = length; i < parts; i++) {
+				buffers[i] = new PartBuffer();
+			}
+		}
+		pool.invoke(new PairsTask(0, parts));
+		for (int p = 0; p < parts; p++) {
+			PartBuffer buffer = buffers[p];
+			pairsTested += buffer.tested;
+			for (int i = 0; i < buffer.count; i++) {
+				contact(buffer.contactsA[i], buffer.contactsB[i], buffer.times[i]);
+			}
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * The candidate pairs tested by one part of the parallel search, and the
+	 * colliding ones with their contact time in the search order.
+	 */
+	private static class PartBuffer implements CollisionPairProcessor {
+		private Collidable[] contactsA = new Collidable[64];
+		private Collidable[] contactsB = new Collidable[64];
+		private float[] times = new float[64];
+		private int count = 0;
+		private int tested = 0;
+
+		@Override
+		public void processPair(Collidable c1, Collidable c2) {
+			tested++;
+			float time = c2.getBoundingBox().contactTime(c1.getBoundingBox());
+			if (time >= 0.0f) {
+				if (count == contactsA.length) {
+					contactsA = Arrays.copyOf(contactsA, count * 2);
+					contactsB = Arrays.copyOf(contactsB, count * 2);
+					times = Arrays.copyOf(times, count * 2);
 				}
+				contactsA[count] = c1;
+				contactsB[count] = c2;
+				times[count] = time;
+				count++;
 			}
 		}
 
+		void clear() {
+			Arrays.fill(contactsA, 0, count, null);
+			Arrays.fill(contactsB, 0, count, null);
+			count = 0;
+			tested = 0;
+		}
 	}
 
+	/**
+	 * Split a range of broad phase parts between the pool workers.
+	 */
+	private class PairsTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from, to;
+
+		PairsTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 1) {
+				if (from < to) {
+					broadPhase.findPairs(from, buffers[from]);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new PairsTask(from, middle), new PairsTask(middle, to));
+			}
+		}
+	}
+
+	/**
+	 * Register a contact between <code>c1</code> and <code>c2</code> and call the
+	 * response processors. Always called from the game loop thread.
+	 * 
+	 * @param c1
+	 * @param c2
+	 * @param time the contact time during the last move.
+	 */
+	private void contact(Collidable c1, Collidable c2, float time) {
+		pairsColliding++;
+		GameObject o1 = (GameObject) c1;
+		GameObject o2 = (GameObject) c2;
+		o1.addCollider(c2);
+		o2.addCollider(c1);
+		for (int i = 0; i < processors.size(); i++) {
+			processors.get(i).onCollide(game, o1, o2, time);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("object {} collide object {}", o1.name, o2.name);
+		}
+	}
+
+	/**
+	 * Statistics about the broad phase structure after the last update.
+	 * 
+	 * @return
+	 */
+	@Override
+	public String getBroadPhaseStatistics() {
+		return broadPhase.getStatistics();
+	}
+
+	/**
+	 * Number of candidate pairs tested during the last collision pass.
+	 * 
+	 * @return
+	 */
+	@Override
+	public int getPairsTested() {
+		return pairsTested;
+	}
+
+	/**
+	 * Number of colliding pairs detected during the last collision pass.
+	 * 
+	 * @return
+	 */
+	@Override
+	public int getPairsColliding() {
+		return pairsColliding;
+	}
+
+	/**
+	 * Number of objects swept by the continuous collision detection during the
+	 * last collision pass.
+	 * 
+	 * @return
+	 */
+	@Override
+	public int getSwept() {
+		return swept;
+	}
+
+	@Override
+	public int getColliderCount() {
+		return colliders.size();
+	}
+
+	@Override
+	public long getPasses() {
+		return passes;
+	}
+
+	@Override
+	public long getTotalPairsTested() {
+		return totalPairsTested;
+	}
+
+	@Override
+	public long getTotalPairsColliding() {
+		return totalPairsColliding;
+	}
+
+	@Override
+	public String getBroadPhaseType() {
+		return (broadPhase != null ? broadPhase.getClass().getSimpleName() : "none");
+	}
+
+	@Override
+	public int getQuadTreeDepth() {
+		return (broadPhase instanceof QuadTree ? ((QuadTree) broadPhase).getDepth() : -1);
+	}
+
+	@Override
+	public int getQuadTreeNodeCount() {
+		return (broadPhase instanceof QuadTree ? ((QuadTree) broadPhase).getNodeCount() : -1);
+	}
+
+	@Override
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	@Override
+	public boolean isCcd() {
+		return ccd;
+	}
+
+	/**
+	 * Add to <code>returnObjects</code> all the objects overlapping the
+	 * <code>(minX,minY)-(maxX,maxY)</code> area, according to the broad phase
+	 * state after the last collision pass.
+	 * 
+	 * @param returnObjects the list where to add the objects.
+	 * @param minX          left of the area.
+	 * @param minY          top of the area.
+	 * @param maxX          right of the area.
+	 * @param maxY          bottom of the area.
+	 * @return the <code>returnObjects</code> list.
+	 * @see BroadPhase#query(List, float, float, float, float)
+	 */
+	public List<Collidable> query(List<Collidable> returnObjects, float minX, float minY, float maxX, float maxY) {
+		return broadPhase.query(returnObjects, minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Append the outlines of the broad phase structure to the given paths, for
+	 * debug purpose.
+	 * 
+	 * @param normal      the path receiving the nodes (or cells) outlines.
+	 * @param highlighted the path receiving the outlines to be highlighted.
+	 * @see BroadPhase#outline(Path2D, Path2D)
+	 */
+	public void outline(Path2D normal, Path2D highlighted) {
+		broadPhase.outline(normal, highlighted);
+	}
+
+	/**
+	 * Draw the broad phase structure for debug purpose, from the cached outlines.
+	 * 
+	 * @param game the parent game.
+	 * @param g    the Graphics API.
+	 * @param fps  the measured frame rate.
+	 */
 	public void draw(Game game, Graphics2D g, float fps) {
-		quadTree.draw(g);
+		if (!outlined || game.debugRefresh) {
+			outline.reset();
+			outlineShared.reset();
+			broadPhase.outline(outline, outlineShared);
+			outlined = true;
+		}
+		g.setColor(Color.BLUE);
+		g.draw(outline);
+		g.setColor(Color.ORANGE);
+		g.draw(outlineShared);
 	}
 
 	/**
@@ -152,4 +540,15 @@ public class CollisionManager {
 			logger.error("Unable to add a null CollisionResponseProcessor");
 		}
 	}
+
+	/**
+	 * Stop the threads of the parallel pairs search, if any.
+	 */
+	public void dispose() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+			parallel = false;
+		}
+	}
 }
@@ -0,0 +1,51 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.collision;
+
+/**
+ * JMX view of the {@link CollisionManager}: last pass gauges and cumulated
+ * counters.
+ *
+ * @author Frédéric Delorme
+ */
+public interface CollisionManagerMBean {
+
+	public int getColliderCount();
+
+	public int getPairsTested();
+
+	public int getPairsColliding();
+
+	public int getSwept();
+
+	public long getPasses();
+
+	public long getTotalPairsTested();
+
+	public long getTotalPairsColliding();
+
+	public String getBroadPhaseType();
+
+	public String getBroadPhaseStatistics();
+
+	/**
+	 * Depth of the QuadTree broad phase, or -1 for another broad phase.
+	 */
+	public int getQuadTreeDepth();
+
+	/**
+	 * Number of nodes of the QuadTree broad phase, or -1 for another broad phase.
+	 */
+	public int getQuadTreeNodeCount();
+
+	public boolean isParallel();
+
+	public boolean isCcd();
+}
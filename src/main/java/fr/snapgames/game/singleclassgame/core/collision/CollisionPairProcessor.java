@@ -0,0 +1,29 @@
+/**
+ * SnapGames
+ * 
+ * Game Development Java
+ * 
+ * singleclassgame
+ * 
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.collision;
+
+/**
+ * Interface called by the broad phase for each candidate pair of
+ * {@link Collidable} objects which could be colliding.
+ * 
+ * @author Frédéric Delorme
+ * 
+ * @see BroadPhase#findPairs(CollisionPairProcessor)
+ */
+public interface CollisionPairProcessor {
+	/**
+	 * Process the candidate pair <code>(c1,c2)</code>. Each pair is provided only
+	 * once per pass.
+	 * 
+	 * @param c1 first candidate object.
+	 * @param c2 second candidate object.
+	 */
+	public void processPair(Collidable c1, Collidable c2);
+}
@@ -27,4 +27,19 @@ public interface CollisionResponseProcessor {
 	 * @param o2 Second GameObject participating in collision.
 	 */
 	public void onCollide(Game game, GameObject o1, GameObject o2);
+
+	/**
+	 * When a Collision occurred, with the <code>time</code> of the contact during
+	 * the last move (see {@link BoundingBox#contactTime(BoundingBox)}): from 0
+	 * (at the previous positions) to 1 (at the current ones). The objects are not
+	 * moved back to the contact, this is up to the processor. By default, calls
+	 * {@link CollisionResponseProcessor#onCollide(Game, GameObject, GameObject)}.
+	 * 
+	 * @param o1   First GameObject participating in collision.
+	 * @param o2   Second GameObject participating in collision.
+	 * @param time the contact time, lower than 1 for a swept contact only.
+	 */
+	public default void onCollide(Game game, GameObject o1, GameObject o2, float time) {
+		onCollide(game, o1, o2);
+	}
 }
\ No newline at end of file
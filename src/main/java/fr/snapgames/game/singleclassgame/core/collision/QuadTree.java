@@ -1,18 +1,22 @@
 /**
  * SnapGames
- * 
+ *
  * Game Development Java
- * 
+ *
  * singleclassgame
- * 
+ *
  * @year 2018
  */
 package fr.snapgames.game.singleclassgame.core.collision;
 
-import java.awt.Color;
-import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A lot of this code was stolen from this article: <br>
@@ -20,9 +24,20 @@ import java.util.List;
  * <br>
  * <br>
  * created by chrislo27
- *
+ * <p>
+ * In incremental mode (default), the tree is not rebuilt at each update:
+ * <ul>
+ * <li>each object keeps a back-reference to the node containing it, and only
+ * objects which do not belong to their node anymore are relocated, by
+ * inserting them from the highest ancestor still containing them,
+ * <li>nodes are recycled from a pool instead of being allocated at each split,
+ * <li>under-populated subtrees are collapsed once per update, after all objects
+ * have been relocated.
+ * </ul>
+ * In rebuild mode, the tree is cleared and all objects inserted again at each
+ * update.
  */
-public class QuadTree {
+public class QuadTree implements BroadPhase {
 
 	public int MAX_OBJECTS = 4;
 	public int MAX_LEVELS = 12;
@@ -32,13 +47,51 @@ public class QuadTree {
 	private float posX, posY, width, height;
 	private QuadTree[] nodes;
 	private int identifiedIndex;
+	/**
+	 * Objects from ancestor nodes during a pairs search.
+	 */
+	private List<Collidable> ancestors;
+
+	/**
+	 * Tree structure: the root node, the parent node and the index of this node
+	 * in its parent.
+	 */
+	private QuadTree root;
+	private QuadTree parent;
+	private int indexInParent = -1;
+
+	/**
+	 * Root only: incremental mode flag, node pool and object to node
+	 * back-references.
+	 */
+	private boolean incremental = false;
+	private Deque<QuadTree> pool;
+	private Map<Collidable, QuadTree> owners;
+
+	/**
+	 * Root only: statistics about the last update.
+	 */
+	private int nodeCount = 1;
+	private int depth = 0;
+	private int allocatedNodes = 0;
+	private int relocated = 0;
+
+	/**
+	 * Root only: parts of the pairs search (see {@link QuadTree#partition(int)}):
+	 * their node, whether they cover the whole subtree of this node or the node
+	 * only, and the objects of the node ancestors.
+	 */
+	private QuadTree[] partNodes = new QuadTree[0];
+	private boolean[] partSubtrees = new boolean[0];
+	private List<List<Collidable>> partAncestors;
+	private int partCount = 0;
 
 	/**
 	 * ideal constructor for making a quadtree that's empty <br>
 	 * simply calls the normal constructor with <code>
 	 * this(0, 0, 0, width, height)
 	 * </code>
-	 * 
+	 *
 	 * @param width  your game world width in units
 	 * @param height your game world height in units
 	 */
@@ -47,7 +100,7 @@ public class QuadTree {
 	}
 
 	/**
-	 * 
+	 *
 	 * @param pLevel start at level 0 if you're creating an empty quadtree
 	 * @param x
 	 * @param y
@@ -62,6 +115,7 @@ public class QuadTree {
 		this.width = width;
 		this.height = height;
 		nodes = new QuadTree[4];
+		root = this;
 	}
 
 	public QuadTree setMaxObjects(int o) {
@@ -74,6 +128,27 @@ public class QuadTree {
 		return this;
 	}
 
+	/**
+	 * Activate the incremental update mode (relocation of moved objects, with
+	 * pooled nodes) or the rebuild one (clear and insert all objects at each
+	 * update).
+	 *
+	 * @param incremental
+	 * @return
+	 */
+	public QuadTree setIncremental(boolean incremental) {
+		clear();
+		this.incremental = incremental;
+		if (incremental) {
+			pool = new ArrayDeque<>();
+			owners = new IdentityHashMap<>();
+		} else {
+			pool = null;
+			owners = null;
+		}
+		return this;
+	}
+
 	public int getChecks() {
 		int num = 0;
 
@@ -97,9 +172,162 @@ public class QuadTree {
 		for (int i = 0; i < nodes.length; i++) {
 			if (nodes[i] != null) {
 				nodes[i].clear();
+				release(nodes[i]);
 				nodes[i] = null;
 			}
 		}
+		if (this == root && owners != null) {
+			owners.clear();
+		}
+	}
+
+	/**
+	 * Update the tree according to the current position of the
+	 * <code>colliders</code>: moved objects are relocated in incremental mode,
+	 * or the whole tree is rebuilt in rebuild mode.
+	 */
+	@Override
+	public void update(List<Collidable> colliders) {
+		allocatedNodes = 0;
+		relocated = 0;
+		if (incremental) {
+			for (int i = 0; i < colliders.size(); i++) {
+				relocate(colliders.get(i));
+			}
+			collapse();
+		} else {
+			clear();
+			for (int i = 0; i < colliders.size(); i++) {
+				insert(colliders.get(i));
+			}
+		}
+		nodeCount = 0;
+		depth = 0;
+		computeStatistics(this);
+	}
+
+	/**
+	 * Move the object <code>c</code> to the node it now belongs to, if it is not
+	 * already there.
+	 *
+	 * @param c
+	 */
+	private void relocate(Collidable c) {
+		QuadTree node = owners.get(c);
+		if (node == null) {
+			insert(c);
+			relocated++;
+			return;
+		}
+		// getIndex() only compares with midpoints of a node, so the whole chain of
+		// ancestors must be checked: target is the highest node where c fits.
+		QuadTree target = node;
+		for (QuadTree n = node; n.parent != null; n = n.parent) {
+			if (n.parent.getIndex(c) != n.indexInParent) {
+				target = n.parent;
+			}
+		}
+		if (target == node && (node.nodes[0] == null || node.getIndex(c) == -1)) {
+			return;
+		}
+		node.objects.remove(c);
+		target.insert(c);
+		relocated++;
+	}
+
+	/**
+	 * Remove the object <code>c</code> from the tree (incremental mode only, the
+	 * tree is rebuilt at each update in rebuild mode).
+	 */
+	@Override
+	public void remove(Collidable c) {
+		if (owners != null) {
+			QuadTree node = owners.remove(c);
+			if (node != null) {
+				node.objects.remove(c);
+			}
+		}
+	}
+
+	/**
+	 * Collapse the subtrees containing less than half of the
+	 * <code>MAX_OBJECTS</code> into their root node.
+	 *
+	 * @return the number of objects in this subtree.
+	 */
+	private int collapse() {
+		int count = objects.size();
+		if (nodes[0] == null) {
+			return count;
+		}
+		for (int i = 0; i < nodes.length; i++) {
+			count += nodes[i].collapse();
+		}
+		if (count <= root.MAX_OBJECTS / 2) {
+			for (int i = 0; i < nodes.length; i++) {
+				QuadTree n = nodes[i];
+				for (int j = 0; j < n.objects.size(); j++) {
+					Collidable c = n.objects.get(j);
+					objects.add(c);
+					root.owners.put(c, this);
+				}
+				n.objects.clear();
+				release(n);
+				nodes[i] = null;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Count nodes and compute depth of the tree.
+	 *
+	 * @param node
+	 */
+	private void computeStatistics(QuadTree node) {
+		nodeCount++;
+		if (node.level > depth) {
+			depth = node.level;
+		}
+		if (node.nodes[0] != null) {
+			for (int i = 0; i < node.nodes.length; i++) {
+				computeStatistics(node.nodes[i]);
+			}
+		}
+	}
+
+	/**
+	 * Retrieve a node from the pool, or create a new one.
+	 */
+	private QuadTree obtain(int pLevel, float x, float y, float w, float h, int index) {
+		QuadTree n = (root.pool != null ? root.pool.poll() : null);
+		if (n == null) {
+			n = new QuadTree(pLevel, x, y, w, h);
+			root.allocatedNodes++;
+		} else {
+			n.level = pLevel;
+			n.posX = x;
+			n.posY = y;
+			n.width = w;
+			n.height = h;
+		}
+		n.root = root;
+		n.parent = this;
+		n.indexInParent = index;
+		return n;
+	}
+
+	/**
+	 * Give back a node to the pool.
+	 *
+	 * @param n
+	 */
+	private void release(QuadTree n) {
+		n.parent = null;
+		n.indexInParent = -1;
+		if (root.pool != null) {
+			root.pool.push(n);
+		}
 	}
 
 	/*
@@ -111,10 +339,10 @@ public class QuadTree {
 		float x = posX;
 		float y = posY;
 
-		nodes[0] = new QuadTree(level + 1, x + subWidth, y, subWidth, subHeight);
-		nodes[1] = new QuadTree(level + 1, x, y, subWidth, subHeight);
-		nodes[2] = new QuadTree(level + 1, x, y + subHeight, subWidth, subHeight);
-		nodes[3] = new QuadTree(level + 1, x + subWidth, y + subHeight, subWidth, subHeight);
+		nodes[0] = obtain(level + 1, x + subWidth, y, subWidth, subHeight, 0);
+		nodes[1] = obtain(level + 1, x, y, subWidth, subHeight, 1);
+		nodes[2] = obtain(level + 1, x, y + subHeight, subWidth, subHeight, 2);
+		nodes[3] = obtain(level + 1, x + subWidth, y + subHeight, subWidth, subHeight, 3);
 	}
 
 	/*
@@ -125,16 +353,16 @@ public class QuadTree {
 		BoundingBox bb = col.getBoundingBox();
 		int index = -1;
 		double verticalMidpoint = posX + (width / 2);
-		double horizontalMidpoint = posY + (width / 2);
+		double horizontalMidpoint = posY + (height / 2);
 
 		// Object can completely fit within the top quadrants
-		boolean topQuadrant = (bb.rect.getX() < horizontalMidpoint
-				&& bb.rect.getY() + bb.rect.getHeight() < horizontalMidpoint);
+		boolean topQuadrant = (bb.minY < horizontalMidpoint
+				&& bb.maxY < horizontalMidpoint);
 		// Object can completely fit within the bottom quadrants
-		boolean bottomQuadrant = (bb.rect.getY() > horizontalMidpoint);
+		boolean bottomQuadrant = (bb.minY > horizontalMidpoint);
 
 		// Object can completely fit within the left quadrants
-		if (bb.rect.getX() < verticalMidpoint && bb.rect.getX() + bb.rect.getWidth() < verticalMidpoint) {
+		if (bb.minX < verticalMidpoint && bb.maxX < verticalMidpoint) {
 			if (topQuadrant) {
 				index = 1;
 			} else if (bottomQuadrant) {
@@ -142,7 +370,7 @@ public class QuadTree {
 			}
 		}
 		// Object can completely fit within the right quadrants
-		else if (bb.rect.getX() > verticalMidpoint) {
+		else if (bb.minX > verticalMidpoint) {
 			if (topQuadrant) {
 				index = 0;
 			} else if (bottomQuadrant) {
@@ -170,8 +398,11 @@ public class QuadTree {
 		}
 
 		objects.add(pRect);
+		if (root.owners != null) {
+			root.owners.put(pRect, this);
+		}
 
-		if (objects.size() > MAX_OBJECTS && level < MAX_LEVELS) {
+		if (objects.size() > root.MAX_OBJECTS && level < root.MAX_LEVELS) {
 			if (nodes[0] == null) {
 				split();
 			}
@@ -188,9 +419,124 @@ public class QuadTree {
 		}
 	}
 
+	/**
+	 * Walk the whole tree once and provide each candidate pair of objects exactly
+	 * once to the <code>processor</code>: objects from a node are paired with the
+	 * other objects of the same node and with all objects of its ancestors.
+	 *
+	 * @param processor the processor to be called for each candidate pair.
+	 */
+	@Override
+	public void findPairs(CollisionPairProcessor processor) {
+		if (ancestors == null) {
+			ancestors = new ArrayList<>();
+		}
+		ancestors.clear();
+		findPairs(ancestors, processor);
+	}
+
+	private void findPairs(List<Collidable> parents, CollisionPairProcessor processor) {
+		findNodePairs(parents, processor);
+		if (nodes[0] != null) {
+			int size = objects.size();
+			int mark = parents.size();
+			for (int i = 0; i < size; i++) {
+				parents.add(objects.get(i));
+			}
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i].findPairs(parents, processor);
+			}
+			for (int i = parents.size() - 1; i >= mark; i--) {
+				parents.remove(i);
+			}
+		}
+	}
+
+	/**
+	 * Provide the pairs of the objects of this node, with each other and with the
+	 * <code>parents</code> objects.
+	 */
+	private void findNodePairs(List<Collidable> parents, CollisionPairProcessor processor) {
+		int size = objects.size();
+		for (int i = 0; i < size; i++) {
+			Collidable c = objects.get(i);
+			for (int j = i + 1; j < size; j++) {
+				processor.processPair(c, objects.get(j));
+			}
+			for (int j = 0; j < parents.size(); j++) {
+				processor.processPair(parents.get(j), c);
+			}
+		}
+	}
+
+	/**
+	 * Split the pairs search by subtrees: the nodes down to the depth giving at
+	 * least <code>parts</code> subtrees are each a part for their own objects, and
+	 * the subtrees under them a part each. Parts are numbered in the
+	 * {@link QuadTree#findPairs(CollisionPairProcessor)} walk order.
+	 *
+	 * @param parts the wanted number of parts.
+	 * @return the actual number of parts.
+	 */
+	@Override
+	public int partition(int parts) {
+		if (partAncestors == null) {
+			partAncestors = new ArrayList<>();
+		}
+		int depth = 0;
+		for (int subtrees = 1; subtrees < parts && depth < MAX_LEVELS; subtrees *= 4) {
+			depth++;
+		}
+		partCount = 0;
+		addParts(this, depth);
+		return partCount;
+	}
+
+	@Override
+	public void findPairs(int part, CollisionPairProcessor processor) {
+		QuadTree node = partNodes[part];
+		List<Collidable> parents = partAncestors.get(part);
+		if (partSubtrees[part]) {
+			// restores the parents list before returning.
+			node.findPairs(parents, processor);
+		} else {
+			node.findNodePairs(parents, processor);
+		}
+	}
+
+	/**
+	 * Add the <code>node</code> as a part, then its children as parts down to
+	 * <code>depth</code> levels (root only).
+	 */
+	private void addParts(QuadTree node, int depth) {
+		boolean subtree = (depth == 0 || node.nodes[0] == null);
+		if (partCount == partNodes.length) {
+			int length = Math.max(16, partCount * 2);
+			partNodes = Arrays.copyOf(partNodes, length);
+			partSubtrees = Arrays.copyOf(partSubtrees, length);
+		}
+		if (partCount == partAncestors.size()) {
+			partAncestors.add(new ArrayList<Collidable>());
+		}
+		List<Collidable> ancestorObjects = partAncestors.get(partCount);
+		ancestorObjects.clear();
+		for (QuadTree n = node.parent; n != null; n = n.parent) {
+			ancestorObjects.addAll(0, n.objects);
+		}
+		partNodes[partCount] = node;
+		partSubtrees[partCount] = subtree;
+		partCount++;
+		if (!subtree) {
+			for (int i = 0; i < node.nodes.length; i++) {
+				addParts(node.nodes[i], depth - 1);
+			}
+		}
+	}
+
 	/*
 	 * Return all objects that could collide with the given object
 	 */
+	@Override
 	public List<Collidable> retrieve(List<Collidable> returnObjects, Collidable pRect) {
 		int index = getIndex(pRect);
 		if (index != -1 && nodes[0] != null) {
@@ -202,20 +548,94 @@ public class QuadTree {
 		return returnObjects;
 	}
 
-	public void draw(Graphics2D g) {
+	@Override
+	public List<Collidable> query(List<Collidable> returnObjects, float minX, float minY, float maxX, float maxY) {
+		for (int i = 0; i < objects.size(); i++) {
+			Collidable c = objects.get(i);
+			BoundingBox bb = c.getBoundingBox();
+			if (bb.minX <= maxX && bb.maxX >= minX && bb.minY <= maxY && bb.maxY >= minY) {
+				returnObjects.add(c);
+			}
+		}
+		if (nodes[0] != null) {
+			for (int i = 0; i < nodes.length; i++) {
+				QuadTree n = nodes[i];
+				if (n.posX <= maxX && n.posX + n.width >= minX && n.posY <= maxY && n.posY + n.height >= minY) {
+					n.query(returnObjects, minX, minY, maxX, maxY);
+				}
+			}
+		}
+		return returnObjects;
+	}
+
+	@Override
+	public void outline(Path2D normal, Path2D highlighted) {
 
 		for (int i = 0; i < nodes.length; i++) {
 			QuadTree n = nodes[i];
 			if (n != null) {
-				if (i == n.identifiedIndex) {
-					g.setColor(Color.ORANGE);
-				} else {
-					g.setColor(Color.BLUE);
-				}
-				g.drawRect((int) n.posX, (int) n.posY, (int) n.width, (int) n.height);
-				n.draw(g);
+				Path2D p = (i == n.identifiedIndex ? highlighted : normal);
+				float x = (int) n.posX, y = (int) n.posY;
+				float w = (int) n.width, h = (int) n.height;
+				p.moveTo(x, y);
+				p.lineTo(x + w, y);
+				p.lineTo(x + w, y + h);
+				p.lineTo(x, y + h);
+				p.closePath();
+				n.outline(normal, highlighted);
 			}
 		}
 	}
 
+	/**
+	 * Number of nodes in the tree after the last update.
+	 *
+	 * @return
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Depth of the tree after the last update.
+	 *
+	 * @return
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Number of nodes created (not taken from the pool) during the last update.
+	 *
+	 * @return
+	 */
+	public int getAllocatedNodes() {
+		return allocatedNodes;
+	}
+
+	/**
+	 * Number of released nodes waiting in the pool to be reused (incremental mode).
+	 *
+	 * @return
+	 */
+	public int getPooledNodes() {
+		return (pool != null ? pool.size() : 0);
+	}
+
+	/**
+	 * Number of objects (re)inserted during the last update.
+	 *
+	 * @return
+	 */
+	public int getRelocated() {
+		return relocated;
+	}
+
+	@Override
+	public String getStatistics() {
+		return String.format("quadtree[%s] nodes:%d depth:%d allocated:%d relocated:%d",
+				(incremental ? "incremental" : "rebuild"), nodeCount, depth, allocatedNodes, relocated);
+	}
+
 }
@@ -0,0 +1,414 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.collision;
+
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A uniform grid broad phase: the play zone is divided into square cells, and
+ * each object is registered into all the cells its bounding box overlaps. Cells
+ * are addressed by a primitive <code>int</code> key
+ * (<code>cy * cols + cx</code>) and contain the <code>int</code> ids of their
+ * objects.
+ * <p>
+ * The structure is updated incrementally: only objects whose range of cells has
+ * changed since the previous update are moved from their old cells to the new
+ * ones.
+ * <p>
+ * If the cell size is not set (<code>cellSize &lt;= 0</code>), it is computed
+ * at first update as twice the average size of the bounding boxes.
+ *
+ * @author Frédéric Delorme
+ *
+ * @see BroadPhase
+ */
+public class SpatialHashGrid implements BroadPhase {
+
+	private static final Logger logger = LoggerFactory.getLogger(SpatialHashGrid.class);
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private float width, height;
+	private float cellSize;
+	private int cols, rows;
+
+	/**
+	 * object ids registered in each cell.
+	 */
+	private int[][] cells;
+	/**
+	 * number of objects in each cell.
+	 */
+	private int[] cellCounts;
+
+	/**
+	 * Objects and their cell range, indexed by id.
+	 */
+	private Collidable[] items = new Collidable[INITIAL_CAPACITY];
+	private int[] minCx = new int[INITIAL_CAPACITY];
+	private int[] minCy = new int[INITIAL_CAPACITY];
+	private int[] maxCx = new int[INITIAL_CAPACITY];
+	private int[] maxCy = new int[INITIAL_CAPACITY];
+	private int[] stamps = new int[INITIAL_CAPACITY];
+	private int stamp = 0;
+
+	/**
+	 * Free ids to be reused.
+	 */
+	private int[] freeIds = new int[INITIAL_CAPACITY];
+	private int freeCount = 0;
+	private int nextId = 0;
+
+	private Map<Collidable, Integer> ids = new IdentityHashMap<>();
+
+	/**
+	 * Number of objects which changed of cells during the last update.
+	 */
+	private int moved = 0;
+
+	/**
+	 * Number of rows of cells per part of the pairs search.
+	 */
+	private int bandRows = 1;
+
+	/**
+	 * Create a new grid covering <code>(0,0)-(width,height)</code>.
+	 *
+	 * @param width    width of the zone.
+	 * @param height   height of the zone.
+	 * @param cellSize size of a cell, or 0 to compute it from the objects size.
+	 */
+	public SpatialHashGrid(float width, float height, float cellSize) {
+		this.width = width;
+		this.height = height;
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Create the cells according to the <code>size</code> of a cell.
+	 *
+	 * @param size
+	 */
+	private void createCells(float size) {
+		cellSize = size;
+		cols = Math.max(1, (int) Math.ceil(width / cellSize));
+		rows = Math.max(1, (int) Math.ceil(height / cellSize));
+		cells = new int[cols * rows][];
+		cellCounts = new int[cols * rows];
+		logger.info("Spatial hash grid created with {}x{} cells of {}", cols, rows, cellSize);
+	}
+
+	/**
+	 * Compute a cell size from the average size of the bounding boxes.
+	 *
+	 * @param colliders
+	 * @return
+	 */
+	private float computeCellSize(List<Collidable> colliders) {
+		double sum = 0;
+		for (int i = 0; i < colliders.size(); i++) {
+			BoundingBox bb = colliders.get(i).getBoundingBox();
+			sum += Math.max(bb.width, bb.height);
+		}
+		return (float) Math.max(1.0, 2.0 * sum / colliders.size());
+	}
+
+	@Override
+	public void update(List<Collidable> colliders) {
+		if (cells == null) {
+			if (colliders.isEmpty()) {
+				return;
+			}
+			createCells(cellSize > 0 ? cellSize : computeCellSize(colliders));
+		}
+		moved = 0;
+		for (int i = 0; i < colliders.size(); i++) {
+			Collidable c = colliders.get(i);
+			BoundingBox bb = c.getBoundingBox();
+			int x0 = cellX(bb.minX);
+			int y0 = cellY(bb.minY);
+			int x1 = cellX(bb.maxX);
+			int y1 = cellY(bb.maxY);
+
+			Integer id = ids.get(c);
+			if (id == null) {
+				int n = allocate(c);
+				ids.put(c, n);
+				setRange(n, x0, y0, x1, y1);
+				place(n);
+				moved++;
+			} else {
+				int n = id;
+				if (minCx[n] != x0 || minCy[n] != y0 || maxCx[n] != x1 || maxCy[n] != y1) {
+					unplace(n);
+					setRange(n, x0, y0, x1, y1);
+					place(n);
+					moved++;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void remove(Collidable c) {
+		Integer id = ids.remove(c);
+		if (id != null) {
+			int n = id;
+			unplace(n);
+			items[n] = null;
+			if (freeCount == freeIds.length) {
+				freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+			}
+			freeIds[freeCount++] = n;
+		}
+	}
+
+	@Override
+	public void findPairs(CollisionPairProcessor processor) {
+		if (cells == null) {
+			return;
+		}
+		findPairs(0, cells.length, processor);
+	}
+
+	/**
+	 * Split the pairs search by bands of rows of cells.
+	 *
+	 * @param parts the wanted number of parts.
+	 * @return the actual number of parts.
+	 */
+	@Override
+	public int partition(int parts) {
+		if (cells == null) {
+			bandRows = 1;
+			return 0;
+		}
+		int bands = Math.max(1, Math.min(parts, rows));
+		bandRows = (rows + bands - 1) / bands;
+		return (rows + bandRows - 1) / bandRows;
+	}
+
+	@Override
+	public void findPairs(int part, CollisionPairProcessor processor) {
+		int from = part * bandRows * cols;
+		findPairs(from, Math.min(cells.length, from + bandRows * cols), processor);
+	}
+
+	/**
+	 * Provide the pairs first shared in the cells from <code>from</code>
+	 * (included) to <code>to</code> (excluded).
+	 */
+	private void findPairs(int from, int to, CollisionPairProcessor processor) {
+		for (int key = from; key < to; key++) {
+			int count = cellCounts[key];
+			if (count < 2) {
+				continue;
+			}
+			int cx = key % cols;
+			int cy = key / cols;
+			int[] cell = cells[key];
+			for (int a = 0; a < count; a++) {
+				int ia = cell[a];
+				for (int b = a + 1; b < count; b++) {
+					int ib = cell[b];
+					// a pair sharing several cells is only reported by the first shared one.
+					if (Math.max(minCx[ia], minCx[ib]) == cx && Math.max(minCy[ia], minCy[ib]) == cy) {
+						processor.processPair(items[ia], items[ib]);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public List<Collidable> retrieve(List<Collidable> returnObjects, Collidable c) {
+		if (cells == null) {
+			return returnObjects;
+		}
+		BoundingBox bb = c.getBoundingBox();
+		stamp++;
+		for (int cy = cellY(bb.minY); cy <= cellY(bb.maxY); cy++) {
+			for (int cx = cellX(bb.minX); cx <= cellX(bb.maxX); cx++) {
+				int key = cy * cols + cx;
+				int[] cell = cells[key];
+				for (int i = 0; i < cellCounts[key]; i++) {
+					int n = cell[i];
+					if (stamps[n] != stamp && items[n] != c) {
+						stamps[n] = stamp;
+						returnObjects.add(items[n]);
+					}
+				}
+			}
+		}
+		return returnObjects;
+	}
+
+	@Override
+	public List<Collidable> query(List<Collidable> returnObjects, float minX, float minY, float maxX, float maxY) {
+		if (cells == null) {
+			return returnObjects;
+		}
+		stamp++;
+		for (int cy = cellY(minY); cy <= cellY(maxY); cy++) {
+			for (int cx = cellX(minX); cx <= cellX(maxX); cx++) {
+				int key = cy * cols + cx;
+				int[] cell = cells[key];
+				for (int i = 0; i < cellCounts[key]; i++) {
+					int n = cell[i];
+					if (stamps[n] != stamp) {
+						stamps[n] = stamp;
+						BoundingBox bb = items[n].getBoundingBox();
+						if (bb.minX <= maxX && bb.maxX >= minX && bb.minY <= maxY && bb.maxY >= minY) {
+							returnObjects.add(items[n]);
+						}
+					}
+				}
+			}
+		}
+		return returnObjects;
+	}
+
+	@Override
+	public void outline(Path2D normal, Path2D highlighted) {
+		if (cells == null) {
+			return;
+		}
+		float size = (int) cellSize;
+		for (int key = 0; key < cells.length; key++) {
+			if (cellCounts[key] > 0) {
+				Path2D p = (cellCounts[key] > 1 ? highlighted : normal);
+				float x = (int) ((key % cols) * cellSize), y = (int) ((key / cols) * cellSize);
+				p.moveTo(x, y);
+				p.lineTo(x + size, y);
+				p.lineTo(x + size, y + size);
+				p.lineTo(x, y + size);
+				p.closePath();
+			}
+		}
+	}
+
+	@Override
+	public String getStatistics() {
+		return String.format("grid cells:%dx%d size:%.1f objects:%d moved:%d", cols, rows, cellSize, ids.size(),
+				moved);
+	}
+
+	/**
+	 * Number of objects which changed of cells during the last update.
+	 *
+	 * @return
+	 */
+	public int getMoved() {
+		return moved;
+	}
+
+	/**
+	 * Return the size of a cell.
+	 *
+	 * @return
+	 */
+	public float getCellSize() {
+		return cellSize;
+	}
+
+	private int cellX(double x) {
+		int cx = (int) (x / cellSize);
+		return (cx < 0 ? 0 : (cx >= cols ? cols - 1 : cx));
+	}
+
+	private int cellY(double y) {
+		int cy = (int) (y / cellSize);
+		return (cy < 0 ? 0 : (cy >= rows ? rows - 1 : cy));
+	}
+
+	/**
+	 * Get a free id for the object <code>c</code>.
+	 *
+	 * @param c
+	 * @return
+	 */
+	private int allocate(Collidable c) {
+		int n;
+		if (freeCount > 0) {
+			n = freeIds[--freeCount];
+		} else {
+			n = nextId++;
+			if (n == items.length) {
+				int capacity = items.length * 2;
+				items = Arrays.copyOf(items, capacity);
+				minCx = Arrays.copyOf(minCx, capacity);
+				minCy = Arrays.copyOf(minCy, capacity);
+				maxCx = Arrays.copyOf(maxCx, capacity);
+				maxCy = Arrays.copyOf(maxCy, capacity);
+				stamps = Arrays.copyOf(stamps, capacity);
+			}
+		}
+		items[n] = c;
+		stamps[n] = 0;
+		return n;
+	}
+
+	private void setRange(int n, int x0, int y0, int x1, int y1) {
+		minCx[n] = x0;
+		minCy[n] = y0;
+		maxCx[n] = x1;
+		maxCy[n] = y1;
+	}
+
+	/**
+	 * Add the object <code>n</code> to all the cells of its range.
+	 *
+	 * @param n
+	 */
+	private void place(int n) {
+		for (int cy = minCy[n]; cy <= maxCy[n]; cy++) {
+			for (int cx = minCx[n]; cx <= maxCx[n]; cx++) {
+				int key = cy * cols + cx;
+				int[] cell = cells[key];
+				if (cell == null) {
+					cell = cells[key] = new int[4];
+				} else if (cellCounts[key] == cell.length) {
+					cell = cells[key] = Arrays.copyOf(cell, cell.length * 2);
+				}
+				cell[cellCounts[key]++] = n;
+			}
+		}
+	}
+
+	/**
+	 * Remove the object <code>n</code> from all the cells of its range.
+	 *
+	 * @param n
+	 */
+	private void unplace(int n) {
+		for (int cy = minCy[n]; cy <= maxCy[n]; cy++) {
+			for (int cx = minCx[n]; cx <= maxCx[n]; cx++) {
+				int key = cy * cols + cx;
+				int[] cell = cells[key];
+				int count = cellCounts[key];
+				for (int i = 0; i < count; i++) {
+					if (cell[i] == n) {
+						cell[i] = cell[count - 1];
+						cellCounts[key] = count - 1;
+						break;
+					}
+				}
+			}
+		}
+	}
+}
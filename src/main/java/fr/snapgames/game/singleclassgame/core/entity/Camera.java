@@ -27,6 +27,11 @@ public class Camera extends GameObject {
 	private Dimension view = new Dimension(0, 0);
 	public double angle = 0.0f;
 
+	/**
+	 * The world area visible through the camera, computed at rendering time.
+	 */
+	public float visibleMinX, visibleMinY, visibleMaxX, visibleMaxY;
+
 	public Camera(Game game, String name) {
 		super(game, name);
 	}
@@ -43,8 +48,10 @@ public class Camera extends GameObject {
 	@Override
 	public void updatePhysic(float dt) {
 		if (trackedObject != null) {
-			this.position.x += (trackedObject.position.x - (view.width / 2) - this.position.x) * tween * dt;
-			this.position.y += (trackedObject.position.y - (view.height / 2) - this.position.y) * tween * dt;
+			this.oldPosition.x = this.position.x;
+			this.oldPosition.y = this.position.y;
+			this.position.x += (trackedObject.getX() - (view.width / 2) - this.position.x) * tween * dt;
+			this.position.y += (trackedObject.getY() - (view.height / 2) - this.position.y) * tween * dt;
 		} else {
 			this.updatePhysic(dt);
 		}
@@ -59,12 +66,26 @@ public class Camera extends GameObject {
 	@Override
 	public void render(Graphics2D g) {
 		if (game.debug > 1) {
-			g.setColor(Color.ORANGE);
-			g.drawRect(16, 16, view.width - 32, view.height - 32);
-			g.drawString(name, 16, 16);
+			drawView(g, view.width, view.height, name);
 		}
 	}
 
+	/**
+	 * Draw the debug frame of a camera view of <code>width x height</code>
+	 * pixels, named <code>name</code>. Also used by the render thread from a
+	 * copy of the camera.
+	 *
+	 * @param g      the Graphics API, not translated.
+	 * @param width  the view width.
+	 * @param height the view height.
+	 * @param name   the camera name.
+	 */
+	public static void drawView(Graphics2D g, int width, int height, String name) {
+		g.setColor(Color.ORANGE);
+		g.drawRect(16, 16, width - 32, height - 32);
+		g.drawString(name, 16, 16);
+	}
+
 	/**
 	 * set the game view for camera position computation.
 	 *
@@ -76,6 +97,46 @@ public class Camera extends GameObject {
 		return this;
 	}
 
+	/**
+	 * Return the game view for this camera.
+	 *
+	 * @return
+	 */
+	public Dimension getView() {
+		return view;
+	}
+
+	/**
+	 * Compute the world area visible through the camera view at
+	 * <code>(camX,camY)</code>, as the bounds of the view rotated by the camera
+	 * <code>angle</code>, extended by a <code>margin</code>.
+	 *
+	 * @param camX   the rendered camera horizontal position.
+	 * @param camY   the rendered camera vertical position.
+	 * @param margin the margin to be added around the view.
+	 */
+	public void computeVisibleArea(float camX, float camY, float margin) {
+		float cos = (float) Math.cos(angle);
+		float sin = (float) Math.sin(angle);
+		visibleMinX = visibleMinY = Float.MAX_VALUE;
+		visibleMaxX = visibleMaxY = -Float.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			// the rendering transform is translate(-cam) then rotate(-angle).
+			float sx = camX + (i == 1 || i == 2 ? view.width : 0);
+			float sy = camY + (i > 1 ? view.height : 0);
+			float wx = sx * cos - sy * sin;
+			float wy = sx * sin + sy * cos;
+			visibleMinX = Math.min(visibleMinX, wx);
+			visibleMinY = Math.min(visibleMinY, wy);
+			visibleMaxX = Math.max(visibleMaxX, wx);
+			visibleMaxY = Math.max(visibleMaxY, wy);
+		}
+		visibleMinX -= margin;
+		visibleMinY -= margin;
+		visibleMaxX += margin;
+		visibleMaxY += margin;
+	}
+
 	/**
 	 * Add a target to the camera.
 	 *
@@ -0,0 +1,307 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.entity;
+
+import java.awt.Dimension;
+import java.util.Arrays;
+import java.util.List;
+
+import fr.snapgames.game.singleclassgame.core.math.Vector2D;
+
+/**
+ * <p>
+ * The {@link EntityStore} is a data oriented storage for the {@link GameObject}
+ * physic attributes. Each attribute is stored into a primitive array, indexed
+ * by the <code>entityId</code> of the object:
+ * <ul>
+ * <li><code>px,py</code> the position, <code>opx,opy</code> the previous
+ * position,
+ * <li><code>vx,vy</code> the velocity,
+ * <li><code>ax,ay</code> the acceleration,
+ * <li><code>fx,fy</code> the forces accumulated for the next update (see
+ * {@link GameObject#addForce(float, float)}), and <code>cfx,cfy</code> the sum
+ * of the constant forces of the object when it was added,
+ * <li><code>w,h</code> the size,
+ * <li><code>mass</code>, <code>friction</code> and <code>elasticity</code> the
+ * material characteristics,
+ * <li><code>life</code> the remaining life duration.
+ * </ul>
+ * <p>
+ * The arrays are the only copy of those attributes while the object is
+ * stored: the {@link GameObject} accessors (<code>getX()</code>,
+ * <code>setVelocity()</code>, ...) read and write them at the object
+ * <code>entityId</code>, so that the physic integration and the play zone
+ * constraint are computed with linear sweeps, without any copy from or to the
+ * objects. The attributes are copied from the object when it is added, and
+ * back to it when it is removed.
+ *
+ * @author Frédéric Delorme<frederic.delorme@snapgames.fr>
+ */
+public class EntityStore {
+
+	/**
+	 * Default capacity of the store.
+	 */
+	private static final int DEFAULT_CAPACITY = 256;
+
+	/**
+	 * Number of entities in the store.
+	 */
+	public int size = 0;
+
+	/**
+	 * The views on entities.
+	 */
+	public GameObject[] objects;
+
+	public float[] px, py, opx, opy;
+	public float[] vx, vy;
+	public float[] ax, ay;
+	public float[] fx, fy;
+	public float[] cfx, cfy;
+	public float[] w, h;
+	public float[] mass, friction, elasticity;
+	public int[] life;
+
+	/**
+	 * Create a store with a default capacity.
+	 */
+	public EntityStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a store with an initial <code>capacity</code>.
+	 *
+	 * @param capacity the initial number of entities the store can contain.
+	 */
+	public EntityStore(int capacity) {
+		allocate(Math.max(capacity, 1));
+	}
+
+	/**
+	 * (Re)Allocate all the arrays to <code>capacity</code>, keeping existing
+	 * values.
+	 *
+	 * @param capacity
+	 */
+	private void allocate(int capacity) {
+		objects = (objects == null ? new GameObject[capacity] : Arrays.copyOf(objects, capacity));
+		px = grow(px, capacity);
+		py = grow(py, capacity);
+		opx = grow(opx, capacity);
+		opy = grow(opy, capacity);
+		vx = grow(vx, capacity);
+		vy = grow(vy, capacity);
+		ax = grow(ax, capacity);
+		ay = grow(ay, capacity);
+		fx = grow(fx, capacity);
+		fy = grow(fy, capacity);
+		cfx = grow(cfx, capacity);
+		cfy = grow(cfy, capacity);
+		w = grow(w, capacity);
+		h = grow(h, capacity);
+		mass = grow(mass, capacity);
+		friction = grow(friction, capacity);
+		elasticity = grow(elasticity, capacity);
+		life = (life == null ? new int[capacity] : Arrays.copyOf(life, capacity));
+	}
+
+	private static float[] grow(float[] array, int capacity) {
+		return (array == null ? new float[capacity] : Arrays.copyOf(array, capacity));
+	}
+
+	/**
+	 * Add the GameObject <code>o</code> to the store, copying its attributes.
+	 * Its <code>entityId</code> is set to its index in the store.
+	 *
+	 * @param o the GameObject to be added.
+	 * @return the entity id.
+	 */
+	public int add(GameObject o) {
+		if (o.store != null) {
+			return o.entityId;
+		}
+		if (size == objects.length) {
+			allocate(objects.length * 2);
+		}
+		int id = size++;
+		objects[id] = o;
+		load(id);
+		o.entityId = id;
+		o.store = this;
+		return id;
+	}
+
+	/**
+	 * Remove the GameObject <code>o</code> from the store. The last entity is
+	 * moved to the freed index.
+	 *
+	 * @param o the GameObject to be removed.
+	 */
+	public void remove(GameObject o) {
+		int id = o.entityId;
+		if (id < 0 || id >= size || objects[id] != o) {
+			return;
+		}
+		unload(id);
+		int last = --size;
+		if (id != last) {
+			objects[id] = objects[last];
+			objects[id].entityId = id;
+			px[id] = px[last];
+			py[id] = py[last];
+			opx[id] = opx[last];
+			opy[id] = opy[last];
+			vx[id] = vx[last];
+			vy[id] = vy[last];
+			ax[id] = ax[last];
+			ay[id] = ay[last];
+			fx[id] = fx[last];
+			fy[id] = fy[last];
+			cfx[id] = cfx[last];
+			cfy[id] = cfy[last];
+			w[id] = w[last];
+			h[id] = h[last];
+			mass[id] = mass[last];
+			friction[id] = friction[last];
+			elasticity[id] = elasticity[last];
+			life[id] = life[last];
+		}
+		objects[last] = null;
+	}
+
+	/**
+	 * Copy the attributes of the object <code>id</code> into the store.
+	 *
+	 * @param id
+	 */
+	private void load(int id) {
+		GameObject o = objects[id];
+		opx[id] = o.oldPosition.x;
+		opy[id] = o.oldPosition.y;
+		px[id] = o.position.x;
+		py[id] = o.position.y;
+		vx[id] = o.velocity.x;
+		vy[id] = o.velocity.y;
+		ax[id] = o.acceleration.x;
+		ay[id] = o.acceleration.y;
+		w[id] = o.width;
+		h[id] = o.height;
+		mass[id] = o.mass;
+		friction[id] = o.friction;
+		elasticity[id] = o.elasticity;
+		life[id] = o.lifeDuration;
+		fx[id] = o.forceX;
+		fy[id] = o.forceY;
+		float sx = 0.0f, sy = 0.0f;
+		List<Vector2D> forces = o.forces;
+		for (int f = 0; f < forces.size(); f++) {
+			Vector2D v = forces.get(f);
+			sx += v.x;
+			sy += v.y;
+		}
+		cfx[id] = sx;
+		cfy[id] = sy;
+	}
+
+	/**
+	 * Copy the attributes of the object <code>id</code> back to it, and detach
+	 * it from the store.
+	 *
+	 * @param id
+	 */
+	private void unload(int id) {
+		GameObject o = objects[id];
+		o.store = null;
+		o.entityId = -1;
+		o.oldPosition.x = opx[id];
+		o.oldPosition.y = opy[id];
+		o.position.x = px[id];
+		o.position.y = py[id];
+		o.velocity.x = vx[id];
+		o.velocity.y = vy[id];
+		o.acceleration.x = ax[id];
+		o.acceleration.y = ay[id];
+		o.width = w[id];
+		o.height = h[id];
+		o.lifeDuration = life[id];
+		o.forceX = fx[id];
+		o.forceY = fy[id];
+	}
+
+	/**
+	 * Integrate physic for all entities, the same way
+	 * {@link GameObject#updatePhysic(float)} does, and reset their accumulated
+	 * forces.
+	 *
+	 * @param world the world providing the global forces.
+	 * @param dt    the elapsed time since previous update.
+	 */
+	public void integrate(World world, float dt) {
+		float wfx = 0.0f, wfy = 0.0f;
+		for (int f = 0; f < world.forces.size(); f++) {
+			Vector2D v = world.forces.get(f);
+			wfx += v.x;
+			wfy += v.y;
+		}
+		final float t = dt;
+		final float t2 = dt * dt;
+		for (int i = 0; i < size; i++) {
+			opx[i] = px[i];
+			opy[i] = py[i];
+			life[i]--;
+
+			float k = friction[i] / mass[i] * t;
+			float nax = (ax[i] + fx[i] + cfx[i] + wfx) * k;
+			float nay = (ay[i] + fy[i] + cfy[i] + wfy) * k;
+			ax[i] = nax;
+			ay[i] = nay;
+			fx[i] = 0.0f;
+			fy[i] = 0.0f;
+
+			float nvx = vx[i] + nax * t2;
+			float nvy = vy[i] + nay * t2;
+
+			px[i] += 0.5f * nvx * t;
+			py[i] += 0.5f * nvy * t;
+
+			vx[i] = (Math.abs(nvx) < 0.01f ? 0.0f : nvx);
+			vy[i] = (Math.abs(nvy) < 0.01f ? 0.0f : nvy);
+		}
+	}
+
+	/**
+	 * Constrain all entities into the <code>zone</code>, bouncing on its borders
+	 * according to their elasticity.
+	 *
+	 * @param zone the zone where to constrain entities.
+	 */
+	public void constrain(Dimension zone) {
+		for (int i = 0; i < size; i++) {
+			if (px[i] < 0) {
+				px[i] = 0;
+				vx[i] *= -elasticity[i];
+			}
+			if (py[i] < 0) {
+				py[i] = 0;
+				vy[i] *= -elasticity[i];
+			}
+			if (px[i] > zone.width - w[i]) {
+				px[i] = zone.width - w[i];
+				vx[i] *= -elasticity[i];
+			}
+			if (py[i] > zone.height - h[i]) {
+				py[i] = zone.height - h[i];
+				vy[i] *= -elasticity[i];
+			}
+		}
+	}
+}
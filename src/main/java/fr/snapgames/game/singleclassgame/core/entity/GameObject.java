@@ -14,12 +14,13 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 import fr.snapgames.game.singleclassgame.Game;
 import fr.snapgames.game.singleclassgame.core.collision.BoundingBox;
 import fr.snapgames.game.singleclassgame.core.collision.BoundingBoxType;
 import fr.snapgames.game.singleclassgame.core.collision.Collidable;
+import fr.snapgames.game.singleclassgame.core.graphics.DebugInfo;
+import fr.snapgames.game.singleclassgame.core.graphics.RenderQueue;
 import fr.snapgames.game.singleclassgame.core.math.Vector2D;
 
 /**
@@ -37,7 +38,10 @@ import fr.snapgames.game.singleclassgame.core.math.Vector2D;
  * <p>
  * Some attributes to compute more realistic physical things:
  * <ul>
- * <li><code>forces</code> used to compute physic behavior,
+ * <li><code>forces</code> constant forces specific to this object, applied at
+ * each update,
+ * <li><code>forceX,forceY</code> the forces accumulated for the next update
+ * (see {@link GameObject#addForce(float, float)}),
  * </ul>
  * <p>
  * But also some material characteristics as:
@@ -57,18 +61,40 @@ public class GameObject implements Collidable {
 
 	public String name = "";
 
+	/**
+	 * The {@link EntityStore} holding this object, and its index in the store,
+	 * or -1 if not stored.
+	 * <p>
+	 * While stored, the position, previous position, velocity, acceleration,
+	 * size and life duration live in the store arrays only: they must be read
+	 * and written through the accessors (<code>getX()</code>,
+	 * <code>setVelocity()</code>, ...), the vectors and fields below being
+	 * updated again when the object is removed from the store.
+	 */
+	public EntityStore store;
+	public int entityId = -1;
+
 	/**
 	 * Next generation GameObject ---- Start here ---->
 	 */
 	public Vector2D acceleration = new Vector2D("acceleration");
 	public Vector2D velocity = new Vector2D("velocity");
 	public Vector2D position = new Vector2D("position");
+	/**
+	 * position before the last physic update, used to interpolate rendering.
+	 */
+	public Vector2D oldPosition = new Vector2D("oldPosition");
 
 	public Vector2D offset = new Vector2D("offset");
 	public Vector2D size = new Vector2D("size");
 
 	public List<Vector2D> forces = new ArrayList<>();
 
+	/**
+	 * Forces accumulated since the last physic update.
+	 */
+	public float forceX = 0.0f, forceY = 0.0f;
+
 	public float scale = 1.0f;
 
 	public float width = 16.0f, height = 16.0f;
@@ -87,11 +113,23 @@ public class GameObject implements Collidable {
 
 	public Color debugColor = Color.ORANGE;
 
+	/**
+	 * Debug texts, the numeric ones being formatted again only when
+	 * {@link Game#debugRefresh} is set.
+	 */
+	private String debugName, debugNameText;
+	private String debugVelocity, debugAcceleration, debugLife;
+	private DebugInfo debugInfo;
+
 	public Color color = Color.GREEN;
 
 	public BoundingBox bBox;
 
-	public List<Collidable> colliders = new CopyOnWriteArrayList<>();
+	/**
+	 * Objects colliding with this one during the last collision pass. Only
+	 * modified by the game loop thread.
+	 */
+	public List<Collidable> colliders = new ArrayList<>();
 
 	public boolean collidingResponseProcessed;
 
@@ -125,24 +163,36 @@ public class GameObject implements Collidable {
 
 	/**
 	 * Update all physic according the <code>elapsed</code> time since previous
-	 * call.
+	 * call, for an object out of any {@link EntityStore} (stored objects are
+	 * updated by {@link EntityStore#integrate(World, float)}).
 	 *
 	 * @param elapsed time elapsed since previous call.
 	 */
 	public void updatePhysic(float dt) {
 
 		float t = dt * 1f;
+		oldPosition.x = position.x;
+		oldPosition.y = position.y;
 		// -- update the life of this object (in 1/60 sec.)
 		lifeDuration--;
 
 		// -- Update Physics (System)
-		// if (forces != null && world != null) {
-		forces.addAll(game.world.forces);
-		for (Vector2D v : forces) {
-			acceleration = acceleration.add(v);
+		float fx = forceX, fy = forceY;
+		for (int i = 0; i < forces.size(); i++) {
+			Vector2D v = forces.get(i);
+			fx += v.x;
+			fy += v.y;
 		}
-		// }
-		acceleration = acceleration.multiply(friction).multiply(1.0f / mass).multiply(t);
+		List<Vector2D> worldForces = game.world.forces;
+		for (int i = 0; i < worldForces.size(); i++) {
+			Vector2D v = worldForces.get(i);
+			fx += v.x;
+			fy += v.y;
+		}
+		float k = friction / mass * t;
+		acceleration.x = (acceleration.x + fx) * k;
+		acceleration.y = (acceleration.y + fy) * k;
+		clearForces();
 		// compute velocity
 		velocity.x += (acceleration.x * t * t);
 		velocity.y += (acceleration.y * t * t);
@@ -161,6 +211,138 @@ public class GameObject implements Collidable {
 
 	}
 
+	/**
+	 * Accumulate a force to be applied at next physic update.
+	 *
+	 * @param fx X component of the force
+	 * @param fy Y component of the force
+	 * @return this object.
+	 */
+	public GameObject addForce(float fx, float fy) {
+		if (store != null) {
+			store.fx[entityId] += fx;
+			store.fy[entityId] += fy;
+		} else {
+			this.forceX += fx;
+			this.forceY += fy;
+		}
+		return this;
+	}
+
+	/**
+	 * Reset the accumulated forces.
+	 *
+	 * @return this object.
+	 */
+	public GameObject clearForces() {
+		if (store != null) {
+			store.fx[entityId] = 0.0f;
+			store.fy[entityId] = 0.0f;
+		}
+		this.forceX = 0.0f;
+		this.forceY = 0.0f;
+		return this;
+	}
+
+	/**
+	 * Horizontal position.
+	 *
+	 * @return
+	 */
+	public float getX() {
+		return (store != null ? store.px[entityId] : position.x);
+	}
+
+	/**
+	 * Vertical position.
+	 *
+	 * @return
+	 */
+	public float getY() {
+		return (store != null ? store.py[entityId] : position.y);
+	}
+
+	/**
+	 * Horizontal position before the last physic update.
+	 *
+	 * @return
+	 */
+	public float getOldX() {
+		return (store != null ? store.opx[entityId] : oldPosition.x);
+	}
+
+	/**
+	 * Vertical position before the last physic update.
+	 *
+	 * @return
+	 */
+	public float getOldY() {
+		return (store != null ? store.opy[entityId] : oldPosition.y);
+	}
+
+	/**
+	 * Horizontal velocity.
+	 *
+	 * @return
+	 */
+	public float getVelocityX() {
+		return (store != null ? store.vx[entityId] : velocity.x);
+	}
+
+	/**
+	 * Vertical velocity.
+	 *
+	 * @return
+	 */
+	public float getVelocityY() {
+		return (store != null ? store.vy[entityId] : velocity.y);
+	}
+
+	/**
+	 * Horizontal acceleration.
+	 *
+	 * @return
+	 */
+	public float getAccelerationX() {
+		return (store != null ? store.ax[entityId] : acceleration.x);
+	}
+
+	/**
+	 * Vertical acceleration.
+	 *
+	 * @return
+	 */
+	public float getAccelerationY() {
+		return (store != null ? store.ay[entityId] : acceleration.y);
+	}
+
+	/**
+	 * Width of the object.
+	 *
+	 * @return
+	 */
+	public float getWidth() {
+		return (store != null ? store.w[entityId] : width);
+	}
+
+	/**
+	 * Height of the object.
+	 *
+	 * @return
+	 */
+	public float getHeight() {
+		return (store != null ? store.h[entityId] : height);
+	}
+
+	/**
+	 * Remaining life duration (in updates).
+	 *
+	 * @return
+	 */
+	public int getLifeDuration() {
+		return (store != null ? store.life[entityId] : lifeDuration);
+	}
+
 	/**
 	 * Render the object. Draw an <code>image</code> if this attribute is not null,
 	 * or anyway, if <code>debug</code> level>1, draw a simple rectangle.
@@ -168,40 +350,89 @@ public class GameObject implements Collidable {
 	 * @param g
 	 */
 	public void render(Graphics2D g) {
+		render(g, 1.0f);
+	}
+
+	/**
+	 * Render the object at a position interpolated between its previous and
+	 * current position, according to the <code>alpha</code> factor.
+	 *
+	 * @param g
+	 * @param alpha interpolation factor from 0 (previous position) to 1 (current
+	 *              position).
+	 */
+	public void render(Graphics2D g, float alpha) {
+		float rx = oldPosition.x + (position.x - oldPosition.x) * alpha;
+		float ry = oldPosition.y + (position.y - oldPosition.y) * alpha;
 		// if image exists in object, draw image.
 		if (image != null) {
-			g.drawImage(image, (int) position.x, (int) position.y, (int) width, (int) height, null);
+			g.drawImage(image, (int) rx, (int) ry, (int) width, (int) height, null);
 		}
-		// if debug mode level >0, draw debug info
+		renderDebug(g, rx, ry);
+	}
+
+	/**
+	 * Submit the object drawing to the <code>queue</code>, with its previous and
+	 * current position to be interpolated at drawing time.
+	 *
+	 * @param queue the render queue to submit the drawing to.
+	 */
+	public void submit(RenderQueue queue) {
+		queue.add(this, image, getOldX(), getOldY(), getX(), getY(), getWidth(), getHeight(), priority);
+	}
 
+	/**
+	 * if debug mode level >1, draw debug info for the object rendered at
+	 * <code>(rx,ry)</code>.
+	 *
+	 * @param g
+	 * @param rx rendered horizontal position.
+	 * @param ry rendered vertical position.
+	 */
+	public void renderDebug(Graphics2D g, float rx, float ry) {
 		if (game.debug > 1) {
-			g.setColor(debugColor);
-			g.drawRect((int) position.x, (int) position.y, (int) width, (int) height);
-			g.drawString(String.format("n:%s", name), (int) (position.x + width + 4), (int) position.y + 10);
-			if (game.debug > 2) {
-				g.setColor(Color.CYAN);
-				g.drawLine((int) position.x, (int) position.y, (int) (position.x + velocity.x),
-						(int) (position.y + velocity.y));
-				if (game.debug > 3) {
-					g.setColor(Color.RED);
-					g.drawOval((int) (position.x + offset.x), (int) (position.y + offset.y), 2, 2);
-					g.setColor(Color.CYAN);
-					g.drawLine((int) (position.x + (offset.x)), (int) (position.y + (offset.y)),
-							(int) (position.x + (offset.x) + (velocity.x * 4)),
-							(int) (position.y + (offset.y) + (velocity.y * 4)));
-					g.drawString(String.format("v:(%4.2f,%4.2f)", velocity.x, velocity.y),
-							(int) (position.x + width + 4), (int) position.y + 20);
-					g.setColor(Color.GREEN);
-					g.drawLine((int) (position.x + (offset.x)), (int) (position.y + (offset.y)),
-							(int) (position.x + (offset.x) + (acceleration.x * 10)),
-							(int) (position.y + (offset.y) + (acceleration.y * 10)));
-					g.drawString(String.format("a:(%4.2f,%4.2f)", acceleration.x, acceleration.y),
-							(int) (position.x + width + 4), (int) position.y + 30);
-					g.drawString(String.format("ld:(%06d)", lifeDuration), (int) (position.x + width + 4),
-							(int) position.y + 50);
-				}
+			if (debugInfo == null) {
+				debugInfo = new DebugInfo();
 			}
+			captureDebug(debugInfo);
+			debugInfo.draw(g, rx, ry);
+		}
+	}
+
+	/**
+	 * Copy the debug information of the object into <code>info</code>, to be
+	 * drawn later without reading the object again (see
+	 * {@link DebugInfo#draw(Graphics2D, float, float)}).
+	 *
+	 * @param info the debug information to be filled.
+	 */
+	public void captureDebug(DebugInfo info) {
+		info.level = game.debug;
+		if (info.level <= 1) {
+			return;
+		}
+		if (debugNameText == null || debugName != name) {
+			debugName = name;
+			debugNameText = "n:" + name;
 		}
+		if (info.level > 3 && (debugVelocity == null || game.debugRefresh)) {
+			debugVelocity = String.format("v:(%4.2f,%4.2f)", getVelocityX(), getVelocityY());
+			debugAcceleration = String.format("a:(%4.2f,%4.2f)", getAccelerationX(), getAccelerationY());
+			debugLife = String.format("ld:(%06d)", getLifeDuration());
+		}
+		info.color = debugColor;
+		info.width = getWidth();
+		info.height = getHeight();
+		info.vx = getVelocityX();
+		info.vy = getVelocityY();
+		info.ax = getAccelerationX();
+		info.ay = getAccelerationY();
+		info.offsetX = offset.x;
+		info.offsetY = offset.y;
+		info.name = debugNameText;
+		info.velocity = debugVelocity;
+		info.acceleration = debugAcceleration;
+		info.life = debugLife;
 	}
 
 	/**
@@ -211,8 +442,13 @@ public class GameObject implements Collidable {
 	 * @param ay Y component for the acceleration
 	 */
 	public GameObject setAcceleration(float ax, float ay) {
-		this.acceleration.x = ax;
-		this.acceleration.y = ay;
+		if (store != null) {
+			store.ax[entityId] = ax;
+			store.ay[entityId] = ay;
+		} else {
+			this.acceleration.x = ax;
+			this.acceleration.y = ay;
+		}
 		return this;
 	}
 
@@ -223,8 +459,13 @@ public class GameObject implements Collidable {
 	 * @param dy
 	 */
 	public GameObject setVelocity(float dx, float dy) {
-		this.velocity.x = dx;
-		this.velocity.y = dy;
+		if (store != null) {
+			store.vx[entityId] = dx;
+			store.vy[entityId] = dy;
+		} else {
+			this.velocity.x = dx;
+			this.velocity.y = dy;
+		}
 		return this;
 	}
 
@@ -235,8 +476,15 @@ public class GameObject implements Collidable {
 	 * @param y
 	 */
 	public GameObject setPosition(float x, float y) {
-		this.position.x = x;
-		this.position.y = y;
+		if (store != null) {
+			store.px[entityId] = store.opx[entityId] = x;
+			store.py[entityId] = store.opy[entityId] = y;
+		} else {
+			this.position.x = x;
+			this.position.y = y;
+			this.oldPosition.x = x;
+			this.oldPosition.y = y;
+		}
 		bBox.update(this);
 		return this;
 	}
@@ -259,6 +507,9 @@ public class GameObject implements Collidable {
 	 */
 	public GameObject setMass(float factor) {
 		this.mass = factor;
+		if (store != null) {
+			store.mass[entityId] = factor;
+		}
 		return this;
 	}
 
@@ -269,6 +520,9 @@ public class GameObject implements Collidable {
 	 */
 	public GameObject setFriction(float factor) {
 		this.friction = factor;
+		if (store != null) {
+			store.friction[entityId] = factor;
+		}
 		return this;
 	}
 
@@ -279,6 +533,9 @@ public class GameObject implements Collidable {
 	 */
 	public GameObject setElasticity(float factor) {
 		this.elasticity = factor;
+		if (store != null) {
+			store.elasticity[entityId] = factor;
+		}
 		return this;
 	}
 
@@ -309,10 +566,7 @@ public class GameObject implements Collidable {
 	 */
 	public GameObject setImage(BufferedImage image) {
 		this.image = image;
-		this.width = image.getWidth();
-		this.height = image.getHeight();
-		bBox.update(this);
-		return this;
+		return setSize(image.getWidth(), image.getHeight());
 	}
 
 	/**
@@ -350,6 +604,10 @@ public class GameObject implements Collidable {
 	public GameObject setSize(float width, float height) {
 		this.width = (int) width;
 		this.height = (int) height;
+		if (store != null) {
+			store.w[entityId] = this.width;
+			store.h[entityId] = this.height;
+		}
 		bBox.update(this);
 		return this;
 	}
@@ -361,7 +619,11 @@ public class GameObject implements Collidable {
 	 * @return
 	 */
 	public GameObject setLifeDuration(int ld) {
-		this.lifeDuration = ld;
+		if (store != null) {
+			store.life[entityId] = ld;
+		} else {
+			this.lifeDuration = ld;
+		}
 		return this;
 	}
 
@@ -382,6 +644,11 @@ public class GameObject implements Collidable {
 		// this.velocity.multiply(-this.elasticity*this.friction);
 	}
 
+	@Override
+	public void clearColliders() {
+		colliders.clear();
+	}
+
 	@Override
 	public void setCollidingResponseProcessed(boolean f) {
 		collidingResponseProcessed = f;
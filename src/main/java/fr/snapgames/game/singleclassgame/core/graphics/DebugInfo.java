@@ -0,0 +1,77 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.graphics;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+import fr.snapgames.game.singleclassgame.core.entity.GameObject;
+
+/**
+ * <p>
+ * A copy of the debug information of a {@link GameObject}, filled by
+ * {@link GameObject#captureDebug(DebugInfo)} on the game loop thread and drawn
+ * later by {@link DebugInfo#draw(Graphics2D, float, float)}, possibly on
+ * another thread:
+ * <ul>
+ * <li><code>level</code> the debug level at capture time, nothing being drawn
+ * under 2,
+ * <li><code>width,height</code> and <code>color</code> the object box and its
+ * debug color,
+ * <li><code>vx,vy</code>, <code>ax,ay</code> and <code>offsetX,offsetY</code>
+ * the velocity, the acceleration and the offset of the object,
+ * <li>the already formatted debug texts.
+ * </ul>
+ * <p>
+ * Instances are reused from frame to frame by the {@link RenderQueue}.
+ *
+ * @author Frédéric Delorme
+ */
+public class DebugInfo {
+
+	public int level = 0;
+	public Color color = Color.ORANGE;
+	public float width, height;
+	public float vx, vy, ax, ay;
+	public float offsetX, offsetY;
+	public String name, velocity, acceleration, life;
+
+	/**
+	 * Draw the information of an object rendered at <code>(rx,ry)</code>.
+	 *
+	 * @param g
+	 * @param rx rendered horizontal position.
+	 * @param ry rendered vertical position.
+	 */
+	public void draw(Graphics2D g, float rx, float ry) {
+		if (level > 1) {
+			g.setColor(color);
+			g.drawRect((int) rx, (int) ry, (int) width, (int) height);
+			g.drawString(name, (int) (rx + width + 4), (int) ry + 10);
+			if (level > 2) {
+				g.setColor(Color.CYAN);
+				g.drawLine((int) rx, (int) ry, (int) (rx + vx), (int) (ry + vy));
+				if (level > 3) {
+					g.setColor(Color.RED);
+					g.drawOval((int) (rx + offsetX), (int) (ry + offsetY), 2, 2);
+					g.setColor(Color.CYAN);
+					g.drawLine((int) (rx + offsetX), (int) (ry + offsetY), (int) (rx + offsetX + (vx * 4)),
+							(int) (ry + offsetY + (vy * 4)));
+					g.drawString(velocity, (int) (rx + width + 4), (int) ry + 20);
+					g.setColor(Color.GREEN);
+					g.drawLine((int) (rx + offsetX), (int) (ry + offsetY), (int) (rx + offsetX + (ax * 10)),
+							(int) (ry + offsetY + (ay * 10)));
+					g.drawString(acceleration, (int) (rx + width + 4), (int) ry + 30);
+					g.drawString(life, (int) (rx + width + 4), (int) ry + 50);
+				}
+			}
+		}
+	}
+}
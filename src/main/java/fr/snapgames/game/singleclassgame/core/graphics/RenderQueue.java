@@ -0,0 +1,336 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.graphics;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import fr.snapgames.game.singleclassgame.core.entity.GameObject;
+
+/**
+ * <p>
+ * The render queue collects the draw commands submitted by objects during a
+ * frame, and flushes them at once to the {@link Graphics2D}:
+ * <ul>
+ * <li>a command is an image drawn into a rectangle, with a
+ * <code>priority</code> (the rendering layer), and the object it comes from.
+ * The rectangle can have a previous and a current position, interpolated at
+ * drawing time,
+ * <li>commands are stored into arrays reused from frame to frame, so that
+ * submitting a command does not allocate,
+ * <li>commands are sorted once per frame with a stable radix sort on a key
+ * made of the priority and an id of the image, so that commands are drawn by
+ * layer, and inside a layer grouped by image. Image ids are given in the
+ * order of first use in the frame, and forgotten when the queue is cleared,
+ * so that the queue does not keep any reference to the images of past
+ * frames,
+ * <li>images are drawn without scaling when the command size is the image one.
+ * </ul>
+ * <p>
+ * After the images, the debug information of the source objects are drawn in
+ * the same order (see {@link GameObject#renderDebug(Graphics2D, float, float)}).
+ * A queue to be drawn by another thread is first detached from its sources
+ * with {@link RenderQueue#captureDebug()}: their debug information are copied
+ * into the queue, which does not read the objects anymore.
+ *
+ * @author Frédéric Delorme
+ */
+public class RenderQueue {
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	/**
+	 * Commands attributes (also read by the {@link TileRasterizer}).
+	 */
+	private GameObject[] sources = new GameObject[INITIAL_CAPACITY];
+	BufferedImage[] images = new BufferedImage[INITIAL_CAPACITY];
+	float[] oxs = new float[INITIAL_CAPACITY];
+	float[] oys = new float[INITIAL_CAPACITY];
+	float[] xs = new float[INITIAL_CAPACITY];
+	float[] ys = new float[INITIAL_CAPACITY];
+	float[] ws = new float[INITIAL_CAPACITY];
+	float[] hs = new float[INITIAL_CAPACITY];
+	private int[] keys = new int[INITIAL_CAPACITY];
+	int count = 0;
+
+	/**
+	 * Debug information copied from the sources by
+	 * {@link RenderQueue#captureDebug()}, reused from frame to frame.
+	 */
+	private DebugInfo[] debugInfos = new DebugInfo[0];
+	private boolean captured = false;
+
+	/**
+	 * Sorted commands indexes, and the radix sort buffers.
+	 */
+	int[] order = new int[INITIAL_CAPACITY];
+	private int[] buffer = new int[INITIAL_CAPACITY];
+	private int[] buckets = new int[256];
+	private boolean sorted = false;
+
+	/**
+	 * Ids of the images of the current frame, in submission order of first use.
+	 */
+	private Map<Image, Integer> imageIds = new IdentityHashMap<>();
+
+	/**
+	 * Number of image changes during the last flush.
+	 */
+	private int imageSwitches = 0;
+
+	/**
+	 * Remove all the commands.
+	 */
+	public void clear() {
+		Arrays.fill(sources, 0, count, null);
+		Arrays.fill(images, 0, count, null);
+		imageIds.clear();
+		count = 0;
+		sorted = false;
+		captured = false;
+	}
+
+	/**
+	 * Submit a command drawing <code>image</code> into the
+	 * <code>(x,y,w,h)</code> rectangle, on the <code>priority</code> layer.
+	 *
+	 * @param source   the object submitting the command (may be null).
+	 * @param image    the image to be drawn (may be null to only draw debug
+	 *                 information).
+	 * @param x        horizontal position.
+	 * @param y        vertical position.
+	 * @param w        width.
+	 * @param h        height.
+	 * @param priority the layer, from -32768 to 32767.
+	 */
+	public void add(GameObject source, BufferedImage image, float x, float y, float w, float h, int priority) {
+		add(source, image, x, y, x, y, w, h, priority);
+	}
+
+	/**
+	 * Submit a command drawing <code>image</code> into a <code>w x h</code>
+	 * rectangle moving from <code>(ox,oy)</code> to <code>(x,y)</code>, on the
+	 * <code>priority</code> layer.
+	 *
+	 * @param source   the object submitting the command (may be null).
+	 * @param image    the image to be drawn (may be null to only draw debug
+	 *                 information).
+	 * @param ox       previous horizontal position.
+	 * @param oy       previous vertical position.
+	 * @param x        current horizontal position.
+	 * @param y        current vertical position.
+	 * @param w        width.
+	 * @param h        height.
+	 * @param priority the layer, from -32768 to 32767.
+	 */
+	public void add(GameObject source, BufferedImage image, float ox, float oy, float x, float y, float w, float h,
+			int priority) {
+		if (count == keys.length) {
+			grow(count * 2);
+		}
+		int i = count++;
+		sources[i] = source;
+		images[i] = image;
+		oxs[i] = ox;
+		oys[i] = oy;
+		xs[i] = x;
+		ys[i] = y;
+		ws[i] = w;
+		hs[i] = h;
+		keys[i] = (Math.max(-32768, Math.min(32767, priority)) + 32768) << 16 | imageId(image);
+		sorted = false;
+	}
+
+	private void grow(int capacity) {
+		sources = Arrays.copyOf(sources, capacity);
+		images = Arrays.copyOf(images, capacity);
+		oxs = Arrays.copyOf(oxs, capacity);
+		oys = Arrays.copyOf(oys, capacity);
+		xs = Arrays.copyOf(xs, capacity);
+		ys = Arrays.copyOf(ys, capacity);
+		ws = Arrays.copyOf(ws, capacity);
+		hs = Arrays.copyOf(hs, capacity);
+		keys = Arrays.copyOf(keys, capacity);
+		order = new int[capacity];
+		buffer = new int[capacity];
+	}
+
+	private int imageId(Image image) {
+		if (image == null) {
+			return 0;
+		}
+		Integer id = imageIds.get(image);
+		if (id == null) {
+			// beyond 65535 images in a frame, the last ones share the last id:
+			// they are still drawn in submission order, only less grouped.
+			id = Math.min(imageIds.size() + 1, 0xFFFF);
+			imageIds.put(image, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Sort the commands by key, keeping the submission order for the commands
+	 * with the same key (LSD radix sort, one byte per pass).
+	 */
+	public void sort() {
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		for (int shift = 0; shift < 32; shift += 8) {
+			Arrays.fill(buckets, 0);
+			for (int i = 0; i < count; i++) {
+				buckets[(keys[i] >>> shift) & 0xFF]++;
+			}
+			// all keys share the same byte: nothing to do on this pass.
+			if (buckets[(keys[0] >>> shift) & 0xFF] == count) {
+				continue;
+			}
+			int sum = 0;
+			for (int b = 0; b < 256; b++) {
+				int c = buckets[b];
+				buckets[b] = sum;
+				sum += c;
+			}
+			for (int i = 0; i < count; i++) {
+				int n = order[i];
+				buffer[buckets[(keys[n] >>> shift) & 0xFF]++] = n;
+			}
+			int[] t = order;
+			order = buffer;
+			buffer = t;
+		}
+		sorted = true;
+	}
+
+	/**
+	 * Sort and draw all the commands, then clear the queue.
+	 *
+	 * @param g the Graphics API to draw to.
+	 */
+	public void flush(Graphics2D g) {
+		draw(g, 1.0f);
+		clear();
+	}
+
+	/**
+	 * Draw all the commands (sorting them if needed) at their position
+	 * interpolated between the previous and the current one. The queue is kept,
+	 * to be drawn again if needed.
+	 *
+	 * @param g     the Graphics API to draw to.
+	 * @param alpha interpolation factor from 0 (previous position) to 1 (current
+	 *              position).
+	 */
+	public void draw(Graphics2D g, float alpha) {
+		imageSwitches = 0;
+		if (count == 0) {
+			return;
+		}
+		ensureSorted();
+		BufferedImage current = null;
+		for (int i = 0; i < count; i++) {
+			int n = order[i];
+			BufferedImage image = images[n];
+			if (image == null) {
+				continue;
+			}
+			if (image != current) {
+				current = image;
+				imageSwitches++;
+			}
+			int x = (int) (oxs[n] + (xs[n] - oxs[n]) * alpha);
+			int y = (int) (oys[n] + (ys[n] - oys[n]) * alpha);
+			int w = (int) ws[n];
+			int h = (int) hs[n];
+			if (w == image.getWidth() && h == image.getHeight()) {
+				g.drawImage(image, x, y, null);
+			} else {
+				g.drawImage(image, x, y, w, h, null);
+			}
+		}
+		drawDebug(g, alpha);
+	}
+
+	/**
+	 * Sort the commands if some were added since the last sort.
+	 */
+	void ensureSorted() {
+		if (!sorted) {
+			sort();
+		}
+	}
+
+	/**
+	 * Copy the debug information of the commands source objects into the queue,
+	 * and forget the sources. To be called by the thread updating the objects
+	 * before giving the queue to another one.
+	 */
+	public void captureDebug() {
+		if (debugInfos.length < count) {
+			int length = debugInfos.length;
+			debugInfos = Arrays.copyOf(debugInfos, keys.length);
+			for (int i = length; i < debugInfos.length; i++) {
+				debugInfos[i] = new DebugInfo();
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			if (sources[i] != null) {
+				sources[i].captureDebug(debugInfos[i]);
+				sources[i] = null;
+			} else {
+				debugInfos[i].level = 0;
+			}
+		}
+		captured = true;
+	}
+
+	/**
+	 * Draw the debug information of the commands source objects (or their copy
+	 * if captured), in the commands order.
+	 *
+	 * @param g     the Graphics API to draw to.
+	 * @param alpha interpolation factor from 0 (previous position) to 1 (current
+	 *              position).
+	 */
+	public void drawDebug(Graphics2D g, float alpha) {
+		ensureSorted();
+		for (int i = 0; i < count; i++) {
+			int n = order[i];
+			if (captured) {
+				debugInfos[n].draw(g, oxs[n] + (xs[n] - oxs[n]) * alpha, oys[n] + (ys[n] - oys[n]) * alpha);
+			} else if (sources[n] != null) {
+				sources[n].renderDebug(g, oxs[n] + (xs[n] - oxs[n]) * alpha, oys[n] + (ys[n] - oys[n]) * alpha);
+			}
+		}
+	}
+
+	/**
+	 * Number of commands in the queue.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Number of image changes during the last flush.
+	 *
+	 * @return
+	 */
+	public int getImageSwitches() {
+		return imageSwitches;
+	}
+}
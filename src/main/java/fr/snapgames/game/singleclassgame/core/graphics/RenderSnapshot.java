@@ -0,0 +1,83 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.graphics;
+
+import java.awt.geom.Path2D;
+
+import fr.snapgames.game.singleclassgame.core.profiler.FrameProfiler;
+
+/**
+ * <p>
+ * A snapshot of everything needed to render a frame, produced by the
+ * simulation thread after an update and consumed by the render thread in the
+ * pipelined game loop:
+ * <ul>
+ * <li><code>queue</code> the draw commands of the objects, with their previous
+ * and current positions, and a copy of their debug information (see
+ * {@link RenderQueue#captureDebug()}),
+ * <li><code>camOldX,camOldY,camX,camY,camAngle</code> the active camera
+ * previous and current positions and its angle, and
+ * <code>camWidth,camHeight,camName</code> its view and name,
+ * <li><code>time</code> the production time, used to compute the
+ * interpolation factor at rendering time,
+ * <li><code>debug</code> the debug level and some statistics to be displayed
+ * as debug information, like <code>objects</code> the number of objects,
+ * <li><code>hudLines</code> a copy of the {@link FrameProfiler} HUD, when
+ * <code>hud</code> is set,
+ * <li><code>outline,outlineShared</code> a copy of the collision broad phase
+ * outlines, when <code>broadPhase</code> is set.
+ * </ul>
+ * <p>
+ * Once published into the {@link SnapshotRing}, a snapshot is not modified
+ * until the render thread releases it.
+ *
+ * @author Frédéric Delorme
+ *
+ * @see SnapshotRing
+ */
+public class RenderSnapshot {
+
+	public RenderQueue queue = new RenderQueue();
+
+	public boolean camera = false;
+	public float camOldX, camOldY, camX, camY;
+	public double camAngle;
+	public int camWidth, camHeight;
+	public String camName;
+
+	/**
+	 * System.nanoTime() at production.
+	 */
+	public long time;
+
+	public int debug;
+	public int objects;
+	public int ups;
+	public int pairsColliding;
+	public int pairsTested;
+	public boolean pause;
+
+	public boolean broadPhase = false;
+	public Path2D.Float outline = new Path2D.Float();
+	public Path2D.Float outlineShared = new Path2D.Float();
+
+	public boolean hud = false;
+	public String[] hudLines = new String[FrameProfiler.getHudLineCount()];
+
+	/**
+	 * Clear the snapshot before filling it again.
+	 */
+	public void clear() {
+		queue.clear();
+		camera = false;
+		broadPhase = false;
+		hud = false;
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.graphics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * A triple buffer of {@link RenderSnapshot}s shared between one producer (the
+ * simulation thread) and one consumer (the render thread), without lock:
+ * <ul>
+ * <li>the producer fills the <code>back</code> snapshot given by
+ * {@link SnapshotRing#acquire()}, then exchanges it with the middle one in
+ * {@link SnapshotRing#publish()},
+ * <li>the consumer gets the latest published snapshot with
+ * {@link SnapshotRing#latest()}, which exchanges its <code>front</code>
+ * snapshot with the middle one if a new one has been published since.
+ * </ul>
+ * <p>
+ * The producer never waits for the consumer: if rendering is slower than
+ * simulation, the intermediate snapshots are simply overwritten.
+ *
+ * @author Frédéric Delorme
+ *
+ * @see RenderSnapshot
+ */
+public class SnapshotRing {
+
+	/**
+	 * Flag set on the middle index when it contains a snapshot not yet consumed.
+	 */
+	private static final int FRESH = 4;
+	private static final int INDEX = 3;
+	/**
+	 * Spare index given back by the consumer at the first exchange.
+	 */
+	private static final int SPARE = 2;
+
+	private final RenderSnapshot[] snapshots = { new RenderSnapshot(), new RenderSnapshot(),
+			new RenderSnapshot() };
+
+	/**
+	 * Snapshot owned by the producer.
+	 */
+	private int back = 0;
+	/**
+	 * Snapshot owned by the consumer, -1 until the first one is consumed.
+	 */
+	private int front = -1;
+	/**
+	 * Exchanged snapshot index, with the FRESH flag.
+	 */
+	private final AtomicInteger middle = new AtomicInteger(1);
+
+	/**
+	 * Return the snapshot to be filled by the producer.
+	 *
+	 * @return
+	 */
+	public RenderSnapshot acquire() {
+		return snapshots[back];
+	}
+
+	/**
+	 * Publish the snapshot filled by the producer, and take back the middle one
+	 * for the next production.
+	 */
+	public void publish() {
+		back = middle.getAndSet(back | FRESH) & INDEX;
+	}
+
+	/**
+	 * Return the latest published snapshot, or null if none has been published
+	 * yet.
+	 *
+	 * @return
+	 */
+	public RenderSnapshot latest() {
+		if ((middle.get() & FRESH) != 0) {
+			front = middle.getAndSet(front < 0 ? SPARE : front) & INDEX;
+		}
+		return (front < 0 ? null : snapshots[front]);
+	}
+}
@@ -0,0 +1,312 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.graphics;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * A software renderer drawing the images of a {@link RenderQueue} directly
+ * into the <code>int[]</code> pixels of an ARGB back buffer:
+ * <ul>
+ * <li>the buffer is split into square tiles of <code>tileSize</code> pixels,
+ * <li>the commands are binned (in the queue order) into the tiles they overlap,
+ * <li>tiles are rasterized in parallel on a {@link ForkJoinPool}, each tile
+ * blending its commands in order, with the <i>source over</i> rule.
+ * </ul>
+ * <p>
+ * As each tile owns its pixels, the result is the same as a sequential drawing,
+ * and close to the Java2D one (blending rounding, and the sampled column of
+ * images scaled and clipped on the buffer border may differ).
+ * Images are scaled with the nearest neighbour. The pixels of
+ * <code>TYPE_INT_ARGB_PRE</code> images (the format of the
+ * {@link fr.snapgames.game.singleclassgame.core.resources.ResourceManager}
+ * images when the rasterizer is activated) are read directly from their
+ * buffer. Other images are converted at first use into a cache with weak keys,
+ * released with the image; a converted image modified afterwards must be
+ * given to {@link TileRasterizer#invalidate(BufferedImage)}. The drawing is
+ * only done when the graphics transform is a translation (no camera
+ * rotation); otherwise the caller must fall back to
+ * {@link RenderQueue#draw(Graphics2D, float)}.
+ * <p>
+ * The rasterizer threads are stopped by {@link TileRasterizer#dispose()}.
+ * <p>
+ * The back buffer is expected to be opaque (cleared at each frame). Note that
+ * accessing its pixels prevents Java2D to accelerate it.
+ *
+ * @author Frédéric Delorme
+ */
+public class TileRasterizer {
+
+	private final int[] pixels;
+	private final int width, height;
+	private final int tileSize;
+	private final int cols, rows;
+
+	/**
+	 * Commands index binned per tile.
+	 */
+	private int[][] tiles;
+	private int[] tileCounts;
+
+	/**
+	 * Screen rectangle and pixels of the commands being drawn.
+	 */
+	private int[] cx = new int[0], cy = new int[0], cw = new int[0], ch = new int[0];
+	private int[][] cpixels = new int[0][];
+	private int[] cpw = new int[0], cph = new int[0];
+
+	/**
+	 * Premultiplied pixels of the images not stored as
+	 * <code>TYPE_INT_ARGB_PRE</code> (BufferedImage keeps the identity
+	 * equality).
+	 */
+	private Map<BufferedImage, int[]> converted = new WeakHashMap<>();
+
+	private ForkJoinPool pool;
+
+	/**
+	 * Create a rasterizer drawing to the <code>target</code> buffer.
+	 *
+	 * @param target   the back buffer, of type <code>TYPE_INT_ARGB</code> or
+	 *                 <code>TYPE_INT_RGB</code>.
+	 * @param tileSize the size of a tile in pixels.
+	 * @param threads  the number of threads, or 0 for the number of processors.
+	 */
+	public TileRasterizer(BufferedImage target, int tileSize, int threads) {
+		this.pixels = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+		this.width = target.getWidth();
+		this.height = target.getHeight();
+		this.tileSize = Math.max(8, tileSize);
+		this.cols = (width + this.tileSize - 1) / this.tileSize;
+		this.rows = (height + this.tileSize - 1) / this.tileSize;
+		this.tiles = new int[cols * rows][16];
+		this.tileCounts = new int[cols * rows];
+		this.pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Draw the images of the <code>queue</code> at their position interpolated
+	 * with <code>alpha</code>, and translated as <code>g</code> is. Debug
+	 * information are not drawn.
+	 *
+	 * @param queue the commands to be drawn.
+	 * @param g     the Graphics API, giving the view translation.
+	 * @param alpha interpolation factor from 0 (previous position) to 1 (current
+	 *              position).
+	 * @return false if the drawing can not be done (the transform is not a
+	 *         translation).
+	 */
+	public boolean draw(RenderQueue queue, Graphics2D g, float alpha) {
+		AffineTransform t = g.getTransform();
+		if ((t.getType() & ~AffineTransform.TYPE_TRANSLATION) != 0) {
+			return false;
+		}
+		queue.ensureSorted();
+		bin(queue, alpha, (int) t.getTranslateX(), (int) t.getTranslateY());
+		pool.invoke(new TilesTask(0, cols * rows));
+		Arrays.fill(cpixels, 0, queue.count, null);
+		return true;
+	}
+
+	/**
+	 * Compute the commands screen rectangles, and bin them into the tiles.
+	 */
+	private void bin(RenderQueue queue, float alpha, int offsetX, int offsetY) {
+		int count = queue.count;
+		if (cx.length < count) {
+			cx = new int[count];
+			cy = new int[count];
+			cw = new int[count];
+			ch = new int[count];
+			cpw = new int[count];
+			cph = new int[count];
+			cpixels = new int[count][];
+		}
+		Arrays.fill(tileCounts, 0);
+		for (int i = 0; i < count; i++) {
+			int n = queue.order[i];
+			BufferedImage image = queue.images[n];
+			if (image == null) {
+				continue;
+			}
+			int x = (int) (queue.oxs[n] + (queue.xs[n] - queue.oxs[n]) * alpha) + offsetX;
+			int y = (int) (queue.oys[n] + (queue.ys[n] - queue.oys[n]) * alpha) + offsetY;
+			int w = (int) queue.ws[n];
+			int h = (int) queue.hs[n];
+			if (w <= 0 || h <= 0 || x >= width || y >= height || x + w <= 0 || y + h <= 0) {
+				continue;
+			}
+			cx[i] = x;
+			cy[i] = y;
+			cw[i] = w;
+			ch[i] = h;
+			cpixels[i] = getPixels(image);
+			cpw[i] = image.getWidth();
+			cph[i] = image.getHeight();
+			int tx0 = Math.max(0, x) / tileSize, tx1 = Math.min(width - 1, x + w - 1) / tileSize;
+			int ty0 = Math.max(0, y) / tileSize, ty1 = Math.min(height - 1, y + h - 1) / tileSize;
+			for (int ty = ty0; ty <= ty1; ty++) {
+				for (int tx = tx0; tx <= tx1; tx++) {
+					int tile = ty * cols + tx;
+					if (tileCounts[tile] == tiles[tile].length) {
+						tiles[tile] = Arrays.copyOf(tiles[tile], tileCounts[tile] * 2);
+					}
+					tiles[tile][tileCounts[tile]++] = i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the premultiplied ARGB pixels of the <code>image</code>: its own
+	 * buffer when it is a plain <code>TYPE_INT_ARGB_PRE</code> image, otherwise
+	 * a copy converted at first use.
+	 *
+	 * @param image
+	 * @return
+	 */
+	private int[] getPixels(BufferedImage image) {
+		if (image.getType() == BufferedImage.TYPE_INT_ARGB_PRE) {
+			WritableRaster raster = image.getRaster();
+			// not a sub image: pixels are stored row by row from the start.
+			if (raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+					&& raster.getDataBuffer().getOffset() == 0
+					&& raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+					&& ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() == image
+							.getWidth()) {
+				return ((DataBufferInt) raster.getDataBuffer()).getData();
+			}
+		}
+		int[] p = converted.get(image);
+		if (p == null) {
+			p = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+			for (int i = 0; i < p.length; i++) {
+				int a = p[i] >>> 24;
+				if (a == 0) {
+					p[i] = 0;
+				} else if (a < 255) {
+					int r = ((p[i] >> 16) & 0xFF) * a / 255;
+					int gr = ((p[i] >> 8) & 0xFF) * a / 255;
+					int b = (p[i] & 0xFF) * a / 255;
+					p[i] = (a << 24) | (r << 16) | (gr << 8) | b;
+				}
+			}
+			converted.put(image, p);
+		}
+		return p;
+	}
+
+	/**
+	 * Forget the converted pixels of the <code>image</code>, to be converted
+	 * again at next use after a modification.
+	 *
+	 * @param image
+	 */
+	public void invalidate(BufferedImage image) {
+		converted.remove(image);
+	}
+
+	/**
+	 * Stop the rasterizer threads. The rasterizer can not draw anymore.
+	 */
+	public void dispose() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Rasterize the commands binned into the <code>tile</code>.
+	 *
+	 * @param tile
+	 */
+	private void rasterize(int tile) {
+		int x0 = (tile % cols) * tileSize, y0 = (tile / cols) * tileSize;
+		int x1 = Math.min(width, x0 + tileSize), y1 = Math.min(height, y0 + tileSize);
+		int[] cmds = tiles[tile];
+		for (int c = 0; c < tileCounts[tile]; c++) {
+			int i = cmds[c];
+			int[] src = cpixels[i];
+			int sw = cpw[i], sh = cph[i];
+			int dx = cx[i], dy = cy[i], w = cw[i], h = ch[i];
+			int xs = Math.max(x0, dx), xe = Math.min(x1, dx + w);
+			int ys = Math.max(y0, dy), ye = Math.min(y1, dy + h);
+			boolean scaled = (w != sw || h != sh);
+			// 16.16 fixed point steps, sampling at the pixels centers as Java2D does.
+			long stepX = (sw << 16) / w, stepY = (sh << 16) / h;
+			for (int y = ys; y < ye; y++) {
+				int sy = (scaled ? (int) (((y - dy) * 2L + 1) * stepY >> 17) : y - dy);
+				int srow = sy * sw;
+				int drow = y * width;
+				for (int x = xs; x < xe; x++) {
+					int sx = (scaled ? (int) (((x - dx) * 2L + 1) * stepX >> 17) : x - dx);
+					int s = src[srow + sx];
+					int a = s >>> 24;
+					if (a == 255) {
+						pixels[drow + x] = s;
+					} else if (a != 0) {
+						int d = pixels[drow + x];
+						int ia = 255 - a;
+						int r = ((s >> 16) & 0xFF) + div255(((d >> 16) & 0xFF) * ia);
+						int g = ((s >> 8) & 0xFF) + div255(((d >> 8) & 0xFF) * ia);
+						int b = (s & 0xFF) + div255((d & 0xFF) * ia);
+						int oa = a + div255((d >>> 24) * ia);
+						pixels[drow + x] = (Math.min(255, oa) << 24) | (Math.min(255, r) << 16)
+								| (Math.min(255, g) << 8) | Math.min(255, b);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Divide by 255 with rounding, for <code>v</code> in [0,65025].
+	 */
+	private static int div255(int v) {
+		v += 128;
+		return (v + (v >> 8)) >> 8;
+	}
+
+	/**
+	 * Split a range of tiles between the pool workers.
+	 */
+	private class TilesTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from, to;
+
+		TilesTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 2) {
+				for (int t = from; t < to; t++) {
+					if (tileCounts[t] > 0) {
+						rasterize(t);
+					}
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new TilesTask(from, middle), new TilesTask(middle, to));
+			}
+		}
+	}
+}
@@ -9,16 +9,38 @@
  */
 package fr.snapgames.game.singleclassgame.core.graphics;
 
+import java.awt.Canvas;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.image.BufferStrategy;
+import java.awt.image.VolatileImage;
 
 import javax.swing.JFrame;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import fr.snapgames.game.singleclassgame.Game;
+import fr.snapgames.game.singleclassgame.core.config.Configuration;
 import fr.snapgames.game.singleclassgame.core.input.KeyInputListener;
 
 /**
  * The Window object will create layer between the game and the OS windowing
  * system. The window can have a size at `scale` regarding game viewport size.
+ * <p>
+ * Two presentation paths are available, according to the
+ * <code>window.rendering</code> configuration key:
+ * <ul>
+ * <li><code>swing</code> (default): the game panel is the frame content, and
+ * the game buffer is drawn through the frame graphics. This is also the
+ * fallback if the buffer strategy can not be created,
+ * <li><code>active</code> (opt-in): the frame contains a {@link Canvas}
+ * ignoring repaint events, presented with a {@link BufferStrategy} of
+ * <code>window.buffers</code> buffers. The game buffer is uploaded to a
+ * {@link VolatileImage}, which is then scaled to the strategy back buffer, with
+ * the handling of the contents loss of both.
+ * </ul>
  * 
  * 
  * @author Frédéric Delorme<frederic.delorme@snapgames.fr>
@@ -29,6 +51,17 @@ public class Window {
 	 */
 	private JFrame frame;
 
+	private static final Logger logger = LoggerFactory.getLogger(Window.class);
+
+	/**
+	 * Active rendering canvas, its buffer strategy and the accelerated copy of the
+	 * game buffer.
+	 */
+	private Canvas canvas;
+	private BufferStrategy strategy;
+	private VolatileImage volatileImage;
+	private int buffers = 2;
+
 	/**
 	 * CReate a window containing the Game with a title.
 	 *
@@ -45,7 +78,17 @@ public class Window {
 
 		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-		frame.setContentPane(game);
+		if ("active".equals(Configuration.get("window.rendering", "swing"))) {
+			buffers = Configuration.getInteger("window.buffers", 2);
+			canvas = new Canvas();
+			canvas.setIgnoreRepaint(true);
+			canvas.setFocusable(false);
+			canvas.setPreferredSize(game.dim);
+			frame.setIgnoreRepaint(true);
+			frame.add(canvas);
+		} else {
+			frame.setContentPane(game);
+		}
 
 	}
 
@@ -54,6 +97,70 @@ public class Window {
 	 */
 	public void show() {
 		frame.setVisible(true);
+		if (canvas != null && strategy == null) {
+			try {
+				canvas.createBufferStrategy(buffers);
+				strategy = canvas.getBufferStrategy();
+				logger.info("Active rendering with {} buffers", buffers);
+			} catch (Exception e) {
+				logger.error("Unable to create buffer strategy, fallback to swing rendering", e);
+				frame.remove(canvas);
+				canvas = null;
+				frame.setIgnoreRepaint(false);
+				frame.revalidate();
+			}
+		}
+	}
+
+	/**
+	 * Present the <code>(0,0)-(sw,sh)</code> area of the <code>buffer</code>
+	 * scaled to <code>(0,0)-(dw,dh)</code> on the window.
+	 *
+	 * @param buffer the game rendering buffer.
+	 * @param dw     the destination width.
+	 * @param dh     the destination height.
+	 * @param sw     the source width.
+	 * @param sh     the source height.
+	 */
+	public void present(Image buffer, int dw, int dh, int sw, int sh) {
+		if (strategy == null) {
+			Graphics2D g = getGraphics();
+			g.drawImage(buffer, 0, 0, dw, dh, 0, 0, sw, sh, null);
+			g.dispose();
+			return;
+		}
+		do {
+			do {
+				uploadToVolatile(buffer, sw, sh);
+				Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+				g.drawImage(volatileImage, 0, 0, dw, dh, 0, 0, sw, sh, null);
+				g.dispose();
+			} while (strategy.contentsRestored() || volatileImage.contentsLost());
+			strategy.show();
+		} while (strategy.contentsLost());
+	}
+
+	/**
+	 * Copy the game <code>buffer</code> to the volatile image, (re)creating it if
+	 * not compatible anymore with the canvas configuration.
+	 *
+	 * @param buffer the game rendering buffer.
+	 * @param sw     the source width.
+	 * @param sh     the source height.
+	 */
+	private void uploadToVolatile(Image buffer, int sw, int sh) {
+		GraphicsConfiguration gc = canvas.getGraphicsConfiguration();
+		if (volatileImage == null || volatileImage.getWidth() != sw || volatileImage.getHeight() != sh
+				|| volatileImage.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+			if (volatileImage != null) {
+				volatileImage.flush();
+			}
+			volatileImage = gc.createCompatibleVolatileImage(sw, sh);
+			volatileImage.validate(gc);
+		}
+		Graphics2D g = volatileImage.createGraphics();
+		g.drawImage(buffer, 0, 0, null);
+		g.dispose();
 	}
 
 	/**
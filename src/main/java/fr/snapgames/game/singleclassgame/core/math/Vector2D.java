@@ -47,6 +47,58 @@ public class Vector2D {
 		this.y = y;
 	}
 
+	/**
+	 * Set the vector components.
+	 *
+	 * @param x
+	 * @param y
+	 * @return this vector.
+	 */
+	public Vector2D set(float x, float y) {
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+
+	/**
+	 * Copy the <code>v</code> vector components into this one.
+	 *
+	 * @param v
+	 * @return this vector.
+	 */
+	public Vector2D set(Vector2D v) {
+		this.x = v.x;
+		this.y = v.y;
+		return this;
+	}
+
+	/**
+	 * add the <code>(x,y)</code> components to this vector.
+	 *
+	 * @param x
+	 * @param y
+	 * @return this vector.
+	 */
+	public Vector2D add(float x, float y) {
+		this.x += x;
+		this.y += y;
+		return this;
+	}
+
+	/**
+	 * add the v vector multiplied by <code>f</code> to this vector, without any
+	 * intermediate vector.
+	 *
+	 * @param v
+	 * @param f
+	 * @return this vector.
+	 */
+	public Vector2D addScaled(Vector2D v, float f) {
+		this.x += v.x * f;
+		this.y += v.y * f;
+		return this;
+	}
+
 	/**
 	 * add the v vector.
 	 *
@@ -69,6 +121,20 @@ public class Vector2D {
 		return new Vector2D(this.name, x - v.x, y - v.y);
 	}
 
+	/**
+	 * substract the v vector from this one and store the result into
+	 * <code>out</code>, leaving this vector unchanged.
+	 *
+	 * @param v
+	 * @param out the vector receiving the result.
+	 * @return the <code>out</code> vector.
+	 */
+	public Vector2D subInto(Vector2D v, Vector2D out) {
+		out.x = x - v.x;
+		out.y = y - v.y;
+		return out;
+	}
+
 	/**
 	 * multiply the vector with f.
 	 *
@@ -93,7 +159,9 @@ public class Vector2D {
 	}
 
 	/**
-	 * Normalization of this vector.
+	 * Normalization of this vector (in place).
+	 * 
+	 * @return this vector.
 	 */
 	public Vector2D normalize() {
 		// sets length to 1
@@ -106,7 +174,7 @@ public class Vector2D {
 			y = y * s;
 		}
 
-		return new Vector2D(this.name, x, y);
+		return this;
 	}
 
 	/**
@@ -0,0 +1,76 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.profiler;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering a collision pass: broad phase update and pairs tests.
+ *
+ * @author Frédéric Delorme
+ */
+@Name("fr.snapgames.game.singleclassgame.CollisionPass")
+@Label("Collision Pass")
+@Category("SingleClassGame")
+@Description("Broad phase update and narrow phase tests of a collision pass")
+public class CollisionPassEvent extends Event {
+
+	private static final EventType TYPE = EventType.getEventType(CollisionPassEvent.class);
+
+	@Label("Colliders")
+	int colliders;
+
+	@Label("Pairs tested")
+	int pairsTested;
+
+	@Label("Pairs colliding")
+	int pairsColliding;
+
+	@Label("Swept objects")
+	int swept;
+
+	/**
+	 * Start a new event, if the event type is enabled by a recording.
+	 *
+	 * @return the started event, or null.
+	 */
+	public static CollisionPassEvent start() {
+		if (!TYPE.isEnabled()) {
+			return null;
+		}
+		CollisionPassEvent event = new CollisionPassEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * End the event and commit it with its values.
+	 *
+	 * @param colliders      the number of colliders.
+	 * @param pairsTested    the number of candidate pairs.
+	 * @param pairsColliding the number of colliding pairs.
+	 * @param swept          the number of swept objects.
+	 */
+	public void finish(int colliders, int pairsTested, int pairsColliding, int swept) {
+		end();
+		if (shouldCommit()) {
+			this.colliders = colliders;
+			this.pairsTested = pairsTested;
+			this.pairsColliding = pairsColliding;
+			this.swept = swept;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.profiler;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering the rendering of a frame, from the buffer clearing to its
+ * presentation on screen.
+ *
+ * @author Frédéric Delorme
+ */
+@Name("fr.snapgames.game.singleclassgame.Frame")
+@Label("Frame")
+@Category("SingleClassGame")
+@Description("Rendering and presentation of a frame")
+public class FrameEvent extends Event {
+
+	private static final EventType TYPE = EventType.getEventType(FrameEvent.class);
+
+	@Label("Frames per second")
+	int fps;
+
+	@Label("Objects")
+	int objects;
+
+	/**
+	 * Start a new event, if the event type is enabled by a recording.
+	 *
+	 * @return the started event, or null.
+	 */
+	public static FrameEvent start() {
+		if (!TYPE.isEnabled()) {
+			return null;
+		}
+		FrameEvent event = new FrameEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * End the event and commit it with its values.
+	 *
+	 * @param fps     the measured frame rate.
+	 * @param objects the number of game objects.
+	 */
+	public void finish(int fps, int objects) {
+		end();
+		if (shouldCommit()) {
+			this.fps = fps;
+			this.objects = objects;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,312 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.profiler;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * The frame profiler measures the duration of each phase of the game loop
+ * (see {@link Phase}) with <code>System.nanoTime()</code>:
+ * <ul>
+ * <li>a phase is measured with <code>long t = profiler.start();</code> then
+ * <code>profiler.end(Phase.UPDATE, t);</code>,
+ * <li>the last <code>capacity</code> durations of each phase are kept in a
+ * ring buffer allocated once,
+ * <li>percentiles (p50, p95, p99), mean and max are computed on demand from
+ * the rings, sorting a copy into a preallocated buffer,
+ * <li>a summary can be drawn as an HUD over the game view.
+ * </ul>
+ * <p>
+ * Each phase must be measured from one thread only (the render thread owns
+ * {@link Phase#RENDER} and {@link Phase#PRESENT} in the pipelined loop).
+ * Statistics read from another thread are approximate.
+ *
+ * @author Frédéric Delorme
+ */
+public class FrameProfiler {
+
+	/**
+	 * The measured phases of the game loop.
+	 */
+	public enum Phase {
+		INPUT("input"), UPDATE("update"), CULL("cull"), NARROW("narrow"), RENDER("render"), PRESENT("present"),
+		SLEEP("sleep");
+
+		public final String label;
+
+		Phase(String label) {
+			this.label = label;
+		}
+	}
+
+	private static final int PHASES = Phase.values().length;
+
+	private static final Color HUD_BACKGROUND = new Color(0.0f, 0.0f, 0.0f, 0.6f);
+	private static final Font HUD_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 10);
+
+	/**
+	 * Activation flag: when false, nothing is measured. It can be switched from
+	 * any thread (HUD, JMX).
+	 */
+	public volatile boolean enabled = true;
+
+	/**
+	 * Display flag for the HUD, switched from the input thread.
+	 */
+	public volatile boolean hud = false;
+
+	private final int capacity;
+	private final long[][] samples;
+	private final int[] index = new int[PHASES];
+	private final long[] counts = new long[PHASES];
+
+	/**
+	 * Sort buffer for the percentiles computation.
+	 */
+	private final long[] sorted;
+
+	/**
+	 * HUD lines, computed again by {@link FrameProfiler#refreshHud()}.
+	 */
+	private final String[] hudLines = new String[PHASES + 1];
+
+	/**
+	 * Create a profiler keeping the last <code>capacity</code> samples of each
+	 * phase.
+	 *
+	 * @param capacity the number of samples per phase.
+	 */
+	public FrameProfiler(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		this.samples = new long[PHASES][this.capacity];
+		this.sorted = new long[this.capacity];
+	}
+
+	/**
+	 * Start a measure.
+	 *
+	 * @return the start time, to be given to
+	 *         {@link FrameProfiler#end(Phase, long)}.
+	 */
+	public long start() {
+		return (enabled ? System.nanoTime() : 0L);
+	}
+
+	/**
+	 * End the measure of the <code>phase</code> started at <code>start</code>.
+	 *
+	 * @param phase the measured phase.
+	 * @param start the value returned by {@link FrameProfiler#start()}; 0 when
+	 *              the profiler was disabled at start, and the measure is then
+	 *              ignored.
+	 */
+	public void end(Phase phase, long start) {
+		if (enabled && start != 0L) {
+			record(phase, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Record a <code>duration</code> for the <code>phase</code>.
+	 *
+	 * @param phase    the measured phase.
+	 * @param duration the duration in nanoseconds.
+	 */
+	public void record(Phase phase, long duration) {
+		int p = phase.ordinal();
+		samples[p][index[p]] = duration;
+		index[p] = (index[p] + 1) % capacity;
+		counts[p]++;
+	}
+
+	/**
+	 * Clear all the samples.
+	 */
+	public void reset() {
+		for (int p = 0; p < PHASES; p++) {
+			Arrays.fill(samples[p], 0L);
+			index[p] = 0;
+			counts[p] = 0;
+		}
+	}
+
+	/**
+	 * Number of samples available for the <code>phase</code>.
+	 *
+	 * @param phase
+	 * @return
+	 */
+	public int getSampleCount(Phase phase) {
+		return (int) Math.min(capacity, counts[phase.ordinal()]);
+	}
+
+	/**
+	 * Total number of measures of the <code>phase</code>.
+	 *
+	 * @param phase
+	 * @return
+	 */
+	public long getCount(Phase phase) {
+		return counts[phase.ordinal()];
+	}
+
+	/**
+	 * The last duration of the <code>phase</code>, in nanoseconds.
+	 *
+	 * @param phase
+	 * @return
+	 */
+	public long getLast(Phase phase) {
+		int p = phase.ordinal();
+		return (counts[p] > 0 ? samples[p][(index[p] + capacity - 1) % capacity] : 0L);
+	}
+
+	/**
+	 * The <code>percent</code> percentile (nearest rank) of the
+	 * <code>phase</code> durations in the ring, in nanoseconds.
+	 *
+	 * @param phase   the measured phase.
+	 * @param percent the percentile, from 0 to 100.
+	 * @return the duration, or 0 if no sample is available.
+	 */
+	public synchronized long getPercentile(Phase phase, float percent) {
+		int n = getSampleCount(phase);
+		if (n == 0) {
+			return 0L;
+		}
+		System.arraycopy(samples[phase.ordinal()], 0, sorted, 0, n);
+		Arrays.sort(sorted, 0, n);
+		int rank = (int) Math.ceil(percent / 100.0f * n) - 1;
+		return sorted[Math.max(0, Math.min(n - 1, rank))];
+	}
+
+	/**
+	 * The maximum duration of the <code>phase</code> in the ring, in
+	 * nanoseconds.
+	 *
+	 * @param phase
+	 * @return
+	 */
+	public long getMax(Phase phase) {
+		long[] s = samples[phase.ordinal()];
+		long max = 0L;
+		for (int i = 0, n = getSampleCount(phase); i < n; i++) {
+			max = Math.max(max, s[i]);
+		}
+		return max;
+	}
+
+	/**
+	 * The mean duration of the <code>phase</code> in the ring, in nanoseconds.
+	 *
+	 * @param phase
+	 * @return
+	 */
+	public long getMean(Phase phase) {
+		long[] s = samples[phase.ordinal()];
+		int n = getSampleCount(phase);
+		long sum = 0L;
+		for (int i = 0; i < n; i++) {
+			sum += s[i];
+		}
+		return (n > 0 ? sum / n : 0L);
+	}
+
+	/**
+	 * Return a human readable summary of the <code>phase</code> durations, in
+	 * milliseconds.
+	 *
+	 * @param phase
+	 * @return
+	 */
+	public String getStatistics(Phase phase) {
+		return String.format("%-8s p50:%6.2f p95:%6.2f p99:%6.2f max:%6.2f ms", phase.label,
+				getPercentile(phase, 50) / 1e6, getPercentile(phase, 95) / 1e6, getPercentile(phase, 99) / 1e6,
+				getMax(phase) / 1e6);
+	}
+
+	/**
+	 * Compute again the HUD lines from the current samples.
+	 */
+	public void refreshHud() {
+		hudLines[0] = String.format("profiler (%d samples)", capacity);
+		for (Phase phase : Phase.values()) {
+			hudLines[phase.ordinal() + 1] = getStatistics(phase);
+		}
+	}
+
+	/**
+	 * Draw the HUD at <code>(x,y)</code>, as computed by the last
+	 * {@link FrameProfiler#refreshHud()}.
+	 *
+	 * @param g the Graphics API.
+	 * @param x the left of the HUD.
+	 * @param y the top of the HUD.
+	 */
+	public void drawHud(Graphics2D g, int x, int y) {
+		if (hudLines[0] == null) {
+			refreshHud();
+		}
+		drawHud(g, hudLines, x, y);
+	}
+
+	/**
+	 * Copy the HUD lines computed by the last {@link FrameProfiler#refreshHud()}
+	 * into <code>lines</code>, to be drawn from another thread.
+	 *
+	 * @param lines an array of {@link FrameProfiler#getHudLineCount()} lines.
+	 */
+	public void copyHud(String[] lines) {
+		if (hudLines[0] == null) {
+			refreshHud();
+		}
+		System.arraycopy(hudLines, 0, lines, 0, hudLines.length);
+	}
+
+	/**
+	 * Number of lines of the HUD.
+	 *
+	 * @return
+	 */
+	public static int getHudLineCount() {
+		return PHASES + 1;
+	}
+
+	/**
+	 * Draw HUD <code>lines</code> at <code>(x,y)</code>.
+	 *
+	 * @param g     the Graphics API.
+	 * @param lines the lines, as copied by
+	 *              {@link FrameProfiler#copyHud(String[])}.
+	 * @param x     the left of the HUD.
+	 * @param y     the top of the HUD.
+	 */
+	public static void drawHud(Graphics2D g, String[] lines, int x, int y) {
+		Font font = g.getFont();
+		g.setFont(HUD_FONT);
+		FontMetrics fm = g.getFontMetrics();
+		int width = 0;
+		for (int i = 0; i < lines.length; i++) {
+			width = Math.max(width, fm.stringWidth(lines[i]));
+		}
+		g.setColor(HUD_BACKGROUND);
+		g.fillRect(x - 4, y - 4, width + 8, lines.length * fm.getHeight() + 8);
+		g.setColor(Color.GREEN);
+		for (int i = 0; i < lines.length; i++) {
+			g.drawString(lines[i], x, y + i * fm.getHeight() + fm.getAscent());
+		}
+		g.setFont(font);
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.profiler;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.snapgames.game.singleclassgame.core.config.Configuration;
+
+/**
+ * <p>
+ * Export of the engine internals to the JVM monitoring tools:
+ * <ul>
+ * <li>the engine components are registered as standard MBeans (see the
+ * <code>*MBean</code> interfaces) into the platform MBeanServer, under the
+ * <code>fr.snapgames.game.singleclassgame</code> domain, if
+ * <code>metrics.jmx</code> is true,
+ * <li>the JDK Flight Recorder events ({@link FrameEvent},
+ * {@link CollisionPassEvent}, {@link StateTransitionEvent}) are emitted if
+ * <code>metrics.jfr</code> is true and the JVM provides the
+ * <code>jdk.jfr</code> API. Events are only allocated when a recording
+ * enables them.
+ * </ul>
+ *
+ * @author Frédéric Delorme
+ */
+public class Metrics {
+
+	private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+
+	public static final String DOMAIN = "fr.snapgames.game.singleclassgame";
+
+	/**
+	 * True if the JFR events must be emitted.
+	 */
+	public static boolean jfr = false;
+
+	private static boolean jmx = false;
+	private static List<ObjectName> registered = new ArrayList<>();
+
+	private Metrics() {
+	}
+
+	/**
+	 * Read the metrics configuration.
+	 */
+	public static void initialize() {
+		jmx = Configuration.getBoolean("metrics.jmx", true);
+		jfr = Configuration.getBoolean("metrics.jfr", true) && isJfrAvailable();
+		logger.info("Metrics export: jmx:{} jfr:{}", jmx, jfr);
+	}
+
+	private static boolean isJfrAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Register the <code>mbean</code> as <code>DOMAIN:type=&lt;type&gt;</code>.
+	 *
+	 * @param type  the type key of the MBean name.
+	 * @param mbean the object implementing its <code>*MBean</code> interface.
+	 */
+	public static void register(String type, Object mbean) {
+		if (!jmx || mbean == null) {
+			return;
+		}
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(DOMAIN + ":type=" + type);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(mbean, name);
+			registered.add(name);
+		} catch (JMException e) {
+			logger.error("Unable to register the MBean {}: {}", type, e.getMessage());
+		}
+	}
+
+	/**
+	 * Unregister all the MBeans registered by
+	 * {@link Metrics#register(String, Object)}.
+	 */
+	public static void dispose() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : registered) {
+			try {
+				server.unregisterMBean(name);
+			} catch (JMException e) {
+				logger.error("Unable to unregister the MBean {}: {}", name, e.getMessage());
+			}
+		}
+		registered.clear();
+	}
+}
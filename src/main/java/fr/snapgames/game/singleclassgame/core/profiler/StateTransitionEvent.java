@@ -0,0 +1,67 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.profiler;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering a game state transition, from the deactivation of the
+ * previous state to the activation of the new one.
+ *
+ * @author Frédéric Delorme
+ */
+@Name("fr.snapgames.game.singleclassgame.StateTransition")
+@Label("State Transition")
+@Category("SingleClassGame")
+@Description("Deactivation of a game state and activation of the next one")
+public class StateTransitionEvent extends Event {
+
+	private static final EventType TYPE = EventType.getEventType(StateTransitionEvent.class);
+
+	@Label("From")
+	String from;
+
+	@Label("To")
+	String to;
+
+	/**
+	 * Start a new event, if the event type is enabled by a recording.
+	 *
+	 * @return the started event, or null.
+	 */
+	public static StateTransitionEvent start() {
+		if (!TYPE.isEnabled()) {
+			return null;
+		}
+		StateTransitionEvent event = new StateTransitionEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * End the event and commit it with its values.
+	 *
+	 * @param from the name of the previous state (or null).
+	 * @param to   the name of the new state.
+	 */
+	public void finish(String from, String to) {
+		end();
+		if (shouldCommit()) {
+			this.from = from;
+			this.to = to;
+			commit();
+		}
+	}
+}
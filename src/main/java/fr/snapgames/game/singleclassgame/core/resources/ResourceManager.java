@@ -9,21 +9,60 @@
  */
 package fr.snapgames.game.singleclassgame.core.resources;
 
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.imageio.ImageIO;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.snapgames.game.singleclassgame.core.config.Configuration;
+
 /**
  * the ResourceManager class intends to load and cache some objects like image,
  * sounds, font, etc... any resources.
+ * <p>
+ * Images are converted on load to the format of the screen
+ * GraphicsConfiguration (or <code>TYPE_INT_ARGB_PRE</code> when headless or
+ * when the tile rasterizer is activated with <code>render.tiles</code>, as it
+ * reads these pixels directly), so that drawing them does not need any
+ * conversion. Scaled variants of images,
+ * requested with {@link ResourceManager#getImage(String, int, int)}, are kept
+ * into a LRU cache whose size is limited to
+ * <code>resources.cache.budget</code> bytes.
  *
  * @author Frédéric Delorme <frederic.delorme@snapgames.fr>
  */
-public class ResourceManager {
+public class ResourceManager implements ResourceManagerMBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(ResourceManager.class);
+
 	private Map<String, Object> objects = new HashMap<>();
 
+	/**
+	 * Scaled images cache, in access order, and its size in bytes.
+	 */
+	private Map<String, BufferedImage> scaled = new LinkedHashMap<>(16, 0.75f, true);
+	private long scaledBytes = 0;
+	private long budget = Configuration.getInteger("resources.cache.budget", 16 * 1024 * 1024);
+	private long hits = 0, misses = 0, evictions = 0;
+
+	/**
+	 * Store the images as <code>TYPE_INT_ARGB_PRE</code>.
+	 */
+	private boolean premultiplied = GraphicsEnvironment.isHeadless()
+			|| Configuration.getBoolean("render.tiles", false);
+
 	/**
 	 * Add a resource to the set.
 	 *
@@ -35,7 +74,7 @@ public class ResourceManager {
 		if (path.toLowerCase().endsWith(".png") || path.toLowerCase().endsWith(".png")) {
 			try {
 				BufferedImage image = ImageIO.read(this.getClass().getResourceAsStream("/" + path));
-				objects.put(name, image);
+				objects.put(name, toCompatible(image, image.getWidth(), image.getHeight()));
 			} catch (Exception e) {
 				System.err.println(String.format("Unable to find %s and store resource as %s.", path, name));
 				System.exit(-1);
@@ -57,4 +96,141 @@ public class ResourceManager {
 			throw new ResourceUnknownException(String.format("Unknown resource named %s", name));
 		}
 	}
+
+	/**
+	 * retrieve an image from the resource set, scaled to
+	 * <code>width x height</code>. The scaled image is computed once and cached.
+	 *
+	 * @param name   the name of the resource to retrieve.
+	 * @param width  the width of the image.
+	 * @param height the height of the image.
+	 * @return the scaled BufferedImage.
+	 * @throws ResourceUnknownException
+	 */
+	public BufferedImage getImage(String name, int width, int height) throws ResourceUnknownException {
+		BufferedImage image = getImage(name);
+		if (image.getWidth() == width && image.getHeight() == height) {
+			return image;
+		}
+		String key = String.format("%s:%dx%d", name, width, height);
+		BufferedImage variant = scaled.get(key);
+		if (variant == null) {
+			misses++;
+			variant = scale(image, width, height);
+			scaled.put(key, variant);
+			scaledBytes += sizeOf(variant);
+			evict(variant);
+			logger.debug("Scaled image {} created ({} bytes cached)", key, scaledBytes);
+		} else {
+			hits++;
+		}
+		return variant;
+	}
+
+	/**
+	 * Remove the least recently used scaled images until the cache fits into its
+	 * budget, keeping at least the <code>last</code> one.
+	 *
+	 * @param last the last created image.
+	 */
+	private void evict(BufferedImage last) {
+		Iterator<Map.Entry<String, BufferedImage>> it = scaled.entrySet().iterator();
+		while (scaledBytes > budget && it.hasNext()) {
+			Map.Entry<String, BufferedImage> e = it.next();
+			if (e.getValue() != last) {
+				scaledBytes -= sizeOf(e.getValue());
+				it.remove();
+				evictions++;
+				logger.debug("Scaled image {} evicted from cache", e.getKey());
+			}
+		}
+	}
+
+	private static long sizeOf(BufferedImage image) {
+		return 4L * image.getWidth() * image.getHeight();
+	}
+
+	/**
+	 * Scale the <code>image</code> to <code>width x height</code>. When reducing,
+	 * the image size is halved step by step to keep a good quality with bilinear
+	 * interpolation.
+	 *
+	 * @param image  the source image.
+	 * @param width  the target width.
+	 * @param height the target height.
+	 * @return the scaled image, in a compatible format.
+	 */
+	private BufferedImage scale(BufferedImage image, int width, int height) {
+		BufferedImage current = image;
+		int w = image.getWidth(), h = image.getHeight();
+		do {
+			w = (w / 2 >= width ? w / 2 : width);
+			h = (h / 2 >= height ? h / 2 : height);
+			current = toCompatible(current, w, h);
+		} while (w != width || h != height);
+		return current;
+	}
+
+	/**
+	 * Draw the <code>image</code> into a new <code>width x height</code> one, in
+	 * the format of the screen (or <code>TYPE_INT_ARGB_PRE</code> when
+	 * headless or for the tile rasterizer).
+	 *
+	 * @param image  the source image.
+	 * @param width  the width of the new image.
+	 * @param height the height of the new image.
+	 * @return the new image.
+	 */
+	private BufferedImage toCompatible(BufferedImage image, int width, int height) {
+		BufferedImage compatible;
+		if (premultiplied) {
+			compatible = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+		} else {
+			GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+					.getDefaultConfiguration();
+			compatible = gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+		}
+		Graphics2D g = compatible.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+		g.drawImage(image, 0, 0, width, height, null);
+		g.dispose();
+		return compatible;
+	}
+
+	@Override
+	public int getResourceCount() {
+		return objects.size();
+	}
+
+	@Override
+	public int getScaledImageCount() {
+		return scaled.size();
+	}
+
+	@Override
+	public long getScaledBytes() {
+		return scaledBytes;
+	}
+
+	@Override
+	public long getCacheBudget() {
+		return budget;
+	}
+
+	@Override
+	public long getCacheHits() {
+		return hits;
+	}
+
+	@Override
+	public long getCacheMisses() {
+		return misses;
+	}
+
+	@Override
+	public long getEvictions() {
+		return evictions;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.resources;
+
+/**
+ * JMX view of the {@link ResourceManager} and of its scaled images cache.
+ *
+ * @author Frédéric Delorme
+ */
+public interface ResourceManagerMBean {
+
+	public int getResourceCount();
+
+	public int getScaledImageCount();
+
+	public long getScaledBytes();
+
+	public long getCacheBudget();
+
+	public long getCacheHits();
+
+	public long getCacheMisses();
+
+	public long getEvictions();
+}
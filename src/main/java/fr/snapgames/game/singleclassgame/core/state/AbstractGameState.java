@@ -10,9 +10,14 @@
 package fr.snapgames.game.singleclassgame.core.state;
 
 import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.List;
 
 import fr.snapgames.game.singleclassgame.Game;
+import fr.snapgames.game.singleclassgame.core.collision.Collidable;
+import fr.snapgames.game.singleclassgame.core.entity.Camera;
 import fr.snapgames.game.singleclassgame.core.entity.GameObject;
+import fr.snapgames.game.singleclassgame.core.graphics.RenderQueue;
 
 /**
  * 
@@ -23,6 +28,11 @@ public class AbstractGameState implements GameState {
 
 	private String name;
 
+	/**
+	 * Objects visible through the active camera during the last rendering.
+	 */
+	protected List<Collidable> visible = new ArrayList<>();
+
 	public AbstractGameState(Game game, String name) {
 		this.name = name;
 	}
@@ -49,21 +59,47 @@ public class AbstractGameState implements GameState {
 
 	@Override
 	public void update(Game game, float elapsed) {
-		for (GameObject o : game.objects) {
-			o.updatePhysic(elapsed);
+		if (game.entities != null) {
+			game.entities.integrate(game.world, elapsed);
+		} else {
+			for (int i = 0; i < game.objects.size(); i++) {
+				game.objects.get(i).updatePhysic(elapsed);
+			}
 		}
 	}
 
+	/**
+	 * Render the objects: they are submitted to the game {@link RenderQueue},
+	 * which draws them by priority order.
+	 */
 	@Override
-	public void render(Game game, Graphics2D g) {
+	public void render(Game game, Graphics2D g, float alpha) {
+		RenderQueue queue = game.renderQueue;
+		submit(game, queue);
+		game.drawQueue(queue, g, alpha);
+		queue.clear();
+	}
 
-		// if objects in the list, draw all those things
-		if (game.objects != null && game.objects.size() > 0) {
-			for (GameObject o : game.objects) {
-				o.render(g);
+	/**
+	 * Submit the objects to the <code>queue</code>. If <code>render.culling</code>
+	 * is set and a camera is active, only the objects overlapping the camera
+	 * visible area are retrieved from the collision broad phase.
+	 */
+	@Override
+	public void submit(Game game, RenderQueue queue) {
+		Camera cam = game.world.activeCam;
+		if (game.culling && cam != null && game.collisionMgr != null) {
+			visible.clear();
+			game.collisionMgr.query(visible, cam.visibleMinX, cam.visibleMinY, cam.visibleMaxX, cam.visibleMaxY);
+			for (int i = 0; i < visible.size(); i++) {
+				((GameObject) visible.get(i)).submit(queue);
+			}
+		} else if (game.objects != null) {
+			// if objects in the list, draw all those things
+			for (int i = 0; i < game.objects.size(); i++) {
+				game.objects.get(i).submit(queue);
 			}
 		}
-
 	}
 
 	@Override
@@ -13,6 +13,7 @@ package fr.snapgames.game.singleclassgame.core.state;
 import java.awt.Graphics2D;
 
 import fr.snapgames.game.singleclassgame.Game;
+import fr.snapgames.game.singleclassgame.core.graphics.RenderQueue;
 
 /**
  * <p>
@@ -29,8 +30,10 @@ import fr.snapgames.game.singleclassgame.Game;
  * or anything input commands,
  * <li>{@link GameState#update(Game, float)} will delegate the State objects
  * update processing,
- * <li>{@link GameState#render(Game, Graphics2D)} to render this particular
- * state to the screen.
+ * <li>{@link GameState#render(Game, Graphics2D, float)} to render this
+ * particular state to the screen,
+ * <li>{@link GameState#submit(Game, RenderQueue)} to only submit the state draw
+ * commands, to be rendered later (possibly from another thread).
  * </ul>
  * 
  * <p>
@@ -95,8 +98,19 @@ public interface GameState {
 	 * 
 	 * @param game
 	 * @param g
+	 * @param alpha interpolation factor between the previous and the current
+	 *              update (from 0 to 1).
 	 */
-	public void render(Game game, Graphics2D g);
+	public void render(Game game, Graphics2D g, float alpha);
+
+	/**
+	 * Submit the draw commands of this state to the <code>queue</code>. This will
+	 * be called from the simulation thread in the pipelined game loop.
+	 * 
+	 * @param game
+	 * @param queue the render queue to be filled.
+	 */
+	public void submit(Game game, RenderQueue queue);
 
 	/**
 	 * retrieve the internal Name of this state. This is mainly called by the
@@ -17,18 +17,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.snapgames.game.singleclassgame.Game;
+import fr.snapgames.game.singleclassgame.core.graphics.RenderQueue;
+import fr.snapgames.game.singleclassgame.core.profiler.Metrics;
+import fr.snapgames.game.singleclassgame.core.profiler.StateTransitionEvent;
 
 /**
  * 
  * @author Frédéric Delorme
  *
  */
-public class GameStateManager {
+public class GameStateManager implements GameStateManagerMBean {
 
 	private static final Logger logger = LoggerFactory.getLogger(GameStateManager.class);
 
 	private Map<String, GameState> states = new HashMap<>();
 	GameState current = null;
+	private long transitions = 0;
 
 	public void add(GameState state) {
 		if (!states.containsKey(state.getName())) {
@@ -44,11 +48,17 @@ public class GameStateManager {
 
 	public void start(Game game, String name) {
 		if (states.containsKey(name)) {
+			StateTransitionEvent event = (Metrics.jfr ? StateTransitionEvent.start() : null);
+			String from = (current != null ? current.getName() : null);
 			if (current != null) {
 				current.deactivate(game);
 			}
 			current = states.get(name);
 			current.activate(game);
+			transitions++;
+			if (event != null) {
+				event.finish(from, name);
+			}
 		} else {
 			logger.error("Unable to start {} because this state name does not exists !", name);
 
@@ -73,10 +83,31 @@ public class GameStateManager {
 		}
 	}
 
-	public void render(Game game, Graphics2D g) {
+	public void render(Game game, Graphics2D g, float alpha) {
+		if (current != null) {
+			current.render(game, g, alpha);
+		}
+	}
+
+	public void submit(Game game, RenderQueue queue) {
 		if (current != null) {
-			current.render(game, g);
+			current.submit(game, queue);
 		}
 	}
 
+	@Override
+	public String getCurrentState() {
+		return (current != null ? current.getName() : null);
+	}
+
+	@Override
+	public String[] getStates() {
+		return states.keySet().toArray(new String[0]);
+	}
+
+	@Override
+	public long getTransitions() {
+		return transitions;
+	}
+
 }
@@ -0,0 +1,27 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.state;
+
+/**
+ * JMX view of the {@link GameStateManager}.
+ *
+ * @author Frédéric Delorme
+ */
+public interface GameStateManagerMBean {
+
+	public String getCurrentState();
+
+	public String[] getStates();
+
+	/**
+	 * Number of states started.
+	 */
+	public long getTransitions();
+}
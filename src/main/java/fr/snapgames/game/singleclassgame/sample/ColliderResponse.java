@@ -12,7 +12,6 @@ package fr.snapgames.game.singleclassgame.sample;
 import fr.snapgames.game.singleclassgame.Game;
 import fr.snapgames.game.singleclassgame.core.collision.CollisionResponseProcessor;
 import fr.snapgames.game.singleclassgame.core.entity.GameObject;
-import fr.snapgames.game.singleclassgame.core.math.Vector2D;
 
 /**
  * This is a simple response processor
@@ -32,15 +31,28 @@ public class ColliderResponse implements CollisionResponseProcessor {
 	 */
 	@Override
 	public void onCollide(Game game, GameObject o1, GameObject o2) {
+		onCollide(game, o1, o2, 1.0f);
+	}
+
+	/**
+	 * The bounce sound is played where the objects met, at the contact
+	 * <code>time</code> of a fast move.
+	 */
+	@Override
+	public void onCollide(Game game, GameObject o1, GameObject o2, float time) {
+		// pairs are not ordered: the player may be the second object.
+		if (o2.name.startsWith("player")) {
+			GameObject o = o1;
+			o1 = o2;
+			o2 = o;
+		}
 		if (o1.name.startsWith("player")) {
-			if (o2.lifeDuration > 0) {
-				o2.lifeDuration = 0;
+			if (o2.getLifeDuration() > 0) {
+				o2.setLifeDuration(0);
 			}
-			Vector2D vR = o2.velocity.add(o1.velocity);
-			vR.multiply(-1 * o2.elasticity * o2.friction * o1.elasticity * o1.friction);
-
-			//o2.velocity = vR;
-			o2.acceleration.multiply(-1 * o2.elasticity * o2.friction * o1.elasticity * o1.friction);
+			float k = -1 * o2.elasticity * o2.friction * o1.elasticity * o1.friction;
+			o2.setVelocity((o2.getVelocityX() + o1.getVelocityX()) * k, (o2.getVelocityY() + o1.getVelocityY()) * k);
+			o2.setAcceleration(o2.getAccelerationX() * k, o2.getAccelerationY() * k);
 
 //			computePosition(o1, o2);
 //			o1.velocity.x = 0;
@@ -48,7 +60,9 @@ public class ColliderResponse implements CollisionResponseProcessor {
 //			o1.acceleration.x = 0;
 //			o1.acceleration.y = 0;
 
-			game.soundControl.play("boing");
+			float x = o2.getOldX() + (o2.getX() - o2.getOldX()) * time;
+			float y = o2.getOldY() + (o2.getY() - o2.getOldY()) * time;
+			game.soundControl.playAt("boing", x + o2.getWidth() / 2, y + o2.getHeight() / 2);
 
 		}
 	}
@@ -63,35 +77,35 @@ public class ColliderResponse implements CollisionResponseProcessor {
 	private void computePosition(GameObject o1, GameObject o2) {
 		boolean left, right, top, bottom;
 		if (!o2.collidingResponseProcessed) {
-			Vector2D o1offset = o1.position;
-			o1offset.x += o1.width / 2;
-			o1offset.y += o1.height / 2;
+			float o1x = o1.getX() + o1.getWidth() / 2;
+			float o1y = o1.getY() + o1.getHeight() / 2;
+			float o2x = o2.getX() + o2.getWidth() / 2;
+			float o2y = o2.getY() + o2.getHeight() / 2;
 
-			Vector2D o2offset = o2.position;
-			o2offset.x += o2.width / 2;
-			o2offset.y += o2.height / 2;
+			left = o2x < o1x;
+			right = o2x > o1x;
+			top = o2y < o1y;
+			bottom = o2y > o1y;
 
-			left = o2offset.x < o1offset.x;
-			right = o2offset.x > o1offset.x;
-			top = o2offset.y < o1offset.y;
-			bottom = o2offset.y > o1offset.y;
+			float x = o2.getX(), y = o2.getY();
 
 			/**
 			 * Move on horizontal axis.
 			 */
 			if (left) {
-				o2.position.x = o1.position.y - (o2.width / 2);
+				x = o1.getY() - (o2.getWidth() / 2);
 			} else if (right) {
-				o2.position.x = o1.position.y + (o1.width / 2);
+				x = o1.getY() + (o1.getWidth() / 2);
 			}
 			/**
 			 * Move on vertical axis
 			 */
 			if (top) {
-				o2.position.y = o1.position.y + (o2.height / 2);
+				y = o1.getY() + (o2.getHeight() / 2);
 			} else if (bottom) {
-				o2.position.y = o1.position.y - (o1.height / 2);
+				y = o1.getY() - (o1.getHeight() / 2);
 			}
+			o2.setPosition(x, y);
 			o2.setCollidingResponseProcessed(true);
 		}
 
@@ -69,6 +69,11 @@ public class GameKeyInput implements KeyListener {
 			game.debug = Math.floorMod(game.debug + 1, 5);
 			logger.info(String.format("Debug level set to %d", game.debug));
 			break;
+		case KeyEvent.VK_F4:
+		case KeyEvent.VK_H:
+			game.profiler.hud = !game.profiler.hud;
+			logger.info(String.format("Profiler HUD set to %s", (game.profiler.hud ? "ON" : "OFF")));
+			break;
 		case KeyEvent.VK_S:
 		case KeyEvent.VK_F12:
 			logger.info("take ascreenshot");
@@ -19,10 +19,10 @@ import org.slf4j.LoggerFactory;
 
 import fr.snapgames.game.singleclassgame.Game;
 import fr.snapgames.game.singleclassgame.core.collision.BoundingBoxType;
+import fr.snapgames.game.singleclassgame.core.config.Configuration;
 import fr.snapgames.game.singleclassgame.core.entity.Camera;
 import fr.snapgames.game.singleclassgame.core.entity.GameObject;
 import fr.snapgames.game.singleclassgame.core.entity.ObjectFactory;
-import fr.snapgames.game.singleclassgame.core.math.Vector2D;
 import fr.snapgames.game.singleclassgame.core.resources.ResourceUnknownException;
 import fr.snapgames.game.singleclassgame.core.state.AbstractGameState;
 import fr.snapgames.game.singleclassgame.core.state.GameState;
@@ -102,17 +102,15 @@ public class SampleState extends AbstractGameState implements GameState {
 			System.exit(-1);
 		}
 
-		// add specific game player key listener
-		game.kil.register(new PlayerKeyInput(player, game.kil));
-
 		// ---- Add a bunch of enemies !
-		for (int i = 0; i < 50; i++) {
+		int nbEnemies = Configuration.getInteger("sample.enemies", 50);
+		for (int i = 0; i < nbEnemies; i++) {
 			float posX = (float) (Math.random() * game.playZone.width);
 			float posY = (float) (Math.random() * game.playZone.height);
 			try {
 				GameObject enemy = ((GameObject) factory.create(game, GameObject.class, "enemy_" + i))
 						.setPosition(posX, posY)
-						.setImage(game.resourceMgr.getImage("enemyBall"))
+						.setImage(game.resourceMgr.getImage("enemyBall", 24, 24))
 						.setSize(24.0f, 24.0f)
 						.setAcceleration((float) Math.random() * 0.005f, (float) Math.random() * 0.005f)
 						.setPriority(2 + i)
@@ -153,35 +151,45 @@ public class SampleState extends AbstractGameState implements GameState {
 	public void input(Game game) {
 		super.input(game);
 
+		// the player is only moved here, on the game loop thread: the key
+		// listeners run on the event dispatch thread and only record the keys
+		// state into the KeyInputListener.
+
 		// move up (with extra speed !)
 		if (game.kil.getKey(KeyEvent.VK_UP)) {
-			player.forces.add(new Vector2D("move-up", 0.0f, -player.moveFactor * 20.0f));
-			logger.debug("player move up y+={}", -player.moveFactor);
+			player.addForce(0.0f, -player.moveFactor * 20.0f);
+			if (logger.isDebugEnabled()) {
+				logger.debug("player move up y+={}", -player.moveFactor);
+			}
 		}
 		// move down
 		if (game.kil.getKey(KeyEvent.VK_DOWN)) {
-			player.forces.add(new Vector2D("move-down", 0.0f, player.moveFactor));
-			logger.debug("player move down y+={}", player.moveFactor);
+			player.addForce(0.0f, player.moveFactor);
+			if (logger.isDebugEnabled()) {
+				logger.debug("player move down y+={}", player.moveFactor);
+			}
 		}
 		// move left
 		if (game.kil.getKey(KeyEvent.VK_LEFT)) {
-			player.forces.add(new Vector2D("move-left", -player.moveFactor, 0.0f));
-			logger.debug("player move left x+={}", player.moveFactor);
+			player.addForce(-player.moveFactor, 0.0f);
+			if (logger.isDebugEnabled()) {
+				logger.debug("player move left x+={}", player.moveFactor);
+			}
 		}
 
 		// move right
 		if (game.kil.getKey(KeyEvent.VK_RIGHT)) {
-			player.forces.add(new Vector2D("move-right", player.moveFactor, 0.0f));
-			logger.debug("player move left x+={}", -player.moveFactor);
+			player.addForce(player.moveFactor, 0.0f);
+			if (logger.isDebugEnabled()) {
+				logger.debug("player move left x+={}", -player.moveFactor);
+			}
 		}
 
 		// stop any action !
 		if (game.kil.getKey(KeyEvent.VK_SPACE)) {
-			player.forces.clear();
-			player.velocity.x = 0.0f;
-			player.velocity.y = 0.0f;
-			player.acceleration.x = 0.0f;
-			player.acceleration.y = 0.0f;
+			player.clearForces();
+			player.setVelocity(0.0f, 0.0f);
+			player.setAcceleration(0.0f, 0.0f);
 		}
 
 	}
@@ -196,9 +204,15 @@ public class SampleState extends AbstractGameState implements GameState {
 			randomizeEnemies(game);
 			randomizeEnemies = false;
 		}
-		for (GameObject o : game.objects) {
-			o.updatePhysic(elapsed);
-			constrainsObjectToPlayZone(game.playZone, o);
+		if (game.entities != null) {
+			game.entities.integrate(game.world, elapsed);
+			game.entities.constrain(game.playZone);
+		} else {
+			for (int i = 0; i < game.objects.size(); i++) {
+				GameObject o = game.objects.get(i);
+				o.updatePhysic(elapsed);
+				constrainsObjectToPlayZone(game.playZone, o);
+			}
 		}
 
 	}
@@ -210,13 +224,11 @@ public class SampleState extends AbstractGameState implements GameState {
 		for (GameObject o : game.objects) {
 			if (o.name.startsWith("enemy_")) {
 
-				o.forces.clear();
+				o.clearForces();
 				o.setVelocity(0, 0);
-				o.velocity.x = 0;
-				o.velocity.y = 0;
 				o.setAcceleration((float) ((Math.random() * 50f) - 25f), (float) ((Math.random() * 50f) - 25f));
 				// o.gravity = new Vector2D("gravity", 0.0f, -9.81f);
-				logger.info("add a new acceleration to {}:{}", o.name, o.acceleration);
+				logger.info("add a new acceleration to {}:({},{})", o.name, o.getAccelerationX(), o.getAccelerationY());
 			}
 		}
 
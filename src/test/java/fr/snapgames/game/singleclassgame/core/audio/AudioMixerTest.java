@@ -0,0 +1,178 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.audio;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Render the {@link AudioMixer} into a byte array, without any audio device,
+ * and check the mixed samples.
+ *
+ * @author Frédéric Delorme
+ */
+public class AudioMixerTest {
+
+	private AudioMixer mixer;
+	private byte[] out;
+
+	@Before
+	public void setUp() {
+		mixer = new AudioMixer(4, 16, 8);
+		out = new byte[256 * 4];
+	}
+
+	/**
+	 * A mono buffer of <code>frames</code> frames all set to <code>value</code>.
+	 */
+	private static SoundBuffer constant(String code, int frames, short value, int polyphony) {
+		short[] samples = new short[frames];
+		for (int i = 0; i < frames; i++) {
+			samples[i] = value;
+		}
+		return new SoundBuffer(code, samples, 1, AudioMixer.SAMPLE_RATE, polyphony, 0);
+	}
+
+	/**
+	 * A mono buffer where the frame <code>i</code> is set to
+	 * <code>i * step</code>.
+	 */
+	private static SoundBuffer ramp(String code, int frames, int step, int polyphony) {
+		short[] samples = new short[frames];
+		for (int i = 0; i < frames; i++) {
+			samples[i] = (short) (i * step);
+		}
+		return new SoundBuffer(code, samples, 1, AudioMixer.SAMPLE_RATE, polyphony, 0);
+	}
+
+	private int left(int frame) {
+		return (short) ((out[frame * 4] & 0xff) | (out[frame * 4 + 1] << 8));
+	}
+
+	private int right(int frame) {
+		return (short) ((out[frame * 4 + 2] & 0xff) | (out[frame * 4 + 3] << 8));
+	}
+
+	@Test
+	public void volumeScalesBothChannels() {
+		mixer.play(constant("c", 64, (short) 10000, 1), 0.5f, 0.0f, 1.0f, 0, false);
+		mixer.render(out, 16);
+		for (int i = 0; i < 16; i++) {
+			assertEquals(5000, left(i));
+			assertEquals(5000, right(i));
+		}
+	}
+
+	@Test
+	public void panAttenuatesTheOppositeChannel() {
+		float[][] cases = {
+				// pan, expected left, expected right
+				{ -1.0f, 8000, 0 }, { -0.5f, 8000, 4000 }, { 0.0f, 8000, 8000 }, { 0.5f, 4000, 8000 },
+				{ 1.0f, 0, 8000 }, };
+		for (float[] c : cases) {
+			setUp();
+			mixer.play(constant("c", 64, (short) 8000, 1), 1.0f, c[0], 1.0f, 0, false);
+			mixer.render(out, 4);
+			assertEquals("left for pan " + c[0], (int) c[1], left(0));
+			assertEquals("right for pan " + c[0], (int) c[2], right(0));
+		}
+	}
+
+	@Test
+	public void pitchChangesThePlaybackSpeed() {
+		// pitch, expected step in the ramp
+		float[][] cases = { { 1.0f, 100 }, { 2.0f, 200 }, { 0.5f, 50 }, };
+		for (float[] c : cases) {
+			setUp();
+			mixer.play(ramp("r", 100, 100, 1), 1.0f, 0.0f, c[0], 0, false);
+			mixer.render(out, 20);
+			for (int i = 0; i < 20; i++) {
+				assertEquals("frame " + i + " at pitch " + c[0], (int) (i * c[1]), left(i));
+			}
+		}
+	}
+
+	@Test
+	public void soundEndsWhenNotLooping() {
+		mixer.play(constant("c", 10, (short) 1000, 1), 1.0f, 0.0f, 1.0f, 0, false);
+		mixer.render(out, 32);
+		assertEquals(1000, left(9));
+		assertEquals(0, left(10));
+		assertEquals(0, left(31));
+		// the voices are counted at the start of each chunk.
+		mixer.render(out, 8);
+		assertEquals(0, mixer.getActiveVoices());
+	}
+
+	@Test
+	public void loopingSoundRestartsFromItsFirstFrame() {
+		mixer.play(ramp("r", 4, 100, 1), 1.0f, 0.0f, 1.0f, 0, true);
+		mixer.render(out, 32);
+		for (int i = 0; i < 32; i++) {
+			assertEquals("frame " + i, (i % 4) * 100, left(i));
+		}
+		assertEquals(1, mixer.getActiveVoices());
+	}
+
+	@Test
+	public void fullPolyphonyStealsTheOldestOwnVoice() {
+		SoundBuffer sound = ramp("r", 1000, 1, 2);
+		mixer.play(sound, 1.0f, 0.0f, 1.0f, 0, false);
+		mixer.render(out, 20);
+		mixer.play(sound, 1.0f, 0.0f, 1.0f, 0, false);
+		mixer.render(out, 10);
+		// both voices are playing, 2 voices of the mixer are still free.
+		mixer.play(sound, 1.0f, 0.0f, 1.0f, 0, false);
+		mixer.render(out, 1);
+
+		// the voice started first (at frame 30) is replaced by the new one (at frame
+		// 0), the second one (at frame 10) keeps playing.
+		assertEquals(10, left(0));
+		assertEquals(1, mixer.getStolen());
+		assertEquals(3, mixer.getPlayed());
+		assertEquals(2, mixer.getActiveVoices());
+	}
+
+	@Test
+	public void stopOnlyStopsTheVoicesOfItsBuffer() {
+		SoundBuffer a = constant("a", 256, (short) 1000, 2);
+		SoundBuffer b = constant("b", 256, (short) 300, 1);
+		mixer.play(a, 1.0f, 0.0f, 1.0f, 0, false);
+		mixer.play(a, 1.0f, 0.0f, 1.0f, 0, false);
+		mixer.play(b, 1.0f, 0.0f, 1.0f, 0, false);
+		mixer.render(out, 8);
+		assertEquals(2300, left(0));
+		assertEquals(3, mixer.getActiveVoices());
+
+		mixer.stop(a);
+		mixer.render(out, 8);
+		assertEquals(300, left(0));
+		assertEquals(1, mixer.getActiveVoices());
+	}
+
+	@Test
+	public void stopAllStopsEveryVoice() {
+		mixer.play(constant("a", 256, (short) 1000, 1), 1.0f, 0.0f, 1.0f, 0, true);
+		mixer.play(constant("b", 256, (short) 300, 1), 1.0f, 0.0f, 1.0f, 0, true);
+		mixer.render(out, 8);
+		assertEquals(2, mixer.getActiveVoices());
+
+		mixer.stopAll();
+		mixer.render(out, 8);
+		for (int i = 0; i < 8; i++) {
+			assertEquals(0, left(i));
+			assertEquals(0, right(i));
+		}
+		assertEquals(0, mixer.getActiveVoices());
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.audio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * <p>
+ * Check the slots handling of the {@link CommandQueue}, from one thread.
+ *
+ * @author Frédéric Delorme
+ */
+public class CommandQueueTest {
+
+	private static CommandQueue<int[]> queue(int capacity) {
+		return new CommandQueue<>(capacity, new CommandQueue.Factory<int[]>() {
+			@Override
+			public int[] create() {
+				return new int[1];
+			}
+		});
+	}
+
+	@Test
+	public void capacityIsRoundedToAPowerOfTwo() {
+		assertEquals(2, queue(0).capacity());
+		assertEquals(2, queue(2).capacity());
+		assertEquals(4, queue(3).capacity());
+		assertEquals(16, queue(16).capacity());
+	}
+
+	@Test
+	public void claimFailsWhenFull() {
+		CommandQueue<int[]> q = queue(4);
+		for (int i = 0; i < 4; i++) {
+			assertEquals(i, q.claim());
+		}
+		assertEquals(-1, q.claim());
+
+		// published but not yet read commands still fill the queue.
+		for (int i = 0; i < 4; i++) {
+			q.publish(i);
+		}
+		assertEquals(-1, q.claim());
+		assertEquals(4, q.size());
+	}
+
+	@Test
+	public void pollIgnoresClaimedButUnpublishedSlots() {
+		CommandQueue<int[]> q = queue(4);
+		long slot = q.claim();
+		assertNull(q.poll());
+		q.get(slot)[0] = 42;
+		q.publish(slot);
+		assertEquals(42, q.poll()[0]);
+	}
+
+	@Test
+	public void slotsWrapAfterRelease() {
+		CommandQueue<int[]> q = queue(4);
+		for (int i = 0; i < 4; i++) {
+			long slot = q.claim();
+			q.get(slot)[0] = i;
+			q.publish(slot);
+		}
+		assertEquals(0, q.poll()[0]);
+		q.release();
+
+		// the released slot is claimed again, on the first command.
+		long slot = q.claim();
+		assertEquals(4, slot);
+		assertSame(q.get(0), q.get(slot));
+		assertEquals(-1, q.claim());
+		q.get(slot)[0] = 4;
+		q.publish(slot);
+
+		for (int i = 1; i <= 4; i++) {
+			assertEquals(i, q.poll()[0]);
+			q.release();
+		}
+		assertNull(q.poll());
+		assertEquals(0, q.size());
+	}
+
+	@Test
+	public void commandsKeepTheirOrderOverManyTurns() {
+		CommandQueue<int[]> q = queue(2);
+		int next = 0;
+		for (int turn = 0; turn < 100; turn++) {
+			for (int i = 0; i < 2; i++) {
+				long slot = q.claim();
+				assertTrue(slot >= 0);
+				q.get(slot)[0] = next + i;
+				q.publish(slot);
+			}
+			assertEquals(-1, q.claim());
+			for (int i = 0; i < 2; i++) {
+				assertEquals(next + i, q.poll()[0]);
+				q.release();
+			}
+			assertNull(q.poll());
+			next += 2;
+		}
+	}
+}
@@ -0,0 +1,257 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.collision;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * <p>
+ * Table driven tests of the {@link BoundingBox} narrow phase: each shape pair
+ * is tested touching, separated and contained, in both orders, then the swept
+ * tests are checked against analytic times of impact.
+ *
+ * @author Frédéric Delorme
+ */
+public class BoundingBoxTest {
+
+	private static final float EPSILON = 1e-4f;
+
+	private static final BoundingBoxType RECTANGLE = BoundingBoxType.RECTANGLE;
+	private static final BoundingBoxType CIRCLE = BoundingBoxType.CIRCLE;
+	private static final BoundingBoxType CAPSULE = BoundingBoxType.CAPSULE;
+	private static final BoundingBoxType POINTS = BoundingBoxType.POINTS;
+
+	/**
+	 * A static box of <code>type</code>.
+	 */
+	private static BoundingBox box(BoundingBoxType type, float x, float y, float width, float height) {
+		return moved(type, x, y, x, y, width, height);
+	}
+
+	/**
+	 * A box of <code>type</code> moved from <code>(oldX,oldY)</code> to
+	 * <code>(x,y)</code>.
+	 */
+	private static BoundingBox moved(BoundingBoxType type, float oldX, float oldY, float x, float y, float width,
+			float height) {
+		BoundingBox b = new BoundingBox().setType(type);
+		b.update(x, y, width, height, oldX, oldY);
+		return b;
+	}
+
+	/**
+	 * A POINTS box defined by <code>xy</code>, relatively to <code>(x,y)</code>.
+	 */
+	private static BoundingBox polygon(float x, float y, float width, float height, float... xy) {
+		BoundingBox b = new BoundingBox().setType(POINTS).setPoints(xy);
+		b.update(x, y, width, height, x, y);
+		return b;
+	}
+
+	/**
+	 * The right triangle <code>(0,0),(20,0),(0,20)</code> at the origin.
+	 */
+	private static BoundingBox triangle() {
+		return polygon(0, 0, 20, 20, 0, 0, 20, 0, 0, 20);
+	}
+
+	/**
+	 * Check <code>c[1]</code> against <code>c[2]</code> in both orders, expecting
+	 * <code>c[3]</code>.
+	 */
+	private static void check(Object[][] cases) {
+		for (Object[] c : cases) {
+			BoundingBox a = (BoundingBox) c[1];
+			BoundingBox b = (BoundingBox) c[2];
+			int expected = (Integer) c[3];
+			assertEquals(c[0] + " (a,b)", expected, a.intersect(b));
+			assertEquals(c[0] + " (b,a)", expected, b.intersect(a));
+		}
+	}
+
+	@Test
+	public void rectangles() {
+		check(new Object[][] { { "touching", box(RECTANGLE, 0, 0, 10, 10), box(RECTANGLE, 10, 0, 10, 10), 1 },
+				{ "separated", box(RECTANGLE, 0, 0, 10, 10), box(RECTANGLE, 11, 0, 10, 10), 0 },
+				{ "contained", box(RECTANGLE, 0, 0, 40, 40), box(RECTANGLE, 10, 10, 10, 10), 1 }, });
+	}
+
+	@Test
+	public void circleCircle() {
+		check(new Object[][] { { "touching", box(CIRCLE, 0, 0, 10, 10), box(CIRCLE, 10, 0, 10, 10), 1 },
+				{ "separated", box(CIRCLE, 0, 0, 10, 10), box(CIRCLE, 11, 0, 10, 10), 0 },
+				// the boxes overlap, not the circles.
+				{ "separated diagonal", box(CIRCLE, 0, 0, 10, 10), box(CIRCLE, 8, 8, 10, 10), 0 },
+				{ "contained", box(CIRCLE, 0, 0, 40, 40), box(CIRCLE, 15, 15, 10, 10), 1 }, });
+	}
+
+	@Test
+	public void circleBox() {
+		check(new Object[][] { { "touching", box(CIRCLE, 0, 0, 10, 10), box(RECTANGLE, 10, 0, 10, 10), 1 },
+				{ "separated", box(CIRCLE, 0, 0, 10, 10), box(RECTANGLE, 11, 0, 10, 10), 0 },
+				// the corner at (9,9) is at sqrt(32) from the center (5,5).
+				{ "separated corner", box(CIRCLE, 0, 0, 10, 10), box(RECTANGLE, 9, 9, 10, 10), 0 },
+				{ "overlapping corner", box(CIRCLE, 0, 0, 10, 10), box(RECTANGLE, 8, 8, 10, 10), 1 },
+				{ "circle in box", box(CIRCLE, 40, 40, 10, 10), box(RECTANGLE, 0, 0, 100, 100), 1 },
+				{ "box in circle", box(CIRCLE, 0, 0, 100, 100), box(RECTANGLE, 45, 45, 10, 10), 1 }, });
+	}
+
+	@Test
+	public void capsules() {
+		// horizontal capsule of axis (5,5)-(35,5) and radius 5.
+		check(new Object[][] { { "touching", box(CAPSULE, 0, 0, 40, 10), box(CAPSULE, 0, 10, 40, 10), 1 },
+				{ "separated", box(CAPSULE, 0, 0, 40, 10), box(CAPSULE, 0, 11, 40, 10), 0 },
+				{ "crossing", box(CAPSULE, 0, 0, 40, 10), box(CAPSULE, 15, -10, 10, 40), 1 },
+				{ "contained", box(CAPSULE, 0, 0, 40, 20), box(CAPSULE, 10, 5, 20, 10), 1 },
+				{ "capsule circle", box(CAPSULE, 0, 0, 40, 10), box(CIRCLE, 40, 0, 10, 10), 1 },
+				{ "capsule circle separated", box(CAPSULE, 0, 0, 40, 10), box(CIRCLE, 38, 8, 10, 10), 0 }, });
+	}
+
+	@Test
+	public void roundPolygon() {
+		check(new Object[][] {
+				{ "capsule box touching", box(CAPSULE, 0, 0, 40, 10), box(RECTANGLE, 40, 0, 10, 10), 1 },
+				// the corner at (38,8) is at sqrt(18) from the axis end (35,5).
+				{ "capsule box corner", box(CAPSULE, 0, 0, 40, 10), box(RECTANGLE, 38, 8, 10, 10), 1 },
+				// the corner at (39,9) is at sqrt(32) from the axis end (35,5).
+				{ "capsule box separated", box(CAPSULE, 0, 0, 40, 10), box(RECTANGLE, 39, 9, 10, 10), 0 },
+				{ "capsule in box", box(CAPSULE, 10, 10, 40, 10), box(RECTANGLE, 0, 0, 100, 100), 1 },
+				// the circle center (5,-5) is at 5 from the edge y=0.
+				{ "circle triangle touching", box(CIRCLE, 0, -10, 10, 10), triangle(), 1 },
+				// the circle center (17,17) is at 14/sqrt(2) from the edge x+y=20.
+				{ "circle triangle separated", box(CIRCLE, 12, 12, 10, 10), triangle(), 0 },
+				// the circle center (13,13) is at 6/sqrt(2) from the edge x+y=20.
+				{ "circle triangle overlapping", box(CIRCLE, 8, 8, 10, 10), triangle(), 1 },
+				{ "circle in triangle", box(CIRCLE, 2, 2, 4, 4), triangle(), 1 }, });
+	}
+
+	@Test
+	public void polygons() {
+		check(new Object[][] {
+				// the corner (10,10) is on the edge x+y=20.
+				{ "box triangle touching", box(RECTANGLE, 10, 10, 10, 10), triangle(), 1 },
+				{ "box triangle separated", box(RECTANGLE, 11, 11, 10, 10), triangle(), 0 },
+				{ "box triangle overlapping", box(RECTANGLE, 9, 9, 10, 10), triangle(), 1 },
+				{ "triangle in box", box(RECTANGLE, -10, -10, 100, 100), triangle(), 1 },
+				{ "triangles touching", polygon(0, 0, 20, 20, 20, 0, 20, 20, 0, 20), triangle(), 1 },
+				{ "triangles separated", polygon(1, 1, 20, 20, 20, 0, 20, 20, 0, 20), triangle(), 0 },
+				{ "triangle in triangle", polygon(1, 1, 4, 4, 0, 0, 4, 0, 0, 4), triangle(), 1 },
+				// the polygon is 40 wide on a 10x10 box.
+				{ "polygon past its box", polygon(0, 0, 10, 10, 0, 0, 40, 0, 40, 10, 0, 10),
+						box(RECTANGLE, 30, 0, 10, 10), 1 }, });
+	}
+
+	@Test
+	public void segmentsDistance2() {
+		float[][] cases = {
+				// p1, q1, p2, q2, expected square distance
+				{ 0, 0, 10, 0, 0, 5, 10, 5, 25 }, // parallel
+				{ 0, 0, 10, 10, 0, 10, 10, 0, 0 }, // crossing
+				{ 0, 0, 10, 0, 10, 0, 20, 0, 0 }, // touching ends
+				{ 0, 0, 10, 0, 5, 2, 5, 10, 4 }, // T shaped
+				{ 0, 0, 10, 0, 13, 4, 20, 4, 25 }, // separated ends
+				{ 5, 5, 5, 5, 0, 0, 10, 0, 25 }, // point and segment
+				{ 0, 0, 0, 0, 3, 4, 3, 4, 25 }, // two points
+		};
+		for (float[] c : cases) {
+			assertEquals(c[8], BoundingBox.segmentsDistance2(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7]), EPSILON);
+			assertEquals(c[8], BoundingBox.segmentsDistance2(c[4], c[5], c[6], c[7], c[0], c[1], c[2], c[3]), EPSILON);
+		}
+	}
+
+	@Test
+	public void sweepThreshold() {
+		assertTrue(moved(CIRCLE, 0, 0, 100, 0, 10, 10).sweep(0));
+		assertFalse(moved(CIRCLE, 0, 0, 3, 0, 10, 10).sweep(0));
+		assertFalse(moved(CIRCLE, 0, 0, 100, 0, 10, 10).sweep(200));
+	}
+
+	@Test
+	public void sweptCircles() {
+		Object[][] cases = {
+				// the center goes from (5,5) to (105,5), and touches (55,5) at x=45.
+				{ "head on", moved(CIRCLE, 0, 0, 100, 0, 10, 10), box(CIRCLE, 50, 0, 10, 10), 0.4f },
+				// the centers are 6 apart vertically, touching when 8 apart horizontally.
+				{ "offset", moved(CIRCLE, 0, 0, 100, 0, 10, 10), box(CIRCLE, 50, 6, 10, 10), 0.42f },
+				// a move of length 100 along (0.6,0.8), touching at a distance of 40.
+				{ "diagonal", moved(CIRCLE, 0, 0, 60, 80, 10, 10), box(CIRCLE, 30, 40, 10, 10), 0.4f },
+				{ "overlapping at start", moved(CIRCLE, 5, 0, 105, 0, 10, 10), box(CIRCLE, 0, 0, 10, 10), 0.0f },
+				{ "passing by", moved(CIRCLE, 0, 0, 100, 0, 10, 10), box(CIRCLE, 50, 11, 10, 10), -1.0f },
+				{ "moving away", moved(CIRCLE, 10, 0, 110, 0, 10, 10), box(CIRCLE, -5, 0, 10, 10), -1.0f },
+				{ "stopping before", moved(CIRCLE, 0, 0, 30, 0, 10, 10), box(CIRCLE, 50, 0, 10, 10), -1.0f }, };
+		checkTimeOfImpact(cases);
+	}
+
+	@Test
+	public void sweptBoxes() {
+		Object[][] cases = {
+				// touching when x=40.
+				{ "head on", moved(RECTANGLE, 0, 0, 100, 0, 10, 10), box(RECTANGLE, 50, 0, 10, 10), 0.4f },
+				// x(t)=100t and 50+10t, touching when 100t+10 = 50+10t.
+				{ "both moving", moved(RECTANGLE, 0, 0, 100, 0, 10, 10), moved(RECTANGLE, 50, 0, 60, 0, 10, 10),
+						40.0f / 90.0f },
+				// touching when y=40, while x=30.
+				{ "diagonal", moved(RECTANGLE, 0, 0, 75, 100, 10, 10), box(RECTANGLE, 30, 50, 10, 10), 0.4f },
+				{ "overlapping at start", moved(RECTANGLE, 5, 0, 105, 0, 10, 10), box(RECTANGLE, 0, 0, 10, 10),
+						0.0f },
+				{ "passing by", moved(RECTANGLE, 0, 0, 100, 0, 10, 10), box(RECTANGLE, 50, 11, 10, 10), -1.0f },
+				{ "stopping before", moved(RECTANGLE, 0, 0, 30, 0, 10, 10), box(RECTANGLE, 50, 0, 10, 10), -1.0f },
+				{ "capsule through box", moved(CAPSULE, 0, 0, 100, 0, 20, 10), box(RECTANGLE, 50, 0, 10, 10),
+						0.3f }, };
+		checkTimeOfImpact(cases);
+	}
+
+	/**
+	 * Check the time of impact of <code>c[1]</code> against <code>c[2]</code> in
+	 * both orders, expecting <code>c[3]</code>, and the swept
+	 * {@link BoundingBox#contactTime(BoundingBox)} and
+	 * {@link BoundingBox#intersect(BoundingBox)} results.
+	 */
+	private static void checkTimeOfImpact(Object[][] cases) {
+		for (Object[] c : cases) {
+			BoundingBox a = (BoundingBox) c[1];
+			BoundingBox b = (BoundingBox) c[2];
+			float expected = (Float) c[3];
+			assertEquals(c[0] + " (a,b)", expected, a.timeOfImpact(b), EPSILON);
+			assertEquals(c[0] + " (b,a)", expected, b.timeOfImpact(a), EPSILON);
+			a.sweep(0);
+			b.sweep(0);
+			assertEquals(c[0] + " contact time", expected, a.contactTime(b), EPSILON);
+			assertEquals(c[0] + " swept", expected >= 0.0f ? 1 : 0, a.intersect(b));
+		}
+	}
+
+	@Test
+	public void discreteContactTime() {
+		assertEquals(1.0f, box(CIRCLE, 0, 0, 10, 10).contactTime(box(RECTANGLE, 8, 0, 10, 10)), EPSILON);
+		assertEquals(-1.0f, box(CIRCLE, 0, 0, 10, 10).contactTime(box(RECTANGLE, 9, 9, 10, 10)), EPSILON);
+		// a short move is not swept, and tested at the final positions only.
+		BoundingBox slow = moved(RECTANGLE, 0, 0, 3, 0, 10, 10);
+		assertFalse(slow.sweep(0));
+		assertEquals(1.0f, slow.contactTime(box(RECTANGLE, 12, 0, 10, 10)), EPSILON);
+	}
+
+	@Test
+	public void sweptBoxDoesNotTunnel() {
+		BoundingBox bullet = moved(CIRCLE, 0, 0, 100, 0, 10, 10);
+		BoundingBox wall = box(RECTANGLE, 50, -20, 4, 50);
+		// at their final positions, both don't intersect.
+		assertEquals(0, bullet.intersect(wall));
+		assertTrue(bullet.sweep(0));
+		assertEquals(1, bullet.intersect(wall));
+		assertEquals(1, wall.intersect(bullet));
+		// touching when the bullet bounds reach x=50.
+		assertEquals(0.4f, bullet.timeOfImpact(wall), EPSILON);
+	}
+}
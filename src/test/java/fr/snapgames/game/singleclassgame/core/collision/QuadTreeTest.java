@@ -0,0 +1,219 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.collision;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * <p>
+ * Check that the incremental {@link QuadTree} stays equivalent to a tree
+ * rebuilt from scratch while objects move across the nodes boundaries, and
+ * that its nodes are recycled.
+ *
+ * @author Frédéric Delorme
+ */
+public class QuadTreeTest {
+
+	private static final float WORLD = 1000.0f;
+
+	/**
+	 * A moving box.
+	 */
+	private static class Box implements Collidable {
+		final int id;
+		final BoundingBox bb = new BoundingBox().setType(BoundingBoxType.RECTANGLE);
+		float x, y, w, h, vx, vy;
+
+		Box(int id, float x, float y, float w, float h, float vx, float vy) {
+			this.id = id;
+			this.x = x;
+			this.y = y;
+			this.w = w;
+			this.h = h;
+			this.vx = vx;
+			this.vy = vy;
+			bb.update(x, y, w, h, x, y);
+		}
+
+		void move() {
+			float oldX = x, oldY = y;
+			x += vx;
+			y += vy;
+			if (x < 0 || x + w > WORLD) {
+				vx = -vx;
+				x = Math.max(0, Math.min(WORLD - w, x));
+			}
+			if (y < 0 || y + h > WORLD) {
+				vy = -vy;
+				y = Math.max(0, Math.min(WORLD - h, y));
+			}
+			bb.update(x, y, w, h, oldX, oldY);
+		}
+
+		@Override
+		public BoundingBox getBoundingBox() {
+			return bb;
+		}
+
+		@Override
+		public void addCollider(Collidable co) {
+		}
+
+		@Override
+		public void clearColliders() {
+		}
+
+		@Override
+		public void setCollidingResponseProcessed(boolean f) {
+		}
+
+		@Override
+		public String toString() {
+			return "box" + id;
+		}
+	}
+
+	private static boolean overlap(Collidable a, Collidable b) {
+		BoundingBox b1 = a.getBoundingBox(), b2 = b.getBoundingBox();
+		return b1.minX <= b2.maxX && b2.minX <= b1.maxX && b1.minY <= b2.maxY && b2.minY <= b1.maxY;
+	}
+
+	private static List<Collidable> boxes(Random random, int count) {
+		List<Collidable> boxes = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			float w = 4 + random.nextInt(30), h = 4 + random.nextInt(30);
+			boxes.add(new Box(i, random.nextFloat() * (WORLD - w), random.nextFloat() * (WORLD - h), w, h,
+					(random.nextFloat() - 0.5f) * 40, (random.nextFloat() - 0.5f) * 40));
+		}
+		return boxes;
+	}
+
+	private static String key(Collidable a, Collidable b) {
+		int i = ((Box) a).id, j = ((Box) b).id;
+		return Math.min(i, j) + "-" + Math.max(i, j);
+	}
+
+	/**
+	 * The overlapping pairs, as "id1-id2", by testing all the pairs.
+	 */
+	private static Set<String> bruteForce(List<Collidable> boxes) {
+		Set<String> result = new HashSet<>();
+		for (int i = 0; i < boxes.size(); i++) {
+			for (int j = i + 1; j < boxes.size(); j++) {
+				if (overlap(boxes.get(i), boxes.get(j))) {
+					result.add(key(boxes.get(i), boxes.get(j)));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The overlapping pairs among the {@link QuadTree#retrieve(List, Collidable)}
+	 * candidates of each object. An object spanning several nodes doesn't get the
+	 * objects of the nodes under its own, but each of them gets it.
+	 */
+	private static Set<String> retrieved(QuadTree tree, List<Collidable> boxes) {
+		List<Collidable> candidates = new ArrayList<>();
+		Set<String> result = new HashSet<>();
+		for (Collidable c : boxes) {
+			candidates.clear();
+			tree.retrieve(candidates, c);
+			for (Collidable o : candidates) {
+				if (o != c && overlap(o, c)) {
+					result.add(key(o, c));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The pairs found by the tree walk really overlapping.
+	 */
+	private static Set<String> pairs(QuadTree tree) {
+		final Set<String> result = new HashSet<>();
+		tree.findPairs(new CollisionPairProcessor() {
+			@Override
+			public void processPair(Collidable a, Collidable b) {
+				if (overlap(a, b)) {
+					assertTrue("pair found twice", result.add(key(a, b)));
+				}
+			}
+		});
+		return result;
+	}
+
+	@Test
+	public void incrementalTreeMatchesARebuiltOne() {
+		Random random = new Random(7);
+		List<Collidable> boxes = boxes(random, 300);
+		QuadTree tree = new QuadTree(WORLD, WORLD).setMaxObjects(4).setMaxLevels(6).setIncremental(true);
+		long relocated = 0;
+		for (int tick = 0; tick < 200; tick++) {
+			for (Collidable c : boxes) {
+				((Box) c).move();
+			}
+			tree.update(boxes);
+			relocated += tree.getRelocated();
+
+			QuadTree fresh = new QuadTree(WORLD, WORLD).setMaxObjects(4).setMaxLevels(6);
+			fresh.update(boxes);
+
+			Set<String> expected = bruteForce(boxes);
+			assertEquals("fresh candidates at tick " + tick, expected, retrieved(fresh, boxes));
+			assertEquals("candidates at tick " + tick, retrieved(fresh, boxes), retrieved(tree, boxes));
+			assertEquals("fresh pairs at tick " + tick, expected, pairs(fresh));
+			assertEquals("pairs at tick " + tick, pairs(fresh), pairs(tree));
+		}
+		// objects did cross the nodes boundaries.
+		assertTrue(relocated > 1000);
+	}
+
+	@Test
+	public void collapseGivesNodesBackToThePool() {
+		Random random = new Random(11);
+		List<Collidable> boxes = new ArrayList<>();
+		// a cluster in a corner splits the tree down to its last level.
+		for (int i = 0; i < 40; i++) {
+			boxes.add(new Box(i, random.nextFloat() * 100, random.nextFloat() * 100, 2, 2, 0, 0));
+		}
+		QuadTree tree = new QuadTree(WORLD, WORLD).setMaxObjects(4).setMaxLevels(6).setIncremental(true);
+		tree.update(boxes);
+		int allocated = tree.getAllocatedNodes();
+		assertTrue(tree.getNodeCount() > 5);
+		assertEquals(allocated, tree.getNodeCount() - 1 + tree.getPooledNodes());
+
+		// removing all but two objects collapses the whole tree.
+		List<Collidable> removed = new ArrayList<>(boxes.subList(2, boxes.size()));
+		for (Collidable c : removed) {
+			tree.remove(c);
+		}
+		boxes.removeAll(removed);
+		tree.update(boxes);
+		assertEquals(1, tree.getNodeCount());
+		assertEquals(allocated, tree.getPooledNodes());
+
+		// the cluster is built again from the pooled nodes.
+		boxes.addAll(removed);
+		tree.update(boxes);
+		assertEquals(0, tree.getAllocatedNodes());
+		assertEquals(allocated, tree.getNodeCount() - 1 + tree.getPooledNodes());
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * SnapGames
+ *
+ * Game Development Java
+ *
+ * singleclassgame
+ *
+ * @year 2018
+ */
+package fr.snapgames.game.singleclassgame.core.graphics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * <p>
+ * Check that the {@link SnapshotRing} always gives the latest published
+ * snapshot to the consumer, and never the one being filled by the producer.
+ *
+ * @author Frédéric Delorme
+ */
+public class SnapshotRingTest {
+
+	private static void produce(SnapshotRing ring, long sequence) {
+		RenderSnapshot s = ring.acquire();
+		s.time = sequence;
+		s.ups = (int) sequence;
+		ring.publish();
+	}
+
+	@Test
+	public void nothingBeforeTheFirstPublish() {
+		SnapshotRing ring = new SnapshotRing();
+		assertNull(ring.latest());
+		produce(ring, 1);
+		assertEquals(1, ring.latest().time);
+	}
+
+	@Test
+	public void latestWins() {
+		SnapshotRing ring = new SnapshotRing();
+		produce(ring, 1);
+		produce(ring, 2);
+		produce(ring, 3);
+		RenderSnapshot s = ring.latest();
+		assertEquals(3, s.time);
+		// nothing new: the same snapshot is rendered again.
+		assertSame(s, ring.latest());
+		produce(ring, 4);
+		assertEquals(4, ring.latest().time);
+	}
+
+	@Test
+	public void noSnapshotOwnedByBothSides() {
+		SnapshotRing ring = new SnapshotRing();
+		Random random = new Random(42);
+		RenderSnapshot front = null;
+		long sequence = 0, consumed = 0;
+		for (int i = 0; i < 10000; i++) {
+			if (random.nextBoolean()) {
+				RenderSnapshot back = ring.acquire();
+				assertNotSame("step " + i, front, back);
+				produce(ring, ++sequence);
+			} else {
+				front = ring.latest();
+				if (front != null) {
+					assertEquals("step " + i, sequence, front.time);
+					assertTrue(front.time >= consumed);
+					consumed = front.time;
+				}
+			}
+			if (front != null) {
+				assertNotSame("step " + i, front, ring.acquire());
+			}
+		}
+	}
+
+	@Test
+	public void concurrentSnapshotsAreNeverTorn() throws InterruptedException {
+		final SnapshotRing ring = new SnapshotRing();
+		final int count = 200000;
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (long i = 1; i <= count; i++) {
+					RenderSnapshot s = ring.acquire();
+					s.time = i;
+					Thread.yield();
+					s.ups = (int) i;
+					ring.publish();
+				}
+			}
+		}, "producer");
+		producer.start();
+		long consumed = 0;
+		while (consumed < count) {
+			RenderSnapshot s = ring.latest();
+			if (s != null) {
+				long time = s.time;
+				Thread.yield();
+				assertEquals("torn snapshot", time, s.ups);
+				assertTrue("older snapshot", time >= consumed);
+				consumed = time;
+			}
+		}
+		producer.join();
+		assertEquals(count, ring.latest().time);
+	}
+}